@@ -0,0 +1,42 @@
+package it.raptor_service.config;
+
+import ai.onnxruntime.OrtException;
+import it.raptor_service.service.embedding.OnnxEmbeddingModel;
+import it.raptor_service.service.embedding.WordPieceTokenizer;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replaces the Ollama embedding model with an in-process ONNX model when
+ * {@code raptor.embedding.provider=onnx}. Chat calls still go to Ollama.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "raptor.embedding", name = "provider", havingValue = "onnx")
+public class LocalEmbeddingConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public OnnxEmbeddingModel onnxEmbeddingModel(RaptorProperties properties) throws IOException, OrtException {
+        RaptorProperties.Embedding config = properties.getEmbedding();
+        if (config.getModelPath() == null || config.getVocabularyPath() == null) {
+            throw new IllegalArgumentException(
+                    "raptor.embedding.model-path and raptor.embedding.vocabulary-path are required for the onnx provider");
+        }
+
+        WordPieceTokenizer tokenizer = WordPieceTokenizer.load(Path.of(config.getVocabularyPath()), config.isLowerCase());
+        return new OnnxEmbeddingModel(
+                config.getModelPath(),
+                tokenizer,
+                config.getMaxSequenceLength(),
+                config.getBatchSize(),
+                config.getThreads(),
+                config.getPooling(),
+                config.isNormalize());
+    }
+}
@@ -0,0 +1,60 @@
+package it.raptor_service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.raptor_service.service.loadbalancing.LoadBalancingInterceptor;
+import it.raptor_service.service.loadbalancing.ModelEndpoint;
+import it.raptor_service.service.loadbalancing.ModelEndpointBalancer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+
+/**
+ * Spreads model traffic over {@code raptor.endpoints.urls}. Spring AI's Ollama client is
+ * built from the auto-configured {@code RestClient.Builder}, so a customizer that adds the
+ * balancing interceptor redirects its calls without replacing the chat or embedding model.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "raptor.endpoints", name = "urls")
+public class ModelEndpointConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ModelEndpointBalancer modelEndpointBalancer(
+            RaptorProperties properties,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        RaptorProperties.Endpoints config = properties.getEndpoints();
+        ModelEndpointBalancer balancer = new ModelEndpointBalancer(
+                config.getUrls().stream().map(URI::create).toList(),
+                config.getMaxConcurrentRequests(),
+                config.getAcquireTimeoutMs(),
+                config.getUnhealthyAfterFailures());
+        balancer.startHealthChecks(config.getHealthCheckIntervalMs());
+
+        if (properties.getMonitoring().isEnableMetrics()) {
+            meterRegistry.ifAvailable(registry -> {
+                for (ModelEndpoint endpoint : balancer.getEndpoints()) {
+                    Gauge.builder("raptor.model.endpoint.in.flight", endpoint, ModelEndpoint::getInFlight)
+                            .tag("endpoint", endpoint.toString())
+                            .register(registry);
+                    Gauge.builder("raptor.model.endpoint.healthy", endpoint, e -> e.isHealthy() ? 1 : 0)
+                            .tag("endpoint", endpoint.toString())
+                            .register(registry);
+                }
+            });
+        }
+        return balancer;
+    }
+
+    @Bean
+    public RestClientCustomizer modelEndpointRestClientCustomizer(
+            ModelEndpointBalancer balancer,
+            @Value("${spring.ai.ollama.base-url}") String baseUrl) {
+        LoadBalancingInterceptor interceptor = new LoadBalancingInterceptor(URI.create(baseUrl), balancer);
+        return builder -> builder.requestInterceptor(interceptor);
+    }
+}
@@ -1,9 +1,15 @@
 package it.raptor_service.config;
 
+import it.raptor_service.service.quantization.QuantizationType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @ConfigurationProperties(prefix = "raptor")
 @Data
@@ -13,6 +19,16 @@ public class RaptorProperties {
     private Clustering clustering = new Clustering();
     private Security security = new Security();
     private Monitoring monitoring = new Monitoring();
+    private Resilience resilience = new Resilience();
+    private Endpoints endpoints = new Endpoints();
+    private Checkpoint checkpoint = new Checkpoint();
+    private Admission admission = new Admission();
+    private Deduplication deduplication = new Deduplication();
+    private Subtrees subtrees = new Subtrees();
+    private Routing routing = new Routing();
+    private Embedding embedding = new Embedding();
+    private Repository repository = new Repository();
+    private Retrieval retrieval = new Retrieval();
     
     @Data
     public static class Processing {
@@ -22,6 +38,21 @@ public class RaptorProperties {
         private int maxFileSizeMb = 10;
         private boolean enableAsyncProcessing = false;
         private boolean enableCaching = true;
+        private int embeddingBatchSize = 64;
+        private long embeddingCacheMaxBytes = 128L * 1024 * 1024;
+        private QuantizationType embeddingQuantization = QuantizationType.FP16;
+        private boolean enableOffHeapStorage = false;
+        private long offHeapPoolMaxBytes = 512L * 1024 * 1024;
+        private int summaryPromptMaxTokens = 6144;
+        private int summaryParallelism = 4;
+        private int embeddingParallelism = 1;
+        private int extractionSectionChars = 65536;
+        private int pdfPagesPerRange = 16;
+        private int extractionParallelism = 4;
+        private int parallelSplitMinChars = 262144;
+        private int splitSectionChars = 65536;
+        private int splitParallelism = 0;
+        private double minReductionRatio = 0.2;
     }
     
     @Data
@@ -32,6 +63,23 @@ public class RaptorProperties {
         private int maxIterations = 100;
         private int localMaxIterations = 50;
         private int seed = 224;
+        private long instancesCacheMaxBytes = 256L * 1024 * 1024;
+        private int parallelFitMinInstances = 200;
+        private int miniBatchThreshold = 10000;
+        private int miniBatchSize = 256;
+        private int miniBatchEpochs = 5;
+        private int miniBatchSampleSize = 2000;
+        private String engine = "gmm";
+        private Map<Integer, String> levelEngines = new HashMap<>();
+        private int graphNeighbors = 15;
+        private int graphExactSearchMaxPoints = 4096;
+        private int graphHashTables = 8;
+        private int graphHashBits = 12;
+        private int graphMaxCandidates = 512;
+        private double graphResolution = 1.0;
+        private int maxClusterTokens = 8192;
+        private int targetFanIn = 0;
+        private Map<Integer, Integer> levelTargetFanIn = new HashMap<>();
     }
     
     @Data
@@ -45,6 +93,111 @@ public class RaptorProperties {
     public static class Monitoring {
         private boolean enableMetrics = true;
         private boolean enableTracing = false;
+        private String tracingExporter = "otlp";
         private boolean enableHealthChecks = true;
     }
+
+    @Data
+    public static class Resilience {
+        private int maxAttempts = 3;
+        private long initialBackoffMs = 500;
+        private long maxBackoffMs = 10000;
+        private long chatDeadlineMs = 180000;
+        private long embeddingDeadlineMs = 60000;
+        private int circuitFailureThreshold = 5;
+        private long circuitOpenMs = 30000;
+        private boolean hedgeEnabled = false;
+        private long hedgeDelayMs = 60000;
+    }
+
+    @Data
+    public static class Endpoints {
+        private List<String> urls = new ArrayList<>();
+        private int maxConcurrentRequests = 2;
+        private long acquireTimeoutMs = 300000;
+        private long healthCheckIntervalMs = 10000;
+        private int unhealthyAfterFailures = 3;
+    }
+
+    @Data
+    public static class Checkpoint {
+        private boolean enabled = false;
+        private String directory = "./checkpoints";
+        private boolean retainCompleted = false;
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+        private int maxConcurrentJobs = 2;
+        private int maxConcurrentBatchJobs = 1;
+        private int maxQueuedJobs = 16;
+        private int interactiveMaxChunks = 8;
+        private long queueTimeoutMs = 120000;
+    }
+
+    @Data
+    public static class Deduplication {
+        private boolean enabled = true;
+        private double similarityThreshold = 0.9;
+        private int hashFunctions = 128;
+        private int bands = 16;
+        private int shingleWords = 3;
+    }
+
+    @Data
+    public static class Subtrees {
+        private boolean enabled = false;
+        private int minChunks = 4000;
+        private int shardChunks = 1000;
+        private int shardLevels = 1;
+        private String partitioning = "document";
+        private int parallelism = 4;
+    }
+
+    @Data
+    public static class Routing {
+        private Map<Integer, LevelModel> levels = new HashMap<>();
+    }
+
+    @Data
+    public static class LevelModel {
+        private String model;
+        private Double temperature;
+        private int maxTokens = 0;
+        private int minTokens = 128;
+        private double outputRatio = 0.0;
+    }
+
+    @Data
+    public static class Embedding {
+        private String provider = "ollama";
+        private String modelPath;
+        private String vocabularyPath;
+        private int maxSequenceLength = 256;
+        private int batchSize = 32;
+        private int threads = 0;
+        private boolean lowerCase = true;
+        private String pooling = "mean";
+        private boolean normalize = true;
+    }
+
+    @Data
+    public static class Repository {
+        private boolean enabled = false;
+        private String directory = "./trees";
+        private int hotTrees = 16;
+    }
+
+    @Data
+    public static class Retrieval {
+        private int beamWidth = 5;
+        private Map<Integer, Integer> levelBeamWidth = new HashMap<>();
+        private boolean hybrid = false;
+        private int rrfK = 60;
+        private int lexicalCandidates = 50;
+        private int hybridResults = 10;
+        private double bm25K1 = 1.2;
+        private double bm25B = 0.75;
+    }
 }
@@ -0,0 +1,22 @@
+package it.raptor_service.config;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Span exporters for the RAPTOR pipeline observations.
+ * OTLP export is auto-configured from {@code management.otlp.tracing.endpoint};
+ * the logging exporter is registered on top of it when selected.
+ */
+@Configuration
+public class TracingConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "raptor.monitoring", name = "tracing-exporter", havingValue = "logging")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
@@ -12,5 +12,6 @@ import java.util.List;
 public class Cluster {
     private int id;
     private List<String> texts;
+    // At level 1 this also covers duplicate chunks that were folded into texts
     private List<Integer> textIds;
 }
\ No newline at end of file
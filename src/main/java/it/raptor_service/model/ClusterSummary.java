@@ -14,4 +14,10 @@ public class ClusterSummary {
     private int level;
     private String summary;
     private List<Integer> textIds;
-}
\ No newline at end of file
+    /** Estimated tokens of each prompt sent to produce this summary, in call order. */
+    private List<Integer> promptTokens;
+
+    public ClusterSummary(int id, int level, String summary, List<Integer> textIds) {
+        this(id, level, summary, textIds, List.of());
+    }
+}
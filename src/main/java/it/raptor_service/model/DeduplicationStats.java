@@ -0,0 +1,19 @@
+package it.raptor_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeduplicationStats {
+    private int originalChunks;
+    private int uniqueChunks;
+    private int exactDuplicates;
+    private int nearDuplicates;
+    /** Embedding requests (batches) not sent because of removed chunks. */
+    private int embeddingCallsSaved;
+    /** Estimated tokens of removed chunks that no longer go into summary prompts. */
+    private long tokensSaved;
+}
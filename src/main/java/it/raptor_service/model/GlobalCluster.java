@@ -12,4 +12,6 @@ import java.util.List;
 public class GlobalCluster {
     private int id;
     private List<TextEmbedding> embeddings;
+    // Rows of the level's embedding matrix, aligned with embeddings
+    private int[] rowIndices;
 }
\ No newline at end of file
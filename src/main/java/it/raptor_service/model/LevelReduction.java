@@ -0,0 +1,18 @@
+package it.raptor_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LevelReduction {
+    private int level;
+    private int texts;
+    private int clusters;
+    /** Share of the level's texts removed by clustering: {@code 1 - clusters / texts}. */
+    private double reductionRatio;
+    /** False when the level converged and the tree stopped before summarizing it. */
+    private boolean summarized;
+}
@@ -13,4 +13,10 @@ import java.util.Map;
 public class RaptorResult {
     private Map<Integer, LevelResult> levelResults;
     private List<String> allTexts;
+    private DeduplicationStats deduplication;
+    private List<LevelReduction> reductions;
+
+    public RaptorResult(Map<Integer, LevelResult> levelResults, List<String> allTexts) {
+        this(levelResults, allTexts, null, List.of());
+    }
 }
\ No newline at end of file
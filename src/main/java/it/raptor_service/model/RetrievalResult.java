@@ -0,0 +1,20 @@
+package it.raptor_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetrievalResult {
+    /** Selected nodes, top layer first and by score within a layer; best fused score first for hybrid queries. */
+    private List<RetrievedNode> nodes;
+    /** Nodes scored against the query (plus nodes matching a query term for hybrid queries). */
+    private int visitedNodes;
+    private int totalNodes;
+    /** Time spent scoring and descending the tree (and searching and fusing), excluding the query embedding. */
+    private long latencyMicros;
+}
@@ -0,0 +1,17 @@
+package it.raptor_service.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetrievedNode {
+    /** 0 for chunks, otherwise the level whose cluster summaries the node belongs to. */
+    private int layer;
+    /** Chunk index at layer 0, position in the level's summaries above it. */
+    private int id;
+    private String text;
+    private double score;
+}
@@ -1,14 +1,26 @@
 package it.raptor_service.service;
 
+import io.micrometer.observation.Observation;
 import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.*;
+import it.raptor_service.service.cache.EmbeddingCache;
+import it.raptor_service.service.checkpoint.CheckpointStore;
+import it.raptor_service.service.checkpoint.JobAlreadyRunningException;
+import it.raptor_service.service.checkpoint.JobCheckpoint;
 import it.raptor_service.service.clustering.ClusteringService;
+import it.raptor_service.service.dedup.ChunkDeduplicator;
+import it.raptor_service.service.dedup.DeduplicatedChunks;
+import it.raptor_service.service.observation.RaptorObservations;
+import it.raptor_service.service.offheap.DirectBufferPool;
+import it.raptor_service.service.offheap.OffHeapLevelStore;
+import it.raptor_service.service.resilience.ModelCallExecutor;
+import it.raptor_service.service.resilience.ModelOperation;
 import it.raptor_service.service.splitter.TextSplitterService;
+import it.raptor_service.service.subtree.ShardPartitioner;
+import it.raptor_service.service.subtree.ShardSubtree;
+import it.raptor_service.service.subtree.SubtreeMerger;
+import it.raptor_service.service.summarization.ClusterSummarizer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.model.ChatModel;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.embedding.EmbeddingRequest;
 import org.springframework.ai.embedding.EmbeddingResponse;
@@ -16,10 +28,17 @@ import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 @Service
@@ -30,110 +49,391 @@ public class RaptorService {
     private final ClusteringService clusteringService;
     private final TextSplitterService textSplitterService;
     private final RaptorProperties properties;
-    private final ChatModel chatModel;
-
-    private static final String SUMMARY_TEMPLATE = """
-        Here is a subset of documentation that needs to be summarized.
-
-        The documentation provides detailed information about a specific topic.
-
-        Give a detailed summary of the documentation provided, maintaining key concepts and important details.
-
-        Documentation:
-        {context}
-
-        Summary:
-        """;
-
-    public RaptorService(ChatModel chatModel,
+    private final ClusterSummarizer clusterSummarizer;
+    private final RaptorObservations observations;
+    private final EmbeddingCache embeddingCache;
+    private final DirectBufferPool bufferPool;
+    private final ModelCallExecutor modelCalls;
+    private final CheckpointStore checkpointStore;
+    private final ChunkDeduplicator chunkDeduplicator;
+    private final ShardPartitioner shardPartitioner;
+
+    public RaptorService(ClusterSummarizer clusterSummarizer,
                          EmbeddingModel embeddingModel,
                          ClusteringService clusteringService,
                          TextSplitterService textSplitterService,
-                         RaptorProperties properties) {
+                         RaptorProperties properties,
+                         RaptorObservations observations,
+                         EmbeddingCache embeddingCache,
+                         DirectBufferPool bufferPool,
+                         ModelCallExecutor modelCalls,
+                         CheckpointStore checkpointStore,
+                         ChunkDeduplicator chunkDeduplicator,
+                         ShardPartitioner shardPartitioner) {
 
         this.embeddingModel = embeddingModel;
         this.clusteringService = clusteringService;
         this.textSplitterService = textSplitterService;
         this.properties = properties;
-        this.chatModel = chatModel;
+        this.clusterSummarizer = clusterSummarizer;
+        this.observations = observations;
+        this.embeddingCache = embeddingCache;
+        this.bufferPool = bufferPool;
+        this.modelCalls = modelCalls;
+        this.checkpointStore = checkpointStore;
+        this.chunkDeduplicator = chunkDeduplicator;
+        this.shardPartitioner = shardPartitioner;
     }
 
     public RaptorResult processText(String text, int chunkSize, int maxLevels) {
+        return processText(text, chunkSize, maxLevels, null);
+    }
+
+    /**
+     * Runs a job under {@code jobId}; with checkpointing enabled, re-running the same job
+     * on the same input resumes after its last completed level and cluster summary.
+     */
+    public RaptorResult processText(String text, int chunkSize, int maxLevels, String jobId) {
         log.info("Starting RAPTOR processing with chunkSize={}, maxLevels={}", chunkSize, maxLevels);
 
         if (text == null || text.trim().isEmpty()) {
             throw new IllegalArgumentException("Text cannot be null or empty");
         }
 
-        try {
-            long startTime = System.currentTimeMillis();
+        return observeProcess(observations.observation("raptor.process")
+                .lowCardinalityKeyValue("max.levels", String.valueOf(maxLevels))
+                .highCardinalityKeyValue("text.chars", String.valueOf(text.length()))
+                .highCardinalityKeyValue("chunk.size", String.valueOf(chunkSize)),
+                () -> runPipeline(split(text, chunkSize), maxLevels, jobId));
+    }
+
+    /**
+     * Runs a job on text that was already split, e.g. extracted from an uploaded document.
+     */
+    public RaptorResult processChunks(List<String> chunks, int maxLevels, String jobId) {
+        log.info("Starting RAPTOR processing of {} chunks with maxLevels={}", chunks.size(), maxLevels);
+
+        if (chunks.isEmpty()) {
+            throw new IllegalArgumentException("Chunks cannot be empty");
+        }
 
-            // Step 1: Text splitting
-            log.debug("Splitting text into chunks...");
-            List<String> chunks = textSplitterService.splitText(text, chunkSize);
-            log.info("Text split into {} chunks", chunks.size());
+        return observeProcess(observations.observation("raptor.process")
+                .lowCardinalityKeyValue("max.levels", String.valueOf(maxLevels))
+                .highCardinalityKeyValue("chunks", String.valueOf(chunks.size())),
+                () -> runPipeline(chunks, maxLevels, jobId));
+    }
 
-            // Step 2: Recursive processing
-            Map<Integer, LevelResult> results = recursiveProcess(chunks, 1, maxLevels);
+    private RaptorResult observeProcess(Observation observation, Supplier<RaptorResult> pipeline) {
+        try {
+            long startTime = System.currentTimeMillis();
 
-            // Step 3: Collect all texts
-            List<String> allTexts = collectAllTexts(chunks, results);
+            RaptorResult result = observation.observe(pipeline);
 
             long processingTime = System.currentTimeMillis() - startTime;
-            log.info("RAPTOR processing completed in {}ms with {} levels", processingTime, results.size());
+            log.info("RAPTOR processing completed in {}ms with {} levels",
+                    processingTime, result.getLevelResults().size());
 
-            return new RaptorResult(results, allTexts);
+            return result;
 
+        } catch (JobAlreadyRunningException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error during RAPTOR processing: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to process text: " + e.getMessage(), e);
         }
     }
 
+    private List<String> split(String text, int chunkSize) {
+        log.debug("Splitting text into chunks...");
+        List<String> chunks = observations.observation("raptor.split")
+                .observe(() -> textSplitterService.splitText(text, chunkSize));
+        log.info("Text split into {} chunks", chunks.size());
+        return chunks;
+    }
+
+    private RaptorResult runPipeline(List<String> chunks, int maxLevels, String jobId) {
+        observations.tag("chunks", chunks.size());
+
+        // Duplicates are embedded and summarized once, through their first occurrence
+        DeduplicatedChunks unique = observations.observation("raptor.dedup")
+                .observe(() -> chunkDeduplicator.deduplicate(chunks));
+        observations.tag("chunks.unique", unique.representatives().size());
+
+        // Recursive processing; completed levels wait off-heap when enabled
+        Map<Integer, LevelResult> results;
+        try (JobCheckpoint checkpoint = checkpointStore.open(jobId, chunks);
+             OffHeapLevelStore levelStore = openLevelStore()) {
+            results = useSubtrees(unique.representatives(), checkpoint)
+                    ? processInSubtrees(unique.representatives(), maxLevels, levelStore, checkpoint)
+                    : recursiveProcess(unique.representatives(), 1, maxLevels, levelStore, checkpoint);
+            results.values().forEach(levelStore::restore);
+            checkpoint.complete();
+        }
+        if (unique.removed() > 0 && results.containsKey(1)) {
+            results.put(1, mapToOriginalChunks(results.get(1), unique));
+        }
+
+        // Collect all texts
+        List<String> allTexts = collectAllTexts(chunks, results);
+
+        return new RaptorResult(results, allTexts, deduplicationStats(unique), reductions(results));
+    }
+
+    private static List<LevelReduction> reductions(Map<Integer, LevelResult> results) {
+        return results.values().stream()
+                .sorted(Comparator.comparingInt(LevelResult::getLevel))
+                .map(level -> {
+                    // Pass-through nodes of shallower shards are texts without an embedding row
+                    LevelResult below = results.get(level.getLevel() - 1);
+                    int texts = below != null ? below.getSummaries().size() : level.getEmbeddings().size();
+                    int clusters = level.getClusters().size();
+                    return new LevelReduction(level.getLevel(), texts, clusters,
+                            reductionRatio(texts, clusters), !level.getSummaries().isEmpty());
+                })
+                .toList();
+    }
+
+    /**
+     * Share of a level's texts that clustering removed.
+     */
+    private static double reductionRatio(int texts, int clusters) {
+        return texts == 0 ? 0.0 : 1.0 - (double) clusters / texts;
+    }
+
+    /**
+     * Rewrites level-1 ids from positions in the deduplicated list to original chunk
+     * indices: embeddings take their first occurrence, and cluster and summary
+     * {@code textIds} list every original chunk the cluster's texts stand for.
+     */
+    private LevelResult mapToOriginalChunks(LevelResult level, DeduplicatedChunks unique) {
+        List<TextEmbedding> embeddings = level.getEmbeddings().stream()
+                .map(embedding -> new TextEmbedding(
+                        unique.originalIndex(embedding.getId()), embedding.getText(), embedding.getEmbedding()))
+                .toList();
+        List<Cluster> clusters = level.getClusters().stream()
+                .map(cluster -> new Cluster(cluster.getId(), cluster.getTexts(), originalIds(cluster.getTextIds(), unique)))
+                .toList();
+        List<ClusterSummary> summaries = level.getSummaries().stream()
+                .map(summary -> new ClusterSummary(summary.getId(), summary.getLevel(), summary.getSummary(),
+                        originalIds(summary.getTextIds(), unique), summary.getPromptTokens()))
+                .toList();
+        return new LevelResult(level.getLevel(), embeddings, clusters, summaries);
+    }
+
+    private static List<Integer> originalIds(List<Integer> representativeIds, DeduplicatedChunks unique) {
+        return representativeIds.stream()
+                .filter(id -> id >= 0 && id < unique.members().length)
+                .flatMapToInt(id -> IntStream.of(unique.members()[id]))
+                .sorted()
+                .boxed()
+                .toList();
+    }
+
+    private DeduplicationStats deduplicationStats(DeduplicatedChunks unique) {
+        int batchSize = Math.max(1, properties.getProcessing().getEmbeddingBatchSize());
+        int callsSaved = Math.ceilDiv(unique.originalCount(), batchSize)
+                - Math.ceilDiv(unique.representatives().size(), batchSize);
+        return new DeduplicationStats(unique.originalCount(), unique.representatives().size(),
+                unique.exactDuplicates(), unique.nearDuplicates(), callsSaved, unique.tokensSaved());
+    }
+
+    private OffHeapLevelStore openLevelStore() {
+        return properties.getProcessing().isEnableOffHeapStorage()
+                ? OffHeapLevelStore.open(bufferPool)
+                : OffHeapLevelStore.onHeap();
+    }
+
     public RaptorResult processText(String text) {
         return processText(text,
                 properties.getProcessing().getDefaultChunkSize(),
                 properties.getProcessing().getDefaultMaxLevels());
     }
 
-    private Map<Integer, LevelResult> recursiveProcess(List<String> texts, int level, int maxLevels) {
-        Map<Integer, LevelResult> results = new HashMap<>();
+    /**
+     * Subtree mode bounds the size of every clustering problem. A job resumed from a
+     * checkpointed level 1 continues through the regular recursion instead.
+     */
+    private boolean useSubtrees(List<String> chunks, JobCheckpoint checkpoint) {
+        RaptorProperties.Subtrees config = properties.getSubtrees();
+        return config.isEnabled()
+                && chunks.size() > Math.max(config.getMinChunks(), config.getShardChunks())
+                && checkpoint.level(1).isEmpty();
+    }
 
-        log.debug("Processing level {} with {} texts", level, texts.size());
+    /**
+     * Builds the lower levels shard by shard, several shards at a time, merges them into
+     * job-wide levels and clusters the shard roots into the shared upper levels.
+     */
+    private Map<Integer, LevelResult> processInSubtrees(
+            List<String> chunks,
+            int maxLevels,
+            OffHeapLevelStore levelStore,
+            JobCheckpoint checkpoint) {
+        RaptorProperties.Subtrees config = properties.getSubtrees();
+        int shardLevels = Math.max(1, Math.min(config.getShardLevels(), maxLevels));
+
+        // Topic shards need the chunk embeddings first; shards then reuse them for level 1
+        List<TextEmbedding> embeddings;
+        List<int[]> shards;
+        switch (config.getPartitioning()) {
+            case "document" -> {
+                embeddings = null;
+                shards = shardPartitioner.byDocumentOrder(chunks.size(), config.getShardChunks());
+            }
+            case "topic" -> {
+                embeddings = observations.observation("raptor.embed")
+                        .highCardinalityKeyValue("texts", String.valueOf(chunks.size()))
+                        .observe(() -> generateEmbeddings(chunks));
+                shards = observations.observation("raptor.partition")
+                        .observe(() -> shardPartitioner.byTopic(embeddings, config.getShardChunks()));
+            }
+            default -> throw new IllegalArgumentException(
+                    "Unknown subtree partitioning '" + config.getPartitioning() + "', expected document or topic");
+        }
+        observations.tag("shards", shards.size());
+        log.info("Building {} subtrees of up to {} levels over {} chunks", shards.size(), shardLevels, chunks.size());
+
+        Observation parent = observations.current();
+        List<ShardSubtree> subtrees = mapConcurrently(
+                IntStream.range(0, shards.size()).boxed().toList(),
+                config.getParallelism(),
+                shard -> observations.childOf("raptor.shard", parent)
+                        .highCardinalityKeyValue("shard", String.valueOf(shard))
+                        .highCardinalityKeyValue("chunks", String.valueOf(shards.get(shard).length))
+                        .observe(() -> buildSubtree(shards.get(shard), chunks, embeddings, shardLevels, checkpoint)));
 
-        try {
-            LevelResult currentResult = embedClusterSummarize(texts, level);
-            results.put(level, currentResult);
+        Map<Integer, LevelResult> results = new HashMap<>();
+        List<LevelResult> merged = SubtreeMerger.mergeLevels(subtrees);
+        for (LevelResult level : merged) {
+            checkpoint.recordLevel(level);
+            results.put(level.getLevel(), level);
+            log.info("Level {} generated {} clusters across {} subtrees",
+                    level.getLevel(), level.getSummaries().size(), subtrees.size());
+        }
 
-            log.info("Level {} generated {} clusters", level, currentResult.getSummaries().size());
+        List<String> roots = SubtreeMerger.roots(merged);
+        if (merged.size() < maxLevels && roots.size() > 1) {
+            merged.forEach(levelStore::park);
+            results.putAll(recursiveProcess(roots, merged.size() + 1, maxLevels, levelStore, checkpoint));
+        }
+        return results;
+    }
 
-            if (level < maxLevels && currentResult.getSummaries().size() > 1) {
-                List<String> summaries = currentResult.getSummaries().stream()
-                        .map(ClusterSummary::getSummary)
-                        .toList();
+    private ShardSubtree buildSubtree(
+            int[] chunkIndices,
+            List<String> chunks,
+            List<TextEmbedding> chunkEmbeddings,
+            int levels,
+            JobCheckpoint checkpoint) {
+        List<String> shardChunks = IntStream.of(chunkIndices).mapToObj(chunks::get).toList();
+        List<TextEmbedding> embeddings = chunkEmbeddings == null ? null : IntStream.range(0, chunkIndices.length)
+                .mapToObj(i -> new TextEmbedding(i, shardChunks.get(i), chunkEmbeddings.get(chunkIndices[i]).getEmbedding()))
+                .toList();
+        List<String> texts = shardChunks;
+
+        List<LevelResult> subtree = new ArrayList<>(levels);
+        for (int level = 1; level <= levels; level++) {
+            // A failed level fails the job; its finished summaries are checkpointed for the rerun
+            LevelResult result = observeLevel(texts, embeddings, level, checkpoint);
+            if (result.getSummaries().isEmpty()) {
+                // Converged: the shard's root is the level below
+                break;
+            }
+            subtree.add(result);
 
-                results.putAll(recursiveProcess(summaries, level + 1, maxLevels));
+            if (result.getSummaries().size() <= 1) {
+                break;
             }
+            texts = result.getSummaries().stream()
+                    .map(ClusterSummary::getSummary)
+                    .toList();
+            embeddings = null;
+        }
+        return new ShardSubtree(chunkIndices, subtree);
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing level {}: {}", level, e.getMessage(), e);
-            // Create a fallback result for this level
-            LevelResult fallbackResult = createFallbackResult(texts, level);
-            results.put(level, fallbackResult);
+    private Map<Integer, LevelResult> recursiveProcess(
+            List<String> texts,
+            int level,
+            int maxLevels,
+            OffHeapLevelStore levelStore,
+            JobCheckpoint checkpoint) {
+        Map<Integer, LevelResult> results = new HashMap<>();
+
+        log.debug("Processing level {} with {} texts", level, texts.size());
+
+        LevelResult currentResult = checkpoint.level(level).orElse(null);
+        if (currentResult != null) {
+            log.info("Level {} restored from checkpoint", level);
+        } else {
+            currentResult = observeLevel(texts, null, level, checkpoint);
+            checkpoint.recordLevel(currentResult);
+        }
+        results.put(level, currentResult);
+
+        log.info("Level {} generated {} clusters", level, currentResult.getSummaries().size());
+
+        if (level < maxLevels && currentResult.getSummaries().size() > 1) {
+            List<String> summaries = currentResult.getSummaries().stream()
+                    .map(ClusterSummary::getSummary)
+                    .toList();
+
+            levelStore.park(currentResult);
+            results.putAll(recursiveProcess(summaries, level + 1, maxLevels, levelStore, checkpoint));
         }
 
         return results;
     }
 
-    private LevelResult embedClusterSummarize(List<String> texts, int level) {
+    private LevelResult observeLevel(
+            List<String> texts,
+            List<TextEmbedding> embeddings,
+            int level,
+            JobCheckpoint checkpoint) {
+        return observations.observation("raptor.level")
+                .lowCardinalityKeyValue("level", String.valueOf(level))
+                .highCardinalityKeyValue("texts", String.valueOf(texts.size()))
+                .observe(() -> embedClusterSummarize(texts, embeddings, level, checkpoint));
+    }
+
+    /**
+     * Embeds (unless {@code precomputed} already holds the level's embeddings), clusters and
+     * summarizes one level.
+     */
+    private LevelResult embedClusterSummarize(
+            List<String> texts,
+            List<TextEmbedding> precomputed,
+            int level,
+            JobCheckpoint checkpoint) {
         log.debug("Generating embeddings for level {} with {} texts", level, texts.size());
-        List<TextEmbedding> embeddings = generateEmbeddings(texts);
+        List<TextEmbedding> embeddings = precomputed != null
+                ? precomputed
+                : observations.observation("raptor.embed")
+                        .highCardinalityKeyValue("texts", String.valueOf(texts.size()))
+                        .observe(() -> generateEmbeddings(texts));
 
         log.debug("Performing clustering for level {}", level);
-        List<Cluster> clusters = clusteringService.performClustering(embeddings);
+        List<Cluster> clusters = observations.observation("raptor.cluster")
+                .highCardinalityKeyValue("embeddings", String.valueOf(embeddings.size()))
+                .observe(() -> {
+                    List<Cluster> result = clusteringService.performClustering(embeddings, level);
+                    observations.tag("clusters", result.size());
+                    return result;
+                });
+
+        double reductionRatio = reductionRatio(texts.size(), clusters.size());
+        if (level > 1 && reductionRatio < properties.getProcessing().getMinReductionRatio()) {
+            // Another level would cost a summary per cluster for almost no compression
+            log.info("Level {} converged: {} texts -> {} clusters (reduction {}), not summarizing",
+                    level, texts.size(), clusters.size(), String.format("%.2f", reductionRatio));
+            observations.tag("converged", true);
+            return new LevelResult(level, embeddings, clusters, List.of());
+        }
 
         log.debug("Generating summaries for level {} with {} clusters", level, clusters.size());
-        List<ClusterSummary> summaries = generateSummaries(clusters, level);
+        List<ClusterSummary> summaries = observations.observation("raptor.summarize")
+                .highCardinalityKeyValue("clusters", String.valueOf(clusters.size()))
+                .observe(() -> generateSummaries(clusters, level, checkpoint));
 
         return new LevelResult(level, embeddings, clusters, summaries);
     }
@@ -142,15 +442,20 @@ public class RaptorService {
         try {
             log.debug("Generating embeddings for {} texts", texts.size());
 
-            EmbeddingRequest request = new EmbeddingRequest(texts, OllamaOptions.builder().build());
-            EmbeddingResponse response = embeddingModel.call(request);
-
-            List<TextEmbedding> embeddings = IntStream.range(0, texts.size())
-                    .mapToObj(i -> {
-                        float[] vector = response.getResults().get(i).getOutput();
-                        return new TextEmbedding(i, texts.get(i), vector);
-                    })
+            int batchSize = Math.max(1, properties.getProcessing().getEmbeddingBatchSize());
+            List<Integer> offsets = IntStream.iterate(0, start -> start < texts.size(), start -> start + batchSize)
+                    .boxed()
                     .toList();
+            Observation parent = observations.current();
+
+            List<TextEmbedding> embeddings = new ArrayList<>(texts.size());
+            mapConcurrently(offsets, properties.getProcessing().getEmbeddingParallelism(), offset -> {
+                List<String> batch = texts.subList(offset, Math.min(offset + batchSize, texts.size()));
+                return observations.childOf("raptor.embed.batch", parent)
+                        .highCardinalityKeyValue("batch.offset", String.valueOf(offset))
+                        .highCardinalityKeyValue("texts", String.valueOf(batch.size()))
+                        .observe(() -> embedBatch(batch, offset));
+            }).forEach(embeddings::addAll);
 
             log.debug("Successfully generated {} embeddings", embeddings.size());
             return embeddings;
@@ -161,54 +466,112 @@ public class RaptorService {
         }
     }
 
-    private List<ClusterSummary> generateSummaries(List<Cluster> clusters, int level) {
+    private List<TextEmbedding> embedBatch(List<String> batch, int offset) {
+        float[][] vectors = new float[batch.size()][];
+        List<Integer> misses = new ArrayList<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            vectors[i] = embeddingCache.get(batch.get(i));
+            if (vectors[i] == null) {
+                misses.add(i);
+            }
+        }
+        observations.tag("cache.hits", batch.size() - misses.size());
+
+        if (!misses.isEmpty()) {
+            List<String> missingTexts = misses.stream().map(batch::get).toList();
+            EmbeddingRequest request = new EmbeddingRequest(missingTexts, OllamaOptions.builder().build());
+            EmbeddingResponse response = modelCalls.call(ModelOperation.EMBEDDING, () -> embeddingModel.call(request));
+
+            for (int i = 0; i < misses.size(); i++) {
+                float[] vector = response.getResults().get(i).getOutput();
+                vectors[misses.get(i)] = vector;
+                embeddingCache.put(missingTexts.get(i), vector);
+            }
+        }
+
+        List<TextEmbedding> embeddings = IntStream.range(0, batch.size())
+                .mapToObj(i -> new TextEmbedding(offset + i, batch.get(i), vectors[i]))
+                .toList();
+
+        if (!embeddings.isEmpty()) {
+            observations.tag("dimensions", embeddings.get(0).getEmbedding().length);
+        }
+        return embeddings;
+    }
+
+    /**
+     * A summary that still fails after the model-call retries fails the job: a placeholder
+     * would be embedded and clustered into every level above. Summaries finished before the
+     * failure stay checkpointed, so re-running the job only redoes the missing ones.
+     */
+    private List<ClusterSummary> generateSummaries(List<Cluster> clusters, int level, JobCheckpoint checkpoint) {
         log.debug("Generating summaries for {} clusters at level {}", clusters.size(), level);
 
-        PromptTemplate promptTemplate = new PromptTemplate(SUMMARY_TEMPLATE);
+        Observation parent = observations.current();
+
+        return mapConcurrently(clusters, properties.getProcessing().getSummaryParallelism(), cluster -> {
+            ClusterSummary checkpointed = checkpoint.summary(level, cluster).orElse(null);
+            if (checkpointed != null) {
+                log.debug("Summary for cluster {} at level {} restored from checkpoint", cluster.getId(), level);
+                return checkpointed;
+            }
+
+            try {
+                log.debug("Generating summary for cluster {} at level {}", cluster.getId(), level);
+                ClusterSummary summary = observations.childOf("raptor.summarize.cluster", parent)
+                        .highCardinalityKeyValue("cluster.id", String.valueOf(cluster.getId()))
+                        .highCardinalityKeyValue("texts", String.valueOf(cluster.getTexts().size()))
+                        .observe(() -> clusterSummarizer.summarize(cluster, level));
+                checkpoint.recordSummary(level, cluster, summary);
+                return summary;
+
+            } catch (Exception e) {
+                log.error("Error generating summary for cluster {} at level {}: {}",
+                        cluster.getId(), level, e.getMessage(), e);
+                throw new RuntimeException("Failed to summarize cluster " + cluster.getId()
+                        + " at level " + level + ": " + e.getMessage(), e);
+            }
+        });
+    }
 
-        return clusters.stream()
-                .map(cluster -> {
+    /**
+     * Applies {@code task} to every item with at most {@code parallelism} running at once
+     * (on virtual threads, since the work is waiting on model servers); results keep the
+     * input order.
+     */
+    private <T, R> List<R> mapConcurrently(List<T> items, int parallelism, Function<T, R> task) {
+        if (parallelism <= 1 || items.size() <= 1) {
+            return items.stream().map(task).toList();
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
                     try {
-                        String context = String.join("\n--- --- \n --- --- \n", cluster.getTexts());
-                        String prompt = promptTemplate.render(Map.of("context", context));
-
-                        log.debug("Generating summary for cluster {} at level {}", cluster.getId(), level);
-                        String summary = chatModel.call(new Prompt(new UserMessage(prompt)))
-                                .getResult()
-                                .getOutput()
-                                .getText();
-                        
-                        return new ClusterSummary(cluster.getId(), level, summary, cluster.getTextIds());
-                        
-                    } catch (Exception e) {
-                        log.error("Error generating summary for cluster {} at level {}: {}", 
-                                cluster.getId(), level, e.getMessage(), e);
-                        
-                        // Return a fallback summary
-                        String fallbackSummary = "Summary generation failed for this cluster.";
-                        return new ClusterSummary(cluster.getId(), level, fallbackSummary, cluster.getTextIds());
+                        return task.apply(item);
+                    } finally {
+                        permits.release();
                     }
-                })
-                .toList();
-    }
+                }));
+            }
 
-    private LevelResult createFallbackResult(List<String> texts, int level) {
-        log.warn("Creating fallback result for level {} with {} texts", level, texts.size());
-        
-        // Create empty embeddings (will be null or empty arrays)
-        List<TextEmbedding> fallbackEmbeddings = texts.stream()
-                .map(text -> new TextEmbedding(0, text, new float[0]))
-                .toList();
-        
-        // Create a single cluster with all texts
-        List<Cluster> fallbackClusters = List.of(new Cluster(0, texts, 
-                IntStream.range(0, texts.size()).boxed().collect(Collectors.toList())));
-        
-        // Create fallback summaries
-        List<ClusterSummary> fallbackSummaries = List.of(new ClusterSummary(0, level, 
-                "Processing failed for this level.", List.of(0)));
-        
-        return new LevelResult(level, fallbackEmbeddings, fallbackClusters, fallbackSummaries);
+            List<R> results = new ArrayList<>(items.size());
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for model calls", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException(e.getCause());
+        }
     }
 
     private List<String> collectAllTexts(List<String> originalTexts, Map<Integer, LevelResult> results) {
@@ -0,0 +1,53 @@
+package it.raptor_service.service.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import it.raptor_service.config.RaptorProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Per-client request rate limit ({@code raptor.security.max-requests-per-minute}), one
+ * token bucket per client that allows a full minute's worth of requests as a burst.
+ * Idle clients are forgotten after a while.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private static final Duration IDLE_EXPIRY = Duration.ofMinutes(10);
+    private static final long MAX_CLIENTS = 100_000;
+
+    private final boolean enabled;
+    private final int requestsPerMinute;
+    private final Clock clock;
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .expireAfterAccess(IDLE_EXPIRY)
+            .maximumSize(MAX_CLIENTS)
+            .build();
+
+    public ClientRateLimiter(RaptorProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    ClientRateLimiter(RaptorProperties properties, Clock clock) {
+        this.enabled = properties.getSecurity().isEnableRateLimiting();
+        this.requestsPerMinute = properties.getSecurity().getMaxRequestsPerMinute();
+        this.clock = clock;
+        if (enabled && requestsPerMinute < 1) {
+            throw new IllegalArgumentException("raptor.security.max-requests-per-minute must be at least 1");
+        }
+    }
+
+    /**
+     * Returns 0 if the client may make a request now, otherwise the milliseconds to wait.
+     */
+    public long tryAcquire(String clientId) {
+        if (!enabled) {
+            return 0;
+        }
+        return buckets.get(clientId, id -> new TokenBucket(requestsPerMinute, requestsPerMinute / 60.0, clock))
+                .tryConsume();
+    }
+}
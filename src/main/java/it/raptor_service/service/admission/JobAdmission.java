@@ -0,0 +1,333 @@
+package it.raptor_service.service.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides whether and when a processing job may start. A job's cost is its expected chunk
+ * count, estimated from the text length before any splitting. After the per-client rate
+ * limit, jobs run up to {@code maxConcurrentJobs} at a time; large (batch) jobs may only
+ * take {@code maxConcurrentBatchJobs} of those slots, so small interactive jobs are never
+ * stuck behind them. Waiting jobs are queued with interactive ones first, FIFO within a
+ * lane; when the queue is full or the wait times out the job is rejected with a retry hint.
+ */
+@Slf4j
+@Component
+public class JobAdmission {
+
+    private static final double DURATION_SMOOTHING = 0.2;
+
+    private final RaptorProperties.Admission config;
+    private final ClientRateLimiter rateLimiter;
+    private final TokenEstimator tokenEstimator;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dispatched = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+            Comparator.comparing(Waiter::lane).thenComparingLong(Waiter::sequence));
+    private long sequence;
+    private int running;
+    private int runningBatch;
+    private double averageJobMillis;
+
+    public JobAdmission(
+            RaptorProperties properties,
+            ClientRateLimiter rateLimiter,
+            TokenEstimator tokenEstimator,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this(properties, rateLimiter, tokenEstimator,
+                properties.getMonitoring().isEnableMetrics() ? meterRegistry.getIfAvailable() : null);
+    }
+
+    JobAdmission(
+            RaptorProperties properties,
+            ClientRateLimiter rateLimiter,
+            TokenEstimator tokenEstimator,
+            MeterRegistry meterRegistry) {
+        this.config = properties.getAdmission();
+        this.rateLimiter = rateLimiter;
+        this.tokenEstimator = tokenEstimator;
+        this.meterRegistry = meterRegistry;
+
+        if (config.getMaxConcurrentJobs() < 1) {
+            throw new IllegalArgumentException("raptor.admission.max-concurrent-jobs must be at least 1");
+        }
+
+        if (meterRegistry != null) {
+            Gauge.builder("raptor.admission.running", this, JobAdmission::runningJobs)
+                    .description("Jobs currently processing")
+                    .register(meterRegistry);
+            Gauge.builder("raptor.admission.queued", this, JobAdmission::queuedJobs)
+                    .description("Jobs waiting for a processing slot")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Blocks until the job may start and returns a ticket that must be closed when it ends.
+     *
+     * @throws AdmissionRejectedException if the client is over its rate limit, the queue is
+     *                                    full, or no slot freed up within the queue timeout
+     */
+    public Ticket admit(String clientId, String text, int chunkSize) {
+        return admit(clientId, estimateChunks(text, chunkSize));
+    }
+
+    /**
+     * Admission for a job whose chunk count is already known.
+     */
+    public Ticket admit(String clientId, int chunks) {
+        checkRateLimit(clientId);
+        return admit(chunks);
+    }
+
+    /**
+     * Charges the client's rate limit without taking a slot, for requests that must do costly
+     * work, such as extracting an uploaded document, before their chunk count is known.
+     *
+     * @throws AdmissionRejectedException if the client is over its rate limit
+     */
+    public void checkRateLimit(String clientId) {
+        long rateLimitWait = rateLimiter.tryAcquire(clientId);
+        if (rateLimitWait > 0) {
+            reject("rate_limited");
+            throw new AdmissionRejectedException("Rate limit exceeded", toSeconds(rateLimitWait));
+        }
+    }
+
+    /**
+     * Admission for a job whose client already passed {@link #checkRateLimit}.
+     *
+     * @throws AdmissionRejectedException if the queue is full or no slot freed up within
+     *                                    the queue timeout
+     */
+    public Ticket admit(int chunks) {
+        if (!config.isEnabled()) {
+            return new Ticket(JobLane.INTERACTIVE, false);
+        }
+
+        JobLane lane = chunks <= config.getInteractiveMaxChunks() ? JobLane.INTERACTIVE : JobLane.BATCH;
+        long queuedAt = System.nanoTime();
+
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(lane, sequence++);
+            // dispatch() never leaves a startable job queued, so a free slot means nobody
+            // eligible is waiting ahead of this one
+            if (canStart(lane)) {
+                start(lane);
+            } else {
+                if (queue.size() >= config.getMaxQueuedJobs()) {
+                    reject("queue_full");
+                    throw new AdmissionRejectedException("Too many jobs queued", estimatedWaitSeconds());
+                }
+                queue.add(waiter);
+                awaitTurn(waiter);
+            }
+            log.debug("Admitted {} job of ~{} chunks ({} running)", lane.tag(), chunks, running);
+        } finally {
+            lock.unlock();
+        }
+
+        recordWait(lane, queuedAt);
+        return new Ticket(lane, true);
+    }
+
+    public int runningJobs() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queuedJobs() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int estimateChunks(String text, int chunkSize) {
+        int charsPerChunk = Math.max(1, tokenEstimator.getApproxCharSize(chunkSize));
+        return Math.max(1, (text.length() + charsPerChunk - 1) / charsPerChunk);
+    }
+
+    private void awaitTurn(Waiter waiter) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(config.getQueueTimeoutMs());
+        try {
+            while (!waiter.granted) {
+                if (remaining <= 0) {
+                    queue.remove(waiter);
+                    reject("queue_timeout");
+                    throw new AdmissionRejectedException("Timed out waiting for a processing slot", estimatedWaitSeconds());
+                }
+                remaining = dispatched.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (waiter.granted) {
+                finish(waiter.lane);
+            } else {
+                queue.remove(waiter);
+            }
+            throw new IllegalStateException("Interrupted while waiting for a processing slot", e);
+        }
+    }
+
+    /**
+     * Hands free slots to queued jobs in priority order; a batch job that cannot start
+     * does not hold back the jobs behind it.
+     */
+    private void dispatch() {
+        boolean grantedAny = false;
+        for (Waiter waiter : queue.stream().sorted(queue.comparator()).toList()) {
+            if (running >= config.getMaxConcurrentJobs()) {
+                break;
+            }
+            if (canStart(waiter.lane)) {
+                queue.remove(waiter);
+                start(waiter.lane);
+                waiter.granted = true;
+                grantedAny = true;
+            }
+        }
+        if (grantedAny) {
+            dispatched.signalAll();
+        }
+    }
+
+    private boolean canStart(JobLane lane) {
+        if (running >= config.getMaxConcurrentJobs()) {
+            return false;
+        }
+        return lane == JobLane.INTERACTIVE || runningBatch < config.getMaxConcurrentBatchJobs();
+    }
+
+    private void start(JobLane lane) {
+        running++;
+        if (lane == JobLane.BATCH) {
+            runningBatch++;
+        }
+    }
+
+    private void finish(JobLane lane) {
+        running--;
+        if (lane == JobLane.BATCH) {
+            runningBatch--;
+        }
+        dispatch();
+    }
+
+    private void release(JobLane lane, long durationNanos) {
+        lock.lock();
+        try {
+            long millis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            averageJobMillis = averageJobMillis == 0
+                    ? millis
+                    : DURATION_SMOOTHING * millis + (1 - DURATION_SMOOTHING) * averageJobMillis;
+            finish(lane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rough time until a new job would start: the queue ahead of it drained at the
+     * current concurrency, using the smoothed job duration.
+     */
+    private long estimatedWaitSeconds() {
+        double millis = averageJobMillis * (queue.size() + 1) / config.getMaxConcurrentJobs();
+        return toSeconds((long) millis);
+    }
+
+    private static long toSeconds(long millis) {
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    private void reject(String reason) {
+        log.warn("Job rejected: {}", reason);
+        if (meterRegistry != null) {
+            Counter.builder("raptor.admission.rejected")
+                    .tag("reason", reason)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private void recordWait(JobLane lane, long queuedAt) {
+        if (meterRegistry != null) {
+            Timer.builder("raptor.admission.wait")
+                    .tag("lane", lane.tag())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Held for the duration of an admitted job; closing it frees the slot.
+     */
+    public final class Ticket implements AutoCloseable {
+
+        private final JobLane lane;
+        private final boolean counted;
+        private final long startedAt = System.nanoTime();
+        private boolean closed;
+
+        private Ticket(JobLane lane, boolean counted) {
+            this.lane = lane;
+            this.counted = counted;
+        }
+
+        public JobLane lane() {
+            return lane;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (counted) {
+                release(lane, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final JobLane lane;
+        private final long sequence;
+        private boolean granted;
+
+        private Waiter(JobLane lane, long sequence) {
+            this.lane = lane;
+            this.sequence = sequence;
+        }
+
+        JobLane lane() {
+            return lane;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+    }
+}
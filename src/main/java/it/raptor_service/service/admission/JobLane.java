@@ -0,0 +1,20 @@
+package it.raptor_service.service.admission;
+
+/**
+ * Scheduling lane of an admitted job. Interactive jobs are small and always served
+ * before queued batch jobs.
+ */
+public enum JobLane {
+    INTERACTIVE("interactive"),
+    BATCH("batch");
+
+    private final String tag;
+
+    JobLane(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,44 @@
+package it.raptor_service.service.admission;
+
+import java.time.Clock;
+
+/**
+ * Classic token bucket: holds up to {@code capacity} tokens and refills continuously at
+ * {@code refillPerSecond}.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerMilli;
+    private final Clock clock;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(double capacity, double refillPerSecond, Clock clock) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket needs a capacity of at least 1 and a positive refill rate");
+        }
+        this.capacity = capacity;
+        this.refillPerMilli = refillPerSecond / 1000.0;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.refilledAt = clock.millis();
+    }
+
+    /**
+     * Takes one token if available and returns 0; otherwise returns the milliseconds until
+     * the next token arrives.
+     */
+    public synchronized long tryConsume() {
+        long now = clock.millis();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerMilli);
+        refilledAt = now;
+
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) / refillPerMilli);
+    }
+}
@@ -0,0 +1,64 @@
+package it.raptor_service.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import it.raptor_service.config.RaptorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Text to embedding cache, so identical chunks and summaries are not sent to the
+ * embedding model twice. Vectors are kept at full precision, so a hit clusters exactly
+ * like the miss that filled it; the cache is bounded by their byte size.
+ */
+@Slf4j
+@Component
+public class EmbeddingCache {
+
+    private final boolean enabled;
+    private final Cache<String, float[]> cache;
+
+    public EmbeddingCache(RaptorProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = properties.getProcessing().isEnableCaching();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getProcessing().getEmbeddingCacheMaxBytes())
+                .weigher((String text, float[] vector) -> weigh(text, vector))
+                .recordStats()
+                .build();
+
+        if (enabled && properties.getMonitoring().isEnableMetrics()) {
+            meterRegistry.ifAvailable(registry ->
+                    CaffeineCacheMetrics.monitor(registry, cache, "embeddings"));
+        }
+        log.debug("Embedding cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Returns the cached vector for the text, or {@code null} on a miss.
+     */
+    public float[] get(String text) {
+        if (!enabled) {
+            return null;
+        }
+        float[] vector = cache.getIfPresent(text);
+        return vector != null ? vector.clone() : null;
+    }
+
+    public void put(String text, float[] embedding) {
+        if (enabled && embedding != null && embedding.length > 0) {
+            cache.put(text, embedding.clone());
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static int weigh(String text, float[] vector) {
+        long bytes = 40L + (long) text.length() * Character.BYTES + 16L + (long) vector.length * Float.BYTES;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+}
@@ -0,0 +1,34 @@
+package it.raptor_service.service.checkpoint;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+
+import java.util.List;
+
+/**
+ * One line of a job's checkpoint file: either a finished cluster summary or a whole
+ * completed level. Level vectors are stored as base64 little-endian float32 so large
+ * levels stay compact and round-trip exactly.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record CheckpointRecord(
+        Type type,
+        int level,
+        String clusterKey,
+        ClusterSummary summary,
+        List<Integer> embeddingIds,
+        List<String> embeddingTexts,
+        int dimensions,
+        String vectors,
+        List<Cluster> clusters,
+        List<ClusterSummary> summaries) {
+
+    enum Type {
+        SUMMARY, LEVEL
+    }
+
+    static CheckpointRecord summary(int level, String clusterKey, ClusterSummary summary) {
+        return new CheckpointRecord(Type.SUMMARY, level, clusterKey, summary, null, null, 0, null, null, null);
+    }
+}
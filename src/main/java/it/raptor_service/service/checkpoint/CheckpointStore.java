@@ -0,0 +1,73 @@
+package it.raptor_service.service.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.config.RaptorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Opens per-job checkpoint files. A job is identified by the caller's job id and a hash
+ * of its chunks, so re-submitting the same job resumes it while a changed input starts over.
+ */
+@Slf4j
+@Component
+public class CheckpointStore {
+
+    private static final int MAX_JOB_ID_LENGTH = 64;
+
+    private final RaptorProperties.Checkpoint settings;
+    private final ObjectMapper objectMapper;
+
+    public CheckpointStore(RaptorProperties properties, ObjectMapper objectMapper) {
+        this.settings = properties.getCheckpoint();
+        this.objectMapper = objectMapper;
+    }
+
+    public JobCheckpoint open(String jobId, List<String> chunks) {
+        if (!settings.isEnabled()) {
+            return JobCheckpoint.disabled();
+        }
+
+        String inputHash = inputHash(chunks);
+        String name = jobId == null || jobId.isBlank()
+                ? inputHash
+                : sanitize(jobId) + "-" + inputHash;
+        Path file = Path.of(settings.getDirectory()).resolve(name + ".jsonl");
+
+        try {
+            return JobCheckpoint.open(file, objectMapper, !settings.isRetainCompleted());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open checkpoint " + file, e);
+        }
+    }
+
+    static String inputHash(List<String> chunks) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String chunk : chunks) {
+                digest.update(chunk.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sanitize(String jobId) {
+        String safe = jobId.replaceAll("[^A-Za-z0-9_.-]", "_");
+        if (safe.startsWith(".")) {
+            safe = "_" + safe.substring(1);
+        }
+        return safe.length() > MAX_JOB_ID_LENGTH ? safe.substring(0, MAX_JOB_ID_LENGTH) : safe;
+    }
+}
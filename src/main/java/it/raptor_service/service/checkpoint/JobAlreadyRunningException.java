@@ -0,0 +1,11 @@
+package it.raptor_service.service.checkpoint;
+
+/**
+ * Another run of the same job holds its checkpoint; the client should retry once it has finished.
+ */
+public class JobAlreadyRunningException extends RuntimeException {
+
+    public JobAlreadyRunningException(String message) {
+        super(message);
+    }
+}
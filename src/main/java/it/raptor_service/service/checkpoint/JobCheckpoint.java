@@ -0,0 +1,268 @@
+package it.raptor_service.service.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The durable progress of one job: an append-only JSON-lines file, forced to disk after
+ * every record. On open, the records already on disk are indexed; a torn last line from a
+ * crash is cut off before new records are appended. The file is locked while open, so two
+ * runs of the same job, in this or another process, never append to it at once.
+ */
+@Slf4j
+public final class JobCheckpoint implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper;
+    private final boolean deleteWhenCompleted;
+    private final Map<Integer, LevelResult> levels = new HashMap<>();
+    // Looked up without the lock by clusters summarized concurrently, while others record
+    private final Map<String, ClusterSummary> summaries = new ConcurrentHashMap<>();
+    private boolean completed;
+
+    private JobCheckpoint(Path file, FileChannel channel, ObjectMapper objectMapper, boolean deleteWhenCompleted) {
+        this.file = file;
+        this.channel = channel;
+        this.objectMapper = objectMapper;
+        this.deleteWhenCompleted = deleteWhenCompleted;
+    }
+
+    static JobCheckpoint open(Path file, ObjectMapper objectMapper, boolean deleteWhenCompleted) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        if (!tryLock(channel)) {
+            channel.close();
+            throw new JobAlreadyRunningException("Job checkpoint " + file.getFileName() + " is in use by a running job");
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint(file, channel, objectMapper, deleteWhenCompleted);
+        try {
+            checkpoint.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return checkpoint;
+    }
+
+    private static boolean tryLock(FileChannel channel) throws IOException {
+        try {
+            FileLock lock = channel.tryLock();
+            // Released when the channel is closed
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            // Held through another channel in this JVM
+            return false;
+        }
+    }
+
+    /**
+     * A checkpoint that remembers nothing, for when checkpointing is off.
+     */
+    public static JobCheckpoint disabled() {
+        return new JobCheckpoint(null, null, null, false);
+    }
+
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    public Optional<LevelResult> level(int level) {
+        return Optional.ofNullable(levels.get(level));
+    }
+
+    public Optional<ClusterSummary> summary(int level, Cluster cluster) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        ClusterSummary stored = summaries.get(level + ":" + clusterKey(cluster));
+        if (stored == null) {
+            return Optional.empty();
+        }
+        // Same texts, possibly under a different cluster id this time
+        return Optional.of(new ClusterSummary(cluster.getId(), level, stored.getSummary(),
+                cluster.getTextIds(), stored.getPromptTokens()));
+    }
+
+    public synchronized void recordSummary(int level, Cluster cluster, ClusterSummary summary) {
+        if (!isEnabled()) {
+            return;
+        }
+        String key = clusterKey(cluster);
+        summaries.put(level + ":" + key, summary);
+        append(CheckpointRecord.summary(level, key, summary));
+    }
+
+    public synchronized void recordLevel(LevelResult result) {
+        if (!isEnabled()) {
+            return;
+        }
+        append(toRecord(result));
+    }
+
+    /**
+     * Marks the job as finished; {@link #close()} then deletes the file unless configured to keep it.
+     */
+    public void complete() {
+        completed = true;
+    }
+
+    public int restoredLevels() {
+        return levels.size();
+    }
+
+    public int restoredSummaries() {
+        return summaries.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null || !channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.close();
+            if (completed && deleteWhenCompleted) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not close checkpoint {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        int start = 0;
+        long validLength = 0;
+
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            if (i > start && !apply(new String(content, start, i - start, StandardCharsets.UTF_8))) {
+                break;
+            }
+            start = i + 1;
+            validLength = start;
+        }
+
+        if (validLength < content.length) {
+            log.warn("Discarding {} bytes of incomplete checkpoint data in {}", content.length - validLength, file);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+
+        if (!levels.isEmpty() || !summaries.isEmpty()) {
+            log.info("Resuming from checkpoint {}: {} levels, {} cluster summaries",
+                    file.getFileName(), levels.size(), summaries.size());
+        }
+    }
+
+    private boolean apply(String line) {
+        try {
+            CheckpointRecord record = objectMapper.readValue(line, CheckpointRecord.class);
+            switch (record.type()) {
+                case SUMMARY -> summaries.put(record.level() + ":" + record.clusterKey(), record.summary());
+                case LEVEL -> levels.put(record.level(), fromRecord(record));
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable checkpoint record in {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private void append(CheckpointRecord record) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write checkpoint " + file, e);
+        }
+    }
+
+    private static CheckpointRecord toRecord(LevelResult result) {
+        List<TextEmbedding> embeddings = result.getEmbeddings();
+        int dimensions = embeddings.isEmpty() ? 0 : embeddings.get(0).getEmbedding().length;
+        ByteBuffer vectors = ByteBuffer.allocate(embeddings.size() * dimensions * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        List<Integer> ids = new ArrayList<>(embeddings.size());
+        List<String> texts = new ArrayList<>(embeddings.size());
+
+        for (TextEmbedding embedding : embeddings) {
+            ids.add(embedding.getId());
+            texts.add(embedding.getText());
+            vectors.asFloatBuffer().put(embedding.getEmbedding());
+            vectors.position(vectors.position() + dimensions * Float.BYTES);
+        }
+
+        return new CheckpointRecord(CheckpointRecord.Type.LEVEL, result.getLevel(), null, null,
+                ids, texts, dimensions, Base64.getEncoder().encodeToString(vectors.array()),
+                result.getClusters(), result.getSummaries());
+    }
+
+    private static LevelResult fromRecord(CheckpointRecord record) {
+        ByteBuffer vectors = ByteBuffer.wrap(Base64.getDecoder().decode(record.vectors()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        List<TextEmbedding> embeddings = new ArrayList<>(record.embeddingIds().size());
+
+        for (int i = 0; i < record.embeddingIds().size(); i++) {
+            float[] vector = new float[record.dimensions()];
+            vectors.asFloatBuffer().get(vector);
+            vectors.position(vectors.position() + record.dimensions() * Float.BYTES);
+            embeddings.add(new TextEmbedding(record.embeddingIds().get(i), record.embeddingTexts().get(i), vector));
+        }
+
+        return new LevelResult(record.level(), embeddings,
+                new ArrayList<>(record.clusters()), new ArrayList<>(record.summaries()));
+    }
+
+    /**
+     * Identifies a cluster by its texts, so a summary is reused only for the same content.
+     */
+    static String clusterKey(Cluster cluster) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String text : cluster.getTexts()) {
+                digest.update(text.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
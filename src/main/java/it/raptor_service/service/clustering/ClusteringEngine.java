@@ -0,0 +1,17 @@
+package it.raptor_service.service.clustering;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.TextEmbedding;
+
+import java.util.List;
+
+/**
+ * A clustering strategy for one level. {@link ClusteringService} picks the engine per
+ * level by {@link #name()} and handles edge cases and post-processing around it.
+ */
+public interface ClusteringEngine {
+
+    String name();
+
+    List<Cluster> cluster(List<TextEmbedding> embeddings) throws Exception;
+}
@@ -5,8 +5,6 @@ package it.raptor_service.service.clustering;
 import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.Cluster;
 import it.raptor_service.model.TextEmbedding;
-import it.raptor_service.service.clustering.GlobalClusteringService;
-import it.raptor_service.service.clustering.LocalClusteringService;
 import it.raptor_service.service.factory.ClusterFactory;
 import it.raptor_service.service.postprocessing.ClusterPostProcessor;
 import it.raptor_service.service.similarity.SimilarityCalculator;
@@ -15,9 +13,11 @@ import it.raptor_service.service.validator.embedding.EmbeddingValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -27,29 +27,35 @@ public class ClusteringService {
     private final EmbeddingValidator validator;
     private final SimilarityCalculator similarityCalculator;
     private final ClusterFactory clusterFactory;
-    private final GlobalClusteringService globalClusteringService;
-    private final LocalClusteringService localClusteringService;
     private final ClusterPostProcessor postProcessor;
+    private final Map<String, ClusteringEngine> engines;
 
     public ClusteringService(
             RaptorProperties properties,
             EmbeddingValidator validator,
             SimilarityCalculator similarityCalculator,
             ClusterFactory clusterFactory,
-            GlobalClusteringService globalClusteringService,
-            LocalClusteringService localClusteringService,
-            ClusterPostProcessor postProcessor) {
+            ClusterPostProcessor postProcessor,
+            List<ClusteringEngine> engines) {
         this.properties = properties;
         this.validator = validator;
         this.similarityCalculator = similarityCalculator;
         this.clusterFactory = clusterFactory;
-        this.globalClusteringService = globalClusteringService;
-        this.localClusteringService = localClusteringService;
         this.postProcessor = postProcessor;
+        this.engines = engines.stream()
+                .collect(Collectors.toMap(ClusteringEngine::name, Function.identity()));
     }
 
 
     public List<Cluster> performClustering(List<TextEmbedding> embeddings) {
+        return performClustering(embeddings, 0);
+    }
+
+    /**
+     * Clusters one tree level with the engine configured for it
+     * ({@code raptor.clustering.level-engines}, else {@code raptor.clustering.engine}).
+     */
+    public List<Cluster> performClustering(List<TextEmbedding> embeddings, int level) {
         // Validation
         validator.validateClusteringInput(embeddings);
 
@@ -67,13 +73,13 @@ public class ClusteringService {
             return handleTwoEmbeddings(embeddings);
         }
 
+        ClusteringEngine engine = engineFor(level);
+
         try {
-            log.info("Starting hierarchical clustering for {} embeddings", embeddings.size());
+            log.info("Starting {} clustering for {} embeddings", engine.name(), embeddings.size());
 
-            // Hierarchical clustering process
-            var globalClusters = globalClusteringService.performGlobalClustering(embeddings);
-            var allClusters = localClusteringService.performLocalClustering(globalClusters);
-            var finalClusters = postProcessor.postProcessClusters(allClusters);
+            var allClusters = engine.cluster(embeddings);
+            var finalClusters = postProcessor.postProcessClusters(allClusters, embeddings, targetFanIn(level));
 
             log.info("Clustering completed: {} final clusters", finalClusters.size());
             return finalClusters;
@@ -84,6 +90,22 @@ public class ClusteringService {
         }
     }
 
+    private ClusteringEngine engineFor(int level) {
+        RaptorProperties.Clustering config = properties.getClustering();
+        String name = config.getLevelEngines().getOrDefault(level, config.getEngine());
+
+        ClusteringEngine engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown clustering engine '" + name + "', expected one of " + engines.keySet());
+        }
+        return engine;
+    }
+
+    private int targetFanIn(int level) {
+        RaptorProperties.Clustering config = properties.getClustering();
+        return config.getLevelTargetFanIn().getOrDefault(level, config.getTargetFanIn());
+    }
+
     private List<Cluster> handleTwoEmbeddings(List<TextEmbedding> embeddings) {
         double similarity = similarityCalculator.calculateCosineSimilarity(
                 embeddings.get(0).getEmbedding(),
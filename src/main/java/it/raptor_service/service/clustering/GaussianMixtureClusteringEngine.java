@@ -0,0 +1,45 @@
+package it.raptor_service.service.clustering;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.GlobalCluster;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.conversion.EmbeddingMatrix;
+import it.raptor_service.service.conversion.WekaConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * RAPTOR's original two-phase GMM clustering: global EM, then local EM per global cluster,
+ * both over one shared matrix for the level.
+ */
+@Component
+public class GaussianMixtureClusteringEngine implements ClusteringEngine {
+
+    public static final String NAME = "gmm";
+
+    private final GlobalClusteringService globalClusteringService;
+    private final LocalClusteringService localClusteringService;
+    private final WekaConverter wekaConverter;
+
+    public GaussianMixtureClusteringEngine(
+            GlobalClusteringService globalClusteringService,
+            LocalClusteringService localClusteringService,
+            WekaConverter wekaConverter) {
+        this.globalClusteringService = globalClusteringService;
+        this.localClusteringService = localClusteringService;
+        this.wekaConverter = wekaConverter;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<Cluster> cluster(List<TextEmbedding> embeddings) throws Exception {
+        EmbeddingMatrix matrix = wekaConverter.convertToMatrix(embeddings);
+        List<GlobalCluster> globalClusters = globalClusteringService.performGlobalClustering(embeddings, matrix);
+        return localClusteringService.performLocalClustering(globalClusters, matrix);
+    }
+}
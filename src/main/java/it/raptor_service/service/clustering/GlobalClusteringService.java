@@ -4,48 +4,111 @@ package it.raptor_service.service.clustering;
 import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.GlobalCluster;
 import it.raptor_service.model.TextEmbedding;
-import it.raptor_service.service.conversion.WekaConverter;
+import it.raptor_service.service.conversion.EmbeddingMatrix;
 import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.service.observation.RaptorObservations;
 import it.raptor_service.service.optimization.ClusterOptimizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import weka.clusterers.EM;
-import weka.core.Instance;
 import weka.core.Instances;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Slf4j
 @Service
 public class GlobalClusteringService {
 
     private final RaptorProperties properties;
-    private final WekaConverter wekaConverter;
     private final ClusterOptimizer optimizer;
     private final ClusterFactory clusterFactory;
+    private final RaptorObservations observations;
 
     public GlobalClusteringService(
             RaptorProperties properties,
-            WekaConverter wekaConverter,
             ClusterOptimizer optimizer,
-            ClusterFactory clusterFactory) {
+            ClusterFactory clusterFactory,
+            RaptorObservations observations) {
         this.properties = properties;
-        this.wekaConverter = wekaConverter;
         this.optimizer = optimizer;
         this.clusterFactory = clusterFactory;
+        this.observations = observations;
     }
 
-    public List<GlobalCluster> performGlobalClustering(List<TextEmbedding> embeddings) throws Exception {
+    public List<GlobalCluster> performGlobalClustering(
+            List<TextEmbedding> embeddings,
+            EmbeddingMatrix matrix) throws Exception {
         log.debug("Starting global clustering for {} embeddings", embeddings.size());
 
-        Instances data = wekaConverter.convertToWekaInstances(embeddings);
-        EM clusterer = createGlobalClusterer(data);
+        return observations.observation("raptor.cluster.global")
+                .highCardinalityKeyValue("embeddings", String.valueOf(embeddings.size()))
+                .observeChecked(() -> {
+                    observations.tag("dimensions", matrix.dimensions());
+
+                    if (matrix.size() >= properties.getClustering().getMiniBatchThreshold()) {
+                        return performMiniBatchGlobalClustering(embeddings, matrix);
+                    }
 
-        return assignToGlobalClusters(embeddings, data, clusterer);
+                    Instances data = matrix.all();
+                    EM clusterer = createGlobalClusterer(data);
+                    return assignToGlobalClusters(embeddings,
+                            row -> clusterer.distributionForInstance(data.instance(row)));
+                });
+    }
+
+    /**
+     * Large levels: choose k on a sample with full EM, fit the mixture with mini-batch EM,
+     * then assign every row in one streaming pass.
+     */
+    private List<GlobalCluster> performMiniBatchGlobalClustering(
+            List<TextEmbedding> embeddings,
+            EmbeddingMatrix matrix) throws Exception {
+
+        RaptorProperties.Clustering clustering = properties.getClustering();
+        log.debug("Using mini-batch EM for {} embeddings", matrix.size());
+        observations.tag("mode", "mini-batch");
+
+        int[] sample = sampleRows(matrix.size(), clustering.getMiniBatchSampleSize(), clustering.getSeed());
+        int maxClusters = Math.min(clustering.getMaxClusters(), sample.length / 2);
+        int optimalClusters = optimizer.findOptimalClusterCount(matrix.view(sample), maxClusters);
+        observations.tag("k", optimalClusters);
+
+        MiniBatchGaussianMixture mixture = new MiniBatchGaussianMixture(
+                optimalClusters,
+                clustering.getMiniBatchSize(),
+                clustering.getMiniBatchEpochs(),
+                clustering.getSeed()
+        );
+        mixture.fit(matrix.size(), matrix::row);
+
+        log.debug("Built mini-batch global clusterer with {} clusters", optimalClusters);
+        return assignToGlobalClusters(embeddings, row -> mixture.distributionForRow(matrix.row(row)));
+    }
+
+    private static int[] sampleRows(int size, int sampleSize, long seed) {
+        int[] rows = IntStream.range(0, size).toArray();
+        if (sampleSize >= size) {
+            return rows;
+        }
+
+        // Partial Fisher-Yates: the first sampleSize slots become a uniform sample
+        Random random = new Random(seed);
+        for (int i = 0; i < sampleSize; i++) {
+            int swap = i + random.nextInt(size - i);
+            int tmp = rows[i];
+            rows[i] = rows[swap];
+            rows[swap] = tmp;
+        }
+        int[] sample = Arrays.copyOf(rows, sampleSize);
+        Arrays.sort(sample);
+        return sample;
     }
 
     private EM createGlobalClusterer(Instances data) throws Exception {
@@ -62,6 +125,7 @@ public class GlobalClusteringService {
 
         clusterer.setNumClusters(optimalClusters);
         clusterer.buildClusterer(data);
+        observations.tag("k", optimalClusters);
 
         log.debug("Built global clusterer with {} clusters", optimalClusters);
         return clusterer;
@@ -69,32 +133,37 @@ public class GlobalClusteringService {
 
     private List<GlobalCluster> assignToGlobalClusters(
             List<TextEmbedding> embeddings,
-            Instances data,
-            EM clusterer) throws Exception {
+            RowDistribution distribution) throws Exception {
 
-        Map<Integer, List<TextEmbedding>> clusterMap = new HashMap<>();
+        Map<Integer, List<Integer>> clusterMap = new HashMap<>();
         double threshold = properties.getClustering().getClusterThreshold();
 
         for (int i = 0; i < embeddings.size(); i++) {
-            Instance instance = data.instance(i);
-            int clusterAssignment = assignToCluster(instance, clusterer, threshold);
+            int clusterAssignment = assignToCluster(distribution.forRow(i), threshold);
 
             clusterMap.computeIfAbsent(clusterAssignment, k -> new ArrayList<>())
-                    .add(embeddings.get(i));
+                    .add(i);
         }
 
         List<GlobalCluster> globalClusters = clusterMap.entrySet().stream()
                 .filter(entry -> !entry.getValue().isEmpty())
-                .map(entry -> clusterFactory.createGlobalCluster(entry.getKey(), entry.getValue()))
+                .map(entry -> createGlobalCluster(entry.getKey(), entry.getValue(), embeddings))
                 .collect(Collectors.toList());
 
         log.debug("Created {} global clusters", globalClusters.size());
         return globalClusters;
     }
 
-    private int assignToCluster(Instance instance, EM clusterer, double threshold) throws Exception {
-        double[] probabilities = clusterer.distributionForInstance(instance);
+    private GlobalCluster createGlobalCluster(int id, List<Integer> rows, List<TextEmbedding> embeddings) {
+        int[] rowIndices = rows.stream().mapToInt(Integer::intValue).toArray();
+        List<TextEmbedding> members = rows.stream()
+                .map(embeddings::get)
+                .collect(Collectors.toList());
+
+        return clusterFactory.createGlobalCluster(id, members, rowIndices);
+    }
 
+    private int assignToCluster(double[] probabilities, double threshold) {
         // Find cluster with maximum probability
         int bestCluster = 0;
         double maxProb = probabilities[0];
@@ -113,4 +182,9 @@ public class GlobalClusteringService {
 
         return bestCluster;
     }
+
+    @FunctionalInterface
+    private interface RowDistribution {
+        double[] forRow(int row) throws Exception;
+    }
 }
\ No newline at end of file
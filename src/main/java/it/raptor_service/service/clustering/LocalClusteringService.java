@@ -1,12 +1,14 @@
 package it.raptor_service.service.clustering;
 
 
+import io.micrometer.observation.Observation;
 import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.Cluster;
 import it.raptor_service.model.GlobalCluster;
 import it.raptor_service.model.TextEmbedding;
-import it.raptor_service.service.conversion.WekaConverter;
+import it.raptor_service.service.conversion.EmbeddingMatrix;
 import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.service.observation.RaptorObservations;
 import it.raptor_service.service.optimization.ClusterOptimizer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,12 +18,13 @@ import weka.core.Instances;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,111 +32,111 @@ import java.util.stream.Collectors;
 public class LocalClusteringService {
 
     private final RaptorProperties properties;
-    private final WekaConverter wekaConverter;
     private final ClusterOptimizer optimizer;
     private final ClusterFactory clusterFactory;
-    private final ExecutorService executorService;
+    private final RaptorObservations observations;
+    private final ForkJoinPool forkJoinPool;
 
     public LocalClusteringService(
             RaptorProperties properties,
-            WekaConverter wekaConverter,
             ClusterOptimizer optimizer,
-            ClusterFactory clusterFactory) {
+            ClusterFactory clusterFactory,
+            RaptorObservations observations) {
         this.properties = properties;
-        this.wekaConverter = wekaConverter;
         this.optimizer = optimizer;
         this.clusterFactory = clusterFactory;
-        this.executorService = Executors.newFixedThreadPool(
-                Runtime.getRuntime().availableProcessors()
-        );
+        this.observations = observations;
+        this.forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
     }
 
-    public List<Cluster> performLocalClustering(List<GlobalCluster> globalClusters) {
+    /**
+     * Runs local clustering for every global cluster as a fork-join task. Large global
+     * clusters split further inside {@link ClusterOptimizer}, so idle workers steal the
+     * per-k EM fits instead of waiting on the biggest cluster. Cluster ids are assigned
+     * after the join, in global cluster order, so they are dense and deterministic.
+     */
+    public List<Cluster> performLocalClustering(List<GlobalCluster> globalClusters, EmbeddingMatrix matrix) {
         log.debug("Starting local clustering for {} global clusters", globalClusters.size());
 
-        if (globalClusters.size() == 1) {
-            return performSequentialLocalClustering(globalClusters);
-        } else {
-            return performParallelLocalClustering(globalClusters);
-        }
+        Observation parent = observations.current();
+        List<GlobalClusterTask> tasks = globalClusters.stream()
+                .sorted(Comparator.comparingInt(GlobalCluster::getId))
+                .map(globalCluster -> new GlobalClusterTask(globalCluster, matrix, parent))
+                .toList();
+
+        forkJoinPool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        return assignClusterIds(tasks);
     }
 
-    private List<Cluster> performSequentialLocalClustering(List<GlobalCluster> globalClusters) {
+    private List<Cluster> assignClusterIds(List<GlobalClusterTask> tasks) {
         List<Cluster> allClusters = new ArrayList<>();
         int clusterIdCounter = 0;
 
-        for (GlobalCluster globalCluster : globalClusters) {
-            List<Cluster> localClusters = processGlobalCluster(globalCluster, clusterIdCounter);
-            allClusters.addAll(localClusters);
-            clusterIdCounter += localClusters.size();
+        for (GlobalClusterTask task : tasks) {
+            for (Cluster cluster : task.join()) {
+                cluster.setId(clusterIdCounter++);
+                allClusters.add(cluster);
+            }
         }
 
         return allClusters;
     }
 
-    private List<Cluster> performParallelLocalClustering(List<GlobalCluster> globalClusters) {
-        List<CompletableFuture<List<Cluster>>> futures = new ArrayList<>();
-        int clusterIdCounter = 0;
-
-        for (GlobalCluster globalCluster : globalClusters) {
-            final int startId = clusterIdCounter;
+    private final class GlobalClusterTask extends RecursiveTask<List<Cluster>> {
 
-            CompletableFuture<List<Cluster>> future = CompletableFuture.supplyAsync(() ->
-                    processGlobalCluster(globalCluster, startId), executorService);
+        private final GlobalCluster globalCluster;
+        private final EmbeddingMatrix matrix;
+        private final Observation parent;
 
-            futures.add(future);
-            clusterIdCounter += estimateClusterCount(globalCluster);
+        private GlobalClusterTask(GlobalCluster globalCluster, EmbeddingMatrix matrix, Observation parent) {
+            this.globalCluster = globalCluster;
+            this.matrix = matrix;
+            this.parent = parent;
         }
 
-        return collectResults(futures);
-    }
-
-    private int estimateClusterCount(GlobalCluster globalCluster) {
-        return Math.max(1, globalCluster.getEmbeddings().size() / 10);
-    }
-
-    private List<Cluster> collectResults(List<CompletableFuture<List<Cluster>>> futures) {
-        List<Cluster> allClusters = new ArrayList<>();
-
-        for (CompletableFuture<List<Cluster>> future : futures) {
-            try {
-                allClusters.addAll(future.get());
-            } catch (Exception e) {
-                log.warn("Local clustering task failed", e);
-            }
+        @Override
+        protected List<Cluster> compute() {
+            return observations.childOf("raptor.cluster.local", parent)
+                    .highCardinalityKeyValue("global.cluster.id", String.valueOf(globalCluster.getId()))
+                    .highCardinalityKeyValue("embeddings", String.valueOf(globalCluster.getEmbeddings().size()))
+                    .observe(() -> processGlobalCluster(globalCluster, matrix));
         }
-
-        return allClusters;
     }
 
-    private List<Cluster> processGlobalCluster(GlobalCluster globalCluster, int startId) {
+    private List<Cluster> processGlobalCluster(GlobalCluster globalCluster, EmbeddingMatrix matrix) {
         List<TextEmbedding> embeddings = globalCluster.getEmbeddings();
 
         if (embeddings.size() <= 3) {
             return Collections.singletonList(
-                    clusterFactory.createCluster(startId, embeddings)
+                    clusterFactory.createCluster(0, embeddings)
             );
         }
 
         try {
-            return performActualLocalClustering(embeddings, startId);
+            return performActualLocalClustering(globalCluster, matrix);
         } catch (Exception e) {
             log.debug("Local clustering failed for {} embeddings: {}",
                     embeddings.size(), e.getMessage());
             return Collections.singletonList(
-                    clusterFactory.createCluster(startId, embeddings)
+                    clusterFactory.createCluster(0, embeddings)
             );
         }
     }
 
     private List<Cluster> performActualLocalClustering(
-            List<TextEmbedding> embeddings,
-            int startId) throws Exception {
+            GlobalCluster globalCluster,
+            EmbeddingMatrix matrix) throws Exception {
 
-        Instances data = wekaConverter.convertToWekaInstances(embeddings);
+        Instances data = matrix.view(globalCluster.getRowIndices());
         EM clusterer = createLocalClusterer(data);
 
-        return createLocalClusters(embeddings, data, clusterer, startId);
+        return createLocalClusters(globalCluster.getEmbeddings(), data, clusterer);
     }
 
     private EM createLocalClusterer(Instances data) throws Exception {
@@ -149,6 +152,7 @@ public class LocalClusteringService {
         int optimalClusters = optimizer.findOptimalClusterCount(data, maxLocalClusters);
         clusterer.setNumClusters(optimalClusters);
         clusterer.buildClusterer(data);
+        observations.tag("k", optimalClusters);
 
         return clusterer;
     }
@@ -156,10 +160,9 @@ public class LocalClusteringService {
     private List<Cluster> createLocalClusters(
             List<TextEmbedding> embeddings,
             Instances data,
-            EM clusterer,
-            int startId) throws Exception {
+            EM clusterer) throws Exception {
 
-        Map<Integer, List<TextEmbedding>> localClusterMap = new HashMap<>();
+        Map<Integer, List<TextEmbedding>> localClusterMap = new TreeMap<>();
 
         for (int i = 0; i < embeddings.size(); i++) {
             Instance instance = data.instance(i);
@@ -172,15 +175,15 @@ public class LocalClusteringService {
         return localClusterMap.entrySet().stream()
                 .filter(entry -> !entry.getValue().isEmpty())
                 .map(entry -> clusterFactory.createCluster(
-                        startId + entry.getKey(),
+                        entry.getKey(),
                         entry.getValue()
                 ))
                 .collect(Collectors.toList());
     }
 
     public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
+        if (forkJoinPool != null && !forkJoinPool.isShutdown()) {
+            forkJoinPool.shutdown();
         }
     }
 }
\ No newline at end of file
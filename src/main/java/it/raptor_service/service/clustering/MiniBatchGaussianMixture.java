@@ -0,0 +1,373 @@
+package it.raptor_service.service.clustering;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Diagonal-covariance Gaussian mixture fitted with stepwise (mini-batch) EM.
+ * <p>
+ * Each step runs the E-step on a small batch of rows and blends the batch
+ * sufficient statistics into running averages with a decaying step size,
+ * so a fit touches {@code epochs * size} rows instead of {@code iterations * size}
+ * and never holds more than one batch of responsibilities. Assignment is a
+ * separate single pass via {@link #distributionForRow(double[])}.
+ */
+@Slf4j
+public class MiniBatchGaussianMixture {
+
+    private static final double STEP_DECAY = 0.6;
+    private static final double MIN_VARIANCE = 1e-6;
+    private static final double LOG_2PI = Math.log(2 * Math.PI);
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int KMEANS_RESTARTS = 5;
+
+    private final int numClusters;
+    private final int batchSize;
+    private final int epochs;
+    private final long seed;
+
+    private double[] weights;
+    private double[][] means;
+    private double[][] variances;
+
+    public MiniBatchGaussianMixture(int numClusters, int batchSize, int epochs, long seed) {
+        if (numClusters < 1) {
+            throw new IllegalArgumentException("Number of clusters must be at least 1");
+        }
+        this.numClusters = numClusters;
+        this.batchSize = Math.max(1, batchSize);
+        this.epochs = Math.max(1, epochs);
+        this.seed = seed;
+    }
+
+    public void fit(int size, IntFunction<double[]> rows) {
+        if (size < numClusters) {
+            throw new IllegalArgumentException("Need at least " + numClusters + " rows, got " + size);
+        }
+
+        int dimensions = rows.apply(0).length;
+        Random random = new Random(seed);
+        initialize(size, rows, dimensions, random);
+
+        // Running sufficient statistics, seeded from the initial parameters
+        double[] s0 = weights.clone();
+        double[][] s1 = new double[numClusters][dimensions];
+        double[][] s2 = new double[numClusters][dimensions];
+        for (int j = 0; j < numClusters; j++) {
+            for (int d = 0; d < dimensions; d++) {
+                s1[j][d] = weights[j] * means[j][d];
+                s2[j][d] = weights[j] * (variances[j][d] + means[j][d] * means[j][d]);
+            }
+        }
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        double[] responsibilities = new double[numClusters];
+        double[] b0 = new double[numClusters];
+        double[][] b1 = new double[numClusters][dimensions];
+        double[][] b2 = new double[numClusters][dimensions];
+        long step = 0;
+
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            shuffle(order, random);
+
+            for (int start = 0; start < size; start += batchSize) {
+                int end = Math.min(size, start + batchSize);
+                clear(b0, b1, b2);
+
+                for (int i = start; i < end; i++) {
+                    double[] row = rows.apply(order[i]);
+                    posterior(row, responsibilities);
+
+                    for (int j = 0; j < numClusters; j++) {
+                        double r = responsibilities[j];
+                        if (r == 0.0) {
+                            continue;
+                        }
+                        b0[j] += r;
+                        for (int d = 0; d < dimensions; d++) {
+                            double x = row[d];
+                            b1[j][d] += r * x;
+                            b2[j][d] += r * x * x;
+                        }
+                    }
+                }
+
+                double batchWeight = end - start;
+                double eta = Math.pow(step + 2, -STEP_DECAY);
+                step++;
+
+                for (int j = 0; j < numClusters; j++) {
+                    s0[j] = (1 - eta) * s0[j] + eta * b0[j] / batchWeight;
+                    for (int d = 0; d < dimensions; d++) {
+                        s1[j][d] = (1 - eta) * s1[j][d] + eta * b1[j][d] / batchWeight;
+                        s2[j][d] = (1 - eta) * s2[j][d] + eta * b2[j][d] / batchWeight;
+                    }
+                }
+                maximize(s0, s1, s2);
+            }
+        }
+
+        log.debug("Mini-batch EM fitted {} clusters on {} rows in {} steps", numClusters, size, step);
+    }
+
+    /**
+     * Posterior cluster probabilities for one row, in the same shape as Weka's
+     * {@code distributionForInstance}.
+     */
+    public double[] distributionForRow(double[] row) {
+        double[] result = new double[numClusters];
+        posterior(row, result);
+        return result;
+    }
+
+    public int getNumClusters() {
+        return numClusters;
+    }
+
+    private void initialize(int size, IntFunction<double[]> rows, int dimensions, Random random) {
+        // Global mean and variance, used as the starting variance of every component
+        double[] globalMean = new double[dimensions];
+        double[] globalVariance = new double[dimensions];
+        int sample = Math.min(size, Math.max(batchSize, numClusters * 50));
+        int[] sampleRows = new int[sample];
+        for (int i = 0; i < sample; i++) {
+            sampleRows[i] = sample == size ? i : random.nextInt(size);
+            double[] row = rows.apply(sampleRows[i]);
+            for (int d = 0; d < dimensions; d++) {
+                globalMean[d] += row[d] / sample;
+            }
+        }
+        for (int i = 0; i < sample; i++) {
+            double[] row = rows.apply(sampleRows[i]);
+            for (int d = 0; d < dimensions; d++) {
+                double diff = row[d] - globalMean[d];
+                globalVariance[d] += diff * diff / sample;
+            }
+        }
+
+        // Best of a few k-means++ / Lloyd runs on the sample
+        double bestInertia = Double.POSITIVE_INFINITY;
+        double[][] bestMeans = null;
+        int[] bestAssignment = null;
+
+        for (int restart = 0; restart < KMEANS_RESTARTS; restart++) {
+            means = seedMeans(sampleRows, rows, random);
+            int[] assignment = runLloyd(sampleRows, rows, dimensions);
+
+            double inertia = 0.0;
+            for (int i = 0; i < sampleRows.length; i++) {
+                inertia += squaredDistance(rows.apply(sampleRows[i]), means[assignment[i]]);
+            }
+            if (inertia < bestInertia) {
+                bestInertia = inertia;
+                bestMeans = means;
+                bestAssignment = assignment;
+            }
+        }
+
+        means = bestMeans;
+        estimateFromAssignment(sampleRows, rows, bestAssignment, dimensions, globalVariance);
+    }
+
+    private double[][] seedMeans(int[] sampleRows, IntFunction<double[]> rows, Random random) {
+        int sample = sampleRows.length;
+        double[][] seeds = new double[numClusters][];
+        double[] distances = new double[sample];
+        seeds[0] = rows.apply(sampleRows[random.nextInt(sample)]).clone();
+
+        for (int j = 1; j < numClusters; j++) {
+            double total = 0.0;
+            for (int i = 0; i < sample; i++) {
+                double[] row = rows.apply(sampleRows[i]);
+                double nearest = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < j; c++) {
+                    nearest = Math.min(nearest, squaredDistance(row, seeds[c]));
+                }
+                distances[i] = nearest;
+                total += nearest;
+            }
+
+            int chosen = random.nextInt(sample);
+            if (total > 0) {
+                double target = random.nextDouble() * total;
+                for (int i = 0; i < sample; i++) {
+                    target -= distances[i];
+                    if (target <= 0) {
+                        chosen = i;
+                        break;
+                    }
+                }
+            }
+            seeds[j] = rows.apply(sampleRows[chosen]).clone();
+        }
+        return seeds;
+    }
+
+    private int[] runLloyd(int[] sampleRows, IntFunction<double[]> rows, int dimensions) {
+        int[] assignment = new int[sampleRows.length];
+        int[] counts = new int[numClusters];
+
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < sampleRows.length; i++) {
+                int nearest = nearestMean(rows.apply(sampleRows[i]));
+                if (nearest != assignment[i]) {
+                    assignment[i] = nearest;
+                    changed = true;
+                }
+            }
+            if (!changed && iteration > 0) {
+                break;
+            }
+
+            double[][] sums = new double[numClusters][dimensions];
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < sampleRows.length; i++) {
+                double[] row = rows.apply(sampleRows[i]);
+                counts[assignment[i]]++;
+                for (int d = 0; d < dimensions; d++) {
+                    sums[assignment[i]][d] += row[d];
+                }
+            }
+            for (int j = 0; j < numClusters; j++) {
+                if (counts[j] == 0) {
+                    continue;
+                }
+                for (int d = 0; d < dimensions; d++) {
+                    means[j][d] = sums[j][d] / counts[j];
+                }
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Per-component weights and variances from the k-means hard assignment
+     * (the same kind of start Weka's EM gets from SimpleKMeans).
+     */
+    private void estimateFromAssignment(
+            int[] sampleRows,
+            IntFunction<double[]> rows,
+            int[] assignment,
+            int dimensions,
+            double[] globalVariance) {
+        int[] counts = new int[numClusters];
+        weights = new double[numClusters];
+        variances = new double[numClusters][dimensions];
+
+        for (int i = 0; i < sampleRows.length; i++) {
+            double[] row = rows.apply(sampleRows[i]);
+            int j = assignment[i];
+            counts[j]++;
+            for (int d = 0; d < dimensions; d++) {
+                double diff = row[d] - means[j][d];
+                variances[j][d] += diff * diff;
+            }
+        }
+
+        for (int j = 0; j < numClusters; j++) {
+            // Smoothed so empty or singleton components still get a usable start
+            weights[j] = (counts[j] + 1.0) / (sampleRows.length + numClusters);
+            for (int d = 0; d < dimensions; d++) {
+                double variance = counts[j] > 1 ? variances[j][d] / counts[j] : globalVariance[d];
+                variances[j][d] = Math.max(MIN_VARIANCE, variance);
+            }
+        }
+    }
+
+    private int nearestMean(double[] row) {
+        int nearest = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < numClusters; j++) {
+            double distance = squaredDistance(row, means[j]);
+            if (distance < best) {
+                best = distance;
+                nearest = j;
+            }
+        }
+        return nearest;
+    }
+
+    private void maximize(double[] s0, double[][] s1, double[][] s2) {
+        double total = 0.0;
+        for (double value : s0) {
+            total += value;
+        }
+
+        for (int j = 0; j < numClusters; j++) {
+            // A starved component keeps its previous parameters
+            if (s0[j] <= 1e-12) {
+                weights[j] = 0.0;
+                continue;
+            }
+            weights[j] = s0[j] / total;
+            for (int d = 0; d < means[j].length; d++) {
+                double mean = s1[j][d] / s0[j];
+                means[j][d] = mean;
+                variances[j][d] = Math.max(MIN_VARIANCE, s2[j][d] / s0[j] - mean * mean);
+            }
+        }
+    }
+
+    private void posterior(double[] row, double[] out) {
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int j = 0; j < numClusters; j++) {
+            if (weights[j] <= 0.0) {
+                out[j] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            double logDensity = Math.log(weights[j]);
+            double[] mean = means[j];
+            double[] variance = variances[j];
+            for (int d = 0; d < row.length; d++) {
+                double diff = row[d] - mean[d];
+                logDensity -= 0.5 * (LOG_2PI + Math.log(variance[d]) + diff * diff / variance[d]);
+            }
+            out[j] = logDensity;
+            max = Math.max(max, logDensity);
+        }
+
+        double sum = 0.0;
+        for (int j = 0; j < numClusters; j++) {
+            out[j] = Math.exp(out[j] - max);
+            sum += out[j];
+        }
+        for (int j = 0; j < numClusters; j++) {
+            out[j] /= sum;
+        }
+    }
+
+    private static void clear(double[] b0, double[][] b1, double[][] b2) {
+        Arrays.fill(b0, 0.0);
+        for (int j = 0; j < b1.length; j++) {
+            Arrays.fill(b1[j], 0.0);
+            Arrays.fill(b2[j], 0.0);
+        }
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[swap];
+            values[swap] = tmp;
+        }
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int d = 0; d < a.length; d++) {
+            double diff = a[d] - b[d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,74 @@
+package it.raptor_service.service.clustering.graph;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.clustering.ClusteringEngine;
+import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.service.observation.RaptorObservations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clusters a level as communities of its sparse cosine kNN graph. Unlike the GMM engine
+ * it fits no density over the raw dimensions, so it stays stable on small levels and
+ * scales with the number of edges rather than {@code points * dimensions * k}.
+ */
+@Slf4j
+@Component
+public class GraphClusteringEngine implements ClusteringEngine {
+
+    public static final String NAME = "graph";
+
+    private final RaptorProperties properties;
+    private final KnnGraphBuilder graphBuilder;
+    private final ClusterFactory clusterFactory;
+    private final RaptorObservations observations;
+
+    public GraphClusteringEngine(
+            RaptorProperties properties,
+            KnnGraphBuilder graphBuilder,
+            ClusterFactory clusterFactory,
+            RaptorObservations observations) {
+        this.properties = properties;
+        this.graphBuilder = graphBuilder;
+        this.clusterFactory = clusterFactory;
+        this.observations = observations;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<Cluster> cluster(List<TextEmbedding> embeddings) {
+        KnnGraph graph = graphBuilder.build(embeddings);
+
+        LouvainCommunityDetector detector =
+                new LouvainCommunityDetector(properties.getClustering().getGraphResolution());
+        int[] communities = detector.detect(graph);
+
+        List<List<TextEmbedding>> members = new ArrayList<>();
+        for (int row = 0; row < communities.length; row++) {
+            if (communities[row] == members.size()) {
+                members.add(new ArrayList<>());
+            }
+            members.get(communities[row]).add(embeddings.get(row));
+        }
+
+        List<Cluster> clusters = new ArrayList<>(members.size());
+        for (int id = 0; id < members.size(); id++) {
+            clusters.add(clusterFactory.createCluster(id, members.get(id)));
+        }
+
+        observations.tag("edges", graph.edgeCount());
+        observations.tag("communities", clusters.size());
+        log.info("Graph clustering: {} embeddings -> {} communities ({} edges)",
+                embeddings.size(), clusters.size(), graph.edgeCount());
+        return clusters;
+    }
+}
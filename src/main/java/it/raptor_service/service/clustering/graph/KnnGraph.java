@@ -0,0 +1,101 @@
+package it.raptor_service.service.clustering.graph;
+
+import java.util.Arrays;
+
+/**
+ * Undirected weighted graph in compressed sparse row form. Row {@code i} holds the
+ * neighbours {@code targets[offsets[i] .. offsets[i + 1])} with matching {@code weights}.
+ */
+public final class KnnGraph {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+
+    KnnGraph(int[] offsets, int[] targets, float[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Builds the undirected graph from directed kNN lists: an edge exists if either end
+     * lists the other, and duplicate edges are collapsed.
+     */
+    static KnnGraph symmetrize(int[][] neighbors, float[][] similarities) {
+        int nodes = neighbors.length;
+        int[] degree = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            for (int j : neighbors[i]) {
+                degree[i]++;
+                degree[j]++;
+            }
+        }
+
+        long[][] rows = new long[nodes][];
+        int[] fill = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            rows[i] = new long[degree[i]];
+        }
+        for (int i = 0; i < nodes; i++) {
+            for (int e = 0; e < neighbors[i].length; e++) {
+                int j = neighbors[i][e];
+                int bits = Float.floatToIntBits(similarities[i][e]);
+                rows[i][fill[i]++] = pack(j, bits);
+                rows[j][fill[j]++] = pack(i, bits);
+            }
+        }
+
+        int[] offsets = new int[nodes + 1];
+        int[] targets = new int[Arrays.stream(degree).sum()];
+        float[] weights = new float[targets.length];
+        int edge = 0;
+        for (int i = 0; i < nodes; i++) {
+            long[] row = rows[i];
+            Arrays.sort(row);
+            int previous = -1;
+            for (long packed : row) {
+                int target = (int) (packed >>> 32);
+                if (target == previous) {
+                    continue;
+                }
+                targets[edge] = target;
+                weights[edge] = Float.intBitsToFloat((int) packed);
+                edge++;
+                previous = target;
+            }
+            offsets[i + 1] = edge;
+            rows[i] = null;
+        }
+
+        return new KnnGraph(offsets, Arrays.copyOf(targets, edge), Arrays.copyOf(weights, edge));
+    }
+
+    private static long pack(int target, int weightBits) {
+        return ((long) target << 32) | (weightBits & 0xffffffffL);
+    }
+
+    public int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    public int edgeCount() {
+        return targets.length / 2;
+    }
+
+    int rowStart(int node) {
+        return offsets[node];
+    }
+
+    int rowEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    int target(int edge) {
+        return targets[edge];
+    }
+
+    float weight(int edge) {
+        return weights[edge];
+    }
+}
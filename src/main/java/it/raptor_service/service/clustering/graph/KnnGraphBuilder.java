@@ -0,0 +1,246 @@
+package it.raptor_service.service.clustering.graph;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a sparse cosine kNN graph over a level's embeddings.
+ * <p>
+ * Small levels are searched exactly (one-vs-all dot products per row). Above
+ * {@code graphExactSearchMaxPoints} candidates come from random-hyperplane LSH: each
+ * table sorts the points by their sign signature, and a point is compared only with the
+ * window of points around it in every table's order (its own bucket first, then buckets
+ * sharing the high signature bits). Rows are processed in parallel.
+ */
+@Slf4j
+@Component
+public class KnnGraphBuilder {
+
+    private final RaptorProperties properties;
+    private final SimilarityCalculator similarityCalculator;
+
+    public KnnGraphBuilder(RaptorProperties properties, SimilarityCalculator similarityCalculator) {
+        this.properties = properties;
+        this.similarityCalculator = similarityCalculator;
+    }
+
+    public KnnGraph build(List<TextEmbedding> embeddings) {
+        RaptorProperties.Clustering config = properties.getClustering();
+        int size = embeddings.size();
+        int k = Math.min(Math.max(1, config.getGraphNeighbors()), size - 1);
+
+        float[][] vectors = new float[size][];
+        IntStream.range(0, size).parallel()
+                .forEach(i -> vectors[i] = similarityCalculator.normalize(embeddings.get(i).getEmbedding()));
+
+        int[][] neighbors = new int[size][];
+        float[][] similarities = new float[size][];
+        long start = System.nanoTime();
+
+        if (size <= config.getGraphExactSearchMaxPoints()) {
+            searchExact(vectors, k, neighbors, similarities);
+        } else {
+            searchHashed(vectors, k, neighbors, similarities, config);
+        }
+
+        KnnGraph graph = KnnGraph.symmetrize(neighbors, similarities);
+        log.debug("kNN graph: {} nodes, {} edges, k={} in {} ms",
+                graph.nodeCount(), graph.edgeCount(), k, (System.nanoTime() - start) / 1_000_000);
+        return graph;
+    }
+
+    private void searchExact(float[][] vectors, int k, int[][] neighbors, float[][] similarities) {
+        int size = vectors.length;
+        ThreadLocal<float[]> scratch = ThreadLocal.withInitial(() -> new float[size]);
+
+        IntStream.range(0, size).parallel().forEach(i -> {
+            float[] scores = scratch.get();
+            similarityCalculator.calculateDotProducts(vectors[i], vectors, scores);
+
+            NeighborHeap heap = new NeighborHeap(k);
+            for (int j = 0; j < size; j++) {
+                if (j != i) {
+                    heap.offer(j, scores[j]);
+                }
+            }
+            heap.drainTo(i, neighbors, similarities);
+        });
+    }
+
+    private void searchHashed(
+            float[][] vectors,
+            int k,
+            int[][] neighbors,
+            float[][] similarities,
+            RaptorProperties.Clustering config) {
+        int size = vectors.length;
+        int tables = Math.max(1, config.getGraphHashTables());
+        int bits = Math.min(30, Math.max(1, config.getGraphHashBits()));
+        int window = Math.max(k, config.getGraphMaxCandidates() / tables) / 2;
+
+        float[][] planes = randomPlanes(tables * bits, vectors[0].length, config.getSeed());
+        int[][] signatures = new int[tables][size];
+        ThreadLocal<float[]> projections = ThreadLocal.withInitial(() -> new float[planes.length]);
+
+        IntStream.range(0, size).parallel().forEach(i -> {
+            float[] projection = projections.get();
+            similarityCalculator.calculateDotProducts(vectors[i], planes, projection);
+            for (int t = 0; t < tables; t++) {
+                int signature = 0;
+                for (int b = 0; b < bits; b++) {
+                    if (projection[t * bits + b] >= 0.0f) {
+                        signature |= 1 << b;
+                    }
+                }
+                signatures[t][i] = signature;
+            }
+        });
+
+        // Per table: points ordered by (signature, index) and each point's position in that order
+        int[][] orders = new int[tables][];
+        int[][] positions = new int[tables][size];
+        IntStream.range(0, tables).parallel().forEach(t -> {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) signatures[t][i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] order = new int[size];
+            for (int p = 0; p < size; p++) {
+                order[p] = (int) keys[p];
+                positions[t][order[p]] = p;
+            }
+            orders[t] = order;
+        });
+
+        // Stamping with i + 1 marks a candidate as seen for row i without clearing between rows
+        ThreadLocal<int[]> seen = ThreadLocal.withInitial(() -> new int[size]);
+
+        IntStream.range(0, size).parallel().forEach(i -> {
+            int[] stamps = seen.get();
+            int stamp = i + 1;
+            stamps[i] = stamp;
+            NeighborHeap heap = new NeighborHeap(k);
+
+            for (int t = 0; t < tables; t++) {
+                int[] order = orders[t];
+                int position = positions[t][i];
+
+                for (int p = Math.max(0, position - window); p <= Math.min(size - 1, position + window); p++) {
+                    int j = order[p];
+                    if (stamps[j] != stamp) {
+                        stamps[j] = stamp;
+                        heap.offer(j, (float) similarityCalculator.calculateDotProduct(vectors[i], vectors[j]));
+                    }
+                }
+            }
+            heap.drainTo(i, neighbors, similarities);
+        });
+    }
+
+    private static float[][] randomPlanes(int count, int dimensions, long seed) {
+        Random random = new Random(seed);
+        float[][] planes = new float[count][dimensions];
+        for (float[] plane : planes) {
+            for (int d = 0; d < dimensions; d++) {
+                plane[d] = (float) random.nextGaussian();
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Bounded min-heap keeping the {@code capacity} most similar neighbours; ties favour
+     * the lower index so the graph does not depend on scan order.
+     */
+    private static final class NeighborHeap {
+
+        private final int[] ids;
+        private final float[] scores;
+        private int size;
+
+        NeighborHeap(int capacity) {
+            this.ids = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        void offer(int id, float score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(ids[0], scores[0], id, score)) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Writes the positive-similarity neighbours of row {@code row}; the heap is spent afterwards.
+         */
+        void drainTo(int row, int[][] neighbors, float[][] similarities) {
+            int kept = 0;
+            for (int e = 0; e < size; e++) {
+                if (scores[e] > 0.0f) {
+                    ids[kept] = ids[e];
+                    scores[kept] = scores[e];
+                    kept++;
+                }
+            }
+            neighbors[row] = Arrays.copyOf(ids, kept);
+            similarities[row] = Arrays.copyOf(scores, kept);
+        }
+
+        // true if (idA, scoreA) ranks below (idB, scoreB)
+        private static boolean worse(int idA, float scoreA, int idB, float scoreB) {
+            return scoreA < scoreB || (scoreA == scoreB && idA > idB);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!worse(ids[index], scores[index], ids[parent], scores[parent])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                int smallest = index;
+                if (left < size && worse(ids[left], scores[left], ids[smallest], scores[smallest])) {
+                    smallest = left;
+                }
+                if (left + 1 < size && worse(ids[left + 1], scores[left + 1], ids[smallest], scores[smallest])) {
+                    smallest = left + 1;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package it.raptor_service.service.clustering.graph;
+
+import java.util.Arrays;
+
+/**
+ * Modularity-based community detection (Louvain): nodes move greedily to the neighbouring
+ * community with the best modularity gain, then each community is collapsed into a node
+ * and the process repeats until nothing moves. Nodes are visited in index order, so the
+ * result is deterministic for a given graph.
+ */
+public final class LouvainCommunityDetector {
+
+    private static final int MAX_LEVELS = 32;
+    private static final int MAX_PASSES = 64;
+    private static final double MIN_GAIN = 1e-12;
+
+    private final double resolution;
+
+    public LouvainCommunityDetector(double resolution) {
+        if (resolution <= 0.0) {
+            throw new IllegalArgumentException("Resolution must be positive");
+        }
+        this.resolution = resolution;
+    }
+
+    /**
+     * Community of every node, numbered densely from 0 in order of first appearance.
+     */
+    public int[] detect(KnnGraph graph) {
+        WeightedGraph current = WeightedGraph.of(graph);
+        int[] membership = new int[graph.nodeCount()];
+        Arrays.setAll(membership, i -> i);
+
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            int[] communities = moveNodes(current);
+            int count = renumber(communities);
+            if (count == current.nodes()) {
+                break;
+            }
+            for (int i = 0; i < membership.length; i++) {
+                membership[i] = communities[membership[i]];
+            }
+            current = current.collapse(communities, count);
+        }
+
+        renumber(membership);
+        return membership;
+    }
+
+    private int[] moveNodes(WeightedGraph graph) {
+        int nodes = graph.nodes();
+        int[] community = new int[nodes];
+        Arrays.setAll(community, i -> i);
+
+        double[] degree = graph.degrees();
+        double totalWeight = Arrays.stream(degree).sum();
+        if (totalWeight == 0.0) {
+            return community;
+        }
+
+        double[] communityDegree = degree.clone();
+        double[] linkWeight = new double[nodes];
+        int[] linked = new int[nodes];
+        Arrays.fill(linkWeight, -1.0);
+
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            int moved = 0;
+
+            for (int node = 0; node < nodes; node++) {
+                int own = community[node];
+                int linkedCount = 0;
+                linkWeight[own] = 0.0;
+                linked[linkedCount++] = own;
+
+                for (int e = graph.offsets[node]; e < graph.offsets[node + 1]; e++) {
+                    int neighbor = graph.targets[e];
+                    if (neighbor == node) {
+                        continue;
+                    }
+                    int c = community[neighbor];
+                    if (linkWeight[c] < 0.0) {
+                        linkWeight[c] = 0.0;
+                        linked[linkedCount++] = c;
+                    }
+                    linkWeight[c] += graph.weights[e];
+                }
+
+                communityDegree[own] -= degree[node];
+                double scale = resolution * degree[node] / totalWeight;
+
+                int best = own;
+                double bestGain = linkWeight[own] - communityDegree[own] * scale;
+                for (int l = 1; l < linkedCount; l++) {
+                    int c = linked[l];
+                    double gain = linkWeight[c] - communityDegree[c] * scale;
+                    if (gain > bestGain + MIN_GAIN) {
+                        best = c;
+                        bestGain = gain;
+                    }
+                }
+
+                communityDegree[best] += degree[node];
+                community[node] = best;
+                if (best != own) {
+                    moved++;
+                }
+
+                for (int l = 0; l < linkedCount; l++) {
+                    linkWeight[linked[l]] = -1.0;
+                }
+            }
+
+            if (moved == 0) {
+                break;
+            }
+        }
+        return community;
+    }
+
+    private static int renumber(int[] values) {
+        int[] mapping = new int[values.length];
+        Arrays.fill(mapping, -1);
+        int next = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (mapping[values[i]] < 0) {
+                mapping[values[i]] = next++;
+            }
+            values[i] = mapping[values[i]];
+        }
+        return next;
+    }
+
+    /**
+     * Working graph for one Louvain level. Self-loops carry the internal weight of a
+     * collapsed community and count once towards the node degree.
+     */
+    private record WeightedGraph(int[] offsets, int[] targets, double[] weights) {
+
+        static WeightedGraph of(KnnGraph graph) {
+            int nodes = graph.nodeCount();
+            int[] offsets = new int[nodes + 1];
+            int edges = nodes == 0 ? 0 : graph.rowEnd(nodes - 1);
+            int[] targets = new int[edges];
+            double[] weights = new double[edges];
+            for (int node = 0; node < nodes; node++) {
+                offsets[node + 1] = graph.rowEnd(node);
+                for (int e = graph.rowStart(node); e < graph.rowEnd(node); e++) {
+                    targets[e] = graph.target(e);
+                    weights[e] = graph.weight(e);
+                }
+            }
+            return new WeightedGraph(offsets, targets, weights);
+        }
+
+        int nodes() {
+            return offsets.length - 1;
+        }
+
+        double[] degrees() {
+            double[] degree = new double[nodes()];
+            for (int node = 0; node < degree.length; node++) {
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    degree[node] += weights[e];
+                }
+            }
+            return degree;
+        }
+
+        WeightedGraph collapse(int[] community, int count) {
+            // Members of each community, contiguous
+            int[] memberStart = new int[count + 1];
+            for (int c : community) {
+                memberStart[c + 1]++;
+            }
+            for (int c = 0; c < count; c++) {
+                memberStart[c + 1] += memberStart[c];
+            }
+            int[] members = new int[community.length];
+            int[] fill = Arrays.copyOf(memberStart, count);
+            for (int node = 0; node < community.length; node++) {
+                members[fill[community[node]]++] = node;
+            }
+
+            int[] newOffsets = new int[count + 1];
+            int[] newTargets = new int[targets.length];
+            double[] newWeights = new double[targets.length];
+            double[] linkWeight = new double[count];
+            int[] linked = new int[count];
+            Arrays.fill(linkWeight, -1.0);
+            int edge = 0;
+
+            for (int c = 0; c < count; c++) {
+                int linkedCount = 0;
+                for (int m = memberStart[c]; m < memberStart[c + 1]; m++) {
+                    int node = members[m];
+                    for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                        int target = community[targets[e]];
+                        if (linkWeight[target] < 0.0) {
+                            linkWeight[target] = 0.0;
+                            linked[linkedCount++] = target;
+                        }
+                        linkWeight[target] += weights[e];
+                    }
+                }
+                Arrays.sort(linked, 0, linkedCount);
+                for (int l = 0; l < linkedCount; l++) {
+                    newTargets[edge] = linked[l];
+                    newWeights[edge] = linkWeight[linked[l]];
+                    linkWeight[linked[l]] = -1.0;
+                    edge++;
+                }
+                newOffsets[c + 1] = edge;
+            }
+
+            return new WeightedGraph(newOffsets, Arrays.copyOf(newTargets, edge), Arrays.copyOf(newWeights, edge));
+        }
+    }
+}
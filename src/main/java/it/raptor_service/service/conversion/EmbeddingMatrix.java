@@ -0,0 +1,74 @@
+package it.raptor_service.service.conversion;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The embeddings of one level, converted to doubles exactly once.
+ * <p>
+ * Weka's {@link DenseInstance} keeps a reference to the value array it is given and
+ * copies it only on write, so every {@link Instances} produced here (the full level
+ * and any row subset) shares the same row arrays instead of re-copying vectors.
+ */
+public final class EmbeddingMatrix {
+
+    private final double[][] rows;
+    private final int dimensions;
+    private final Instances header;
+    private volatile Instances all;
+
+    EmbeddingMatrix(double[][] rows, int dimensions) {
+        this.rows = rows;
+        this.dimensions = dimensions;
+
+        ArrayList<Attribute> attributes = IntStream.range(0, dimensions)
+                .mapToObj(i -> new Attribute("dim_" + i))
+                .collect(Collectors.toCollection(ArrayList::new));
+        this.header = new Instances("embeddings", attributes, 0);
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public double[] row(int index) {
+        return rows[index];
+    }
+
+    /**
+     * All rows, in the original embedding order.
+     */
+    public Instances all() {
+        Instances result = all;
+        if (result == null) {
+            result = view(IntStream.range(0, rows.length).toArray());
+            all = result;
+        }
+        return result;
+    }
+
+    /**
+     * A dataset over the given rows, in the given order, backed by the shared row arrays.
+     */
+    public Instances view(int[] rowIndices) {
+        Instances data = new Instances(header, rowIndices.length);
+        for (int rowIndex : rowIndices) {
+            data.add(new DenseInstance(1.0, rows[rowIndex]));
+        }
+        return data;
+    }
+
+    long estimatedBytes() {
+        // row arrays plus one DenseInstance wrapper per row in the full view
+        return (long) rows.length * ((long) dimensions * Double.BYTES + 64);
+    }
+}
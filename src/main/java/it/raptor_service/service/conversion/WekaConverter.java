@@ -1,84 +1,112 @@
 package it.raptor_service.service.conversion;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.TextEmbedding;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
-import weka.core.Attribute;
-import weka.core.DenseInstance;
-import weka.core.Instance;
-import weka.core.Instances;
 
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Slf4j
 @Component
 public class WekaConverter {
 
-    private final Map<Integer, Instances> instancesCache = new HashMap<>();
-    private static final int MAX_CACHE_SIZE = 100;
+    private final Cache<EmbeddingSetKey, EmbeddingMatrix> matrixCache;
 
-    public Instances convertToWekaInstances(List<TextEmbedding> embeddings) {
-        if (embeddings.isEmpty()) {
-            throw new IllegalArgumentException("Embeddings list cannot be empty");
+    public WekaConverter(RaptorProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.matrixCache = Caffeine.newBuilder()
+                .maximumWeight(properties.getClustering().getInstancesCacheMaxBytes())
+                .weigher((EmbeddingSetKey key, EmbeddingMatrix matrix) -> weigh(matrix))
+                .recordStats()
+                .build();
+
+        if (properties.getMonitoring().isEnableMetrics()) {
+            meterRegistry.ifAvailable(registry ->
+                    CaffeineCacheMetrics.monitor(registry, matrixCache, "weka.instances"));
         }
+    }
 
-        // Create cache key based on embeddings hash
-        int cacheKey = createCacheKey(embeddings);
-        if (instancesCache.containsKey(cacheKey)) {
-            log.debug("Using cached Weka instances for {} embeddings", embeddings.size());
-            return instancesCache.get(cacheKey);
+    /**
+     * Converts a level's embeddings into a shared matrix; global and local clustering
+     * take Weka views over it instead of converting again.
+     */
+    public EmbeddingMatrix convertToMatrix(List<TextEmbedding> embeddings) {
+        if (embeddings.isEmpty()) {
+            throw new IllegalArgumentException("Embeddings list cannot be empty");
         }
 
-        Instances instances = createInstances(embeddings);
-        cacheInstances(cacheKey, instances);
+        EmbeddingSetKey cacheKey = EmbeddingSetKey.of(embeddings);
+        EmbeddingMatrix matrix = matrixCache.get(cacheKey, key -> createMatrix(embeddings));
 
-        return instances;
+        if (log.isDebugEnabled()) {
+            CacheStats stats = matrixCache.stats();
+            log.debug("Embedding matrix for {} embeddings (cache hits {}/{})",
+                    embeddings.size(), stats.hitCount(), stats.requestCount());
+        }
+        return matrix;
     }
 
-    private Instances createInstances(List<TextEmbedding> embeddings) {
+    private EmbeddingMatrix createMatrix(List<TextEmbedding> embeddings) {
         int dimensions = embeddings.get(0).getEmbedding().length;
+        double[][] rows = new double[embeddings.size()][];
 
-        ArrayList<Attribute> attributes = IntStream.range(0, dimensions)
-                .mapToObj(i -> new Attribute("dim_" + i))
-                .collect(Collectors.toCollection(ArrayList::new));
-
-        Instances data = new Instances("embeddings", attributes, embeddings.size());
-
-        for (TextEmbedding embedding : embeddings) {
-            Instance instance = new DenseInstance(dimensions);
-            float[] embeddingArray = embedding.getEmbedding();
+        for (int row = 0; row < rows.length; row++) {
+            float[] embeddingArray = embeddings.get(row).getEmbedding();
+            double[] values = new double[dimensions];
 
             for (int i = 0; i < dimensions; i++) {
-                instance.setValue(i, embeddingArray[i]);
+                values[i] = embeddingArray[i];
             }
-            data.add(instance);
+            rows[row] = values;
         }
 
-        return data;
+        return new EmbeddingMatrix(rows, dimensions);
     }
 
-    private int createCacheKey(List<TextEmbedding> embeddings) {
-        return Objects.hash(
-                embeddings.size(),
-                embeddings.get(0).getEmbedding().length,
-                embeddings.stream().limit(10).mapToInt(Object::hashCode).sum()
-        );
+    private static int weigh(EmbeddingMatrix matrix) {
+        return (int) Math.min(Integer.MAX_VALUE, matrix.estimatedBytes());
     }
 
-    private void cacheInstances(int key, Instances instances) {
-        if (instancesCache.size() >= MAX_CACHE_SIZE) {
-            // Simple LRU: remove oldest entry
-            Integer oldestKey = instancesCache.keySet().iterator().next();
-            instancesCache.remove(oldestKey);
-        }
-        instancesCache.put(key, instances);
+    public CacheStats getCacheStats() {
+        return matrixCache.stats();
     }
 
     public void clearCache() {
-        instancesCache.clear();
-        log.debug("Weka instances cache cleared");
+        matrixCache.invalidateAll();
+        log.debug("Embedding matrix cache cleared");
+    }
+
+    /**
+     * Content-based key: two independent 64-bit hashes over every vector component,
+     * so identical embedding sets hit across requests and collisions are negligible.
+     */
+    record EmbeddingSetKey(int size, int dimensions, long primaryHash, long secondaryHash) {
+
+        static EmbeddingSetKey of(List<TextEmbedding> embeddings) {
+            long primary = 0xcbf29ce484222325L;
+            long secondary = 0x9e3779b97f4a7c15L;
+
+            for (TextEmbedding embedding : embeddings) {
+                for (float value : embedding.getEmbedding()) {
+                    int bits = Float.floatToIntBits(value);
+                    primary = (primary ^ bits) * 0x100000001b3L;
+                    secondary = Long.rotateLeft(secondary + bits * 0xc2b2ae3d27d4eb4fL, 31) * 0x9e3779b97f4a7c15L;
+                }
+            }
+
+            return new EmbeddingSetKey(
+                    embeddings.size(),
+                    embeddings.get(0).getEmbedding().length,
+                    primary,
+                    secondary
+            );
+        }
     }
 }
@@ -0,0 +1,202 @@
+package it.raptor_service.service.dedup;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Collapses exact and near-duplicate chunks (repeated headers, license blocks and the like)
+ * before they are embedded and summarized.
+ * <p>
+ * Exact duplicates are found on whitespace- and case-normalized text. Near duplicates use
+ * MinHash over word shingles with banded LSH: chunks sharing a band bucket with an earlier
+ * representative are compared on their full signatures, and merged when the estimated
+ * Jaccard similarity reaches {@code similarityThreshold}. The first occurrence of every
+ * group is kept, so the output preserves document order.
+ */
+@Slf4j
+@Component
+public class ChunkDeduplicator {
+
+    private static final long HASH_SEED = 0x5DEECE66DL;
+
+    private final RaptorProperties.Deduplication config;
+    private final TokenEstimator tokenEstimator;
+    private final long[] multipliers;
+    private final long[] increments;
+
+    public ChunkDeduplicator(RaptorProperties properties, TokenEstimator tokenEstimator) {
+        this.config = properties.getDeduplication();
+        this.tokenEstimator = tokenEstimator;
+
+        int hashFunctions = config.getHashFunctions();
+        if (hashFunctions < 1 || config.getBands() < 1 || hashFunctions % config.getBands() != 0) {
+            throw new IllegalArgumentException("raptor.deduplication.hash-functions must be a positive multiple of bands");
+        }
+
+        SplittableRandom random = new SplittableRandom(HASH_SEED);
+        this.multipliers = new long[hashFunctions];
+        this.increments = new long[hashFunctions];
+        for (int i = 0; i < hashFunctions; i++) {
+            multipliers[i] = random.nextLong() | 1L;
+            increments[i] = random.nextLong();
+        }
+    }
+
+    public DeduplicatedChunks deduplicate(List<String> chunks) {
+        if (!config.isEnabled() || chunks.size() < 2) {
+            return DeduplicatedChunks.identity(chunks);
+        }
+
+        List<String> normalized = chunks.parallelStream().map(ChunkDeduplicator::normalize).toList();
+        int[][] signatures = IntStream.range(0, chunks.size())
+                .parallel()
+                .mapToObj(i -> signature(normalized.get(i)))
+                .toArray(int[][]::new);
+
+        int bands = config.getBands();
+        int rows = multipliers.length / bands;
+        Map<String, Integer> exact = new HashMap<>();
+        List<Map<Long, List<Integer>>> buckets = new ArrayList<>(bands);
+        for (int b = 0; b < bands; b++) {
+            buckets.add(new HashMap<>());
+        }
+
+        List<Integer> representatives = new ArrayList<>();
+        List<List<Integer>> members = new ArrayList<>();
+        int exactDuplicates = 0;
+        int nearDuplicates = 0;
+        long tokensSaved = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            Integer group = exact.get(normalized.get(i));
+            if (group != null) {
+                exactDuplicates++;
+            } else {
+                group = nearestRepresentative(signatures, i, buckets, rows, representatives);
+                if (group != null) {
+                    nearDuplicates++;
+                }
+            }
+
+            if (group != null) {
+                members.get(group).add(i);
+                tokensSaved += tokenEstimator.estimateTokenCount(chunks.get(i));
+                continue;
+            }
+
+            int newGroup = representatives.size();
+            representatives.add(i);
+            members.add(new ArrayList<>(List.of(i)));
+            exact.put(normalized.get(i), newGroup);
+            for (int b = 0; b < bands; b++) {
+                buckets.get(b).computeIfAbsent(bandKey(signatures[i], b, rows), key -> new ArrayList<>(1)).add(newGroup);
+            }
+        }
+
+        DeduplicatedChunks result = new DeduplicatedChunks(
+                representatives.stream().map(chunks::get).toList(),
+                members.stream().map(group -> group.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new),
+                chunks.size(),
+                exactDuplicates,
+                nearDuplicates,
+                tokensSaved);
+
+        if (result.removed() > 0) {
+            log.info("Deduplication: {} -> {} chunks ({} exact, {} near duplicates, ~{} tokens saved)",
+                    chunks.size(), representatives.size(), exactDuplicates, nearDuplicates, tokensSaved);
+        }
+        return result;
+    }
+
+    private Integer nearestRepresentative(
+            int[][] signatures,
+            int chunk,
+            List<Map<Long, List<Integer>>> buckets,
+            int rows,
+            List<Integer> representatives) {
+        int[] signature = signatures[chunk];
+        Integer best = null;
+        double bestSimilarity = config.getSimilarityThreshold();
+
+        for (int b = 0; b < buckets.size(); b++) {
+            List<Integer> candidates = buckets.get(b).get(bandKey(signature, b, rows));
+            if (candidates == null) {
+                continue;
+            }
+            for (int group : candidates) {
+                double similarity = estimatedJaccard(signature, signatures[representatives.get(group)]);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = group;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * MinHash signature over hashed word shingles; texts shorter than one shingle are
+     * hashed as a whole.
+     */
+    int[] signature(String normalized) {
+        int[] signature = new int[multipliers.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        String[] words = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+        int shingleSize = Math.max(1, config.getShingleWords());
+        int shingles = Math.max(1, words.length - shingleSize + 1);
+
+        for (int s = 0; s < shingles; s++) {
+            long shingle = 0x9E3779B97F4A7C15L;
+            for (int w = s; w < Math.min(words.length, s + shingleSize); w++) {
+                shingle = mix(shingle ^ words[w].hashCode());
+            }
+            for (int h = 0; h < signature.length; h++) {
+                int value = (int) ((multipliers[h] * shingle + increments[h]) >>> 33);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    static double estimatedJaccard(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+
+    private static long bandKey(int[] signature, int band, int rows) {
+        long key = band;
+        for (int r = band * rows; r < (band + 1) * rows; r++) {
+            key = mix(key ^ signature[r]);
+        }
+        return key;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static String normalize(String chunk) {
+        return chunk.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,38 @@
+package it.raptor_service.service.dedup;
+
+import java.util.List;
+
+/**
+ * Chunks after duplicate removal, with the way back to the original chunk list.
+ *
+ * @param representatives one chunk per group of duplicates, in order of first occurrence
+ * @param members         for each representative, the indices of all original chunks it stands for
+ * @param tokensSaved     estimated tokens of the removed chunks
+ */
+public record DeduplicatedChunks(
+        List<String> representatives,
+        int[][] members,
+        int originalCount,
+        int exactDuplicates,
+        int nearDuplicates,
+        long tokensSaved) {
+
+    public int removed() {
+        return originalCount - representatives.size();
+    }
+
+    /**
+     * Original index of the representative's first occurrence.
+     */
+    public int originalIndex(int representative) {
+        return members[representative][0];
+    }
+
+    public static DeduplicatedChunks identity(List<String> chunks) {
+        int[][] members = new int[chunks.size()][];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new int[]{i};
+        }
+        return new DeduplicatedChunks(chunks, members, chunks.size(), 0, 0, 0);
+    }
+}
@@ -0,0 +1,230 @@
+package it.raptor_service.service.embedding;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sentence embeddings from a BERT-style ONNX model run in the JVM on CPU.
+ * <p>
+ * Texts are tokenized, sorted by length and cut into micro-batches so each batch pads to a
+ * similar length; batches run on a fixed pool with one ONNX thread each, which keeps all
+ * cores busy without the intra-op threads of concurrent runs competing. The token vectors
+ * of the first output are pooled ({@code mean} over the attention mask, or {@code cls})
+ * and optionally L2-normalized.
+ */
+@Slf4j
+public class OnnxEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private static final String INPUT_IDS = "input_ids";
+    private static final String ATTENTION_MASK = "attention_mask";
+    private static final String TOKEN_TYPE_IDS = "token_type_ids";
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final WordPieceTokenizer tokenizer;
+    private final ExecutorService executor;
+    private final boolean usesTokenTypes;
+    private final int maxSequenceLength;
+    private final int batchSize;
+    private final boolean meanPooling;
+    private final boolean normalize;
+
+    public OnnxEmbeddingModel(
+            String modelPath,
+            WordPieceTokenizer tokenizer,
+            int maxSequenceLength,
+            int batchSize,
+            int threads,
+            String pooling,
+            boolean normalize) throws OrtException {
+        if (!"mean".equals(pooling) && !"cls".equals(pooling)) {
+            throw new IllegalArgumentException("Unknown pooling '" + pooling + "', expected mean or cls");
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.environment = OrtEnvironment.getEnvironment();
+        try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(1);
+            options.setInterOpNumThreads(1);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            this.session = environment.createSession(modelPath, options);
+        }
+        this.tokenizer = tokenizer;
+        this.usesTokenTypes = session.getInputNames().contains(TOKEN_TYPE_IDS);
+        this.maxSequenceLength = maxSequenceLength;
+        this.batchSize = Math.max(1, batchSize);
+        this.meanPooling = "mean".equals(pooling);
+        this.normalize = normalize;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "onnx-embedding-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Loaded ONNX embedding model {} (inputs {}, {} threads, batch size {})",
+                modelPath, session.getInputNames(), poolSize, this.batchSize);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<String> texts = request.getInstructions();
+        float[][] vectors = embedAll(texts);
+
+        List<Embedding> embeddings = new ArrayList<>(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            embeddings.add(new Embedding(vectors[i], i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embedAll(List.of(document.getText()))[0];
+    }
+
+    private float[][] embedAll(List<String> texts) {
+        int[][] tokenIds = new int[texts.size()][];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = tokenizer.encode(texts.get(i), maxSequenceLength);
+        }
+
+        // Batch texts of similar length together so little of each batch is padding
+        Integer[] order = new Integer[tokenIds.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingInt(i -> tokenIds[i].length));
+
+        float[][] vectors = new float[tokenIds.length][];
+        List<Future<?>> batches = new ArrayList<>();
+        for (int start = 0; start < order.length; start += batchSize) {
+            int[] rows = new int[Math.min(batchSize, order.length - start)];
+            for (int r = 0; r < rows.length; r++) {
+                rows[r] = order[start + r];
+            }
+            batches.add(executor.submit(() -> runBatch(rows, tokenIds, vectors)));
+        }
+
+        try {
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while embedding", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("ONNX embedding failed", e.getCause());
+        }
+        return vectors;
+    }
+
+    private Void runBatch(int[] rows, int[][] tokenIds, float[][] vectors) throws OrtException {
+        int length = 0;
+        for (int row : rows) {
+            length = Math.max(length, tokenIds[row].length);
+        }
+
+        long[][] ids = new long[rows.length][length];
+        long[][] mask = new long[rows.length][length];
+        for (int r = 0; r < rows.length; r++) {
+            int[] tokens = tokenIds[rows[r]];
+            for (int t = 0; t < tokens.length; t++) {
+                ids[r][t] = tokens[t];
+                mask[r][t] = 1;
+            }
+        }
+
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put(INPUT_IDS, OnnxTensor.createTensor(environment, ids));
+            inputs.put(ATTENTION_MASK, OnnxTensor.createTensor(environment, mask));
+            if (usesTokenTypes) {
+                inputs.put(TOKEN_TYPE_IDS, OnnxTensor.createTensor(environment, new long[rows.length][length]));
+            }
+
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][][] hidden = (float[][][]) result.get(0).getValue();
+                for (int r = 0; r < rows.length; r++) {
+                    float[] pooled = meanPooling ? meanPool(hidden[r], mask[r]) : hidden[r][0].clone();
+                    vectors[rows[r]] = normalize ? normalize(pooled) : pooled;
+                }
+            }
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+        return null;
+    }
+
+    /**
+     * Average of the token vectors whose mask is set.
+     */
+    static float[] meanPool(float[][] tokens, long[] mask) {
+        float[] sum = new float[tokens[0].length];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (mask[t] == 0) {
+                continue;
+            }
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] += tokens[t][d];
+            }
+            count++;
+        }
+        if (count > 0) {
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] /= count;
+            }
+        }
+        return sum;
+    }
+
+    static float[] normalize(float[] vector) {
+        double squared = 0.0;
+        for (float value : vector) {
+            squared += value * value;
+        }
+        if (squared > 0.0) {
+            float scale = (float) (1.0 / Math.sqrt(squared));
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        session.close();
+    }
+}
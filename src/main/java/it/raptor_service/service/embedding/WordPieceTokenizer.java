@@ -0,0 +1,168 @@
+package it.raptor_service.service.embedding;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BERT WordPiece tokenizer over a {@code vocab.txt} (one token per line, id = line number),
+ * as used by sentence-transformers models: basic cleanup, optional lower-casing and accent
+ * stripping, punctuation split, then greedy longest-match word pieces.
+ */
+public class WordPieceTokenizer {
+
+    private static final String CLS = "[CLS]";
+    private static final String SEP = "[SEP]";
+    private static final String UNK = "[UNK]";
+    private static final String CONTINUATION = "##";
+    private static final int MAX_WORD_CHARS = 100;
+
+    private final Map<String, Integer> vocabulary;
+    private final boolean lowerCase;
+    private final int clsId;
+    private final int sepId;
+    private final int unkId;
+
+    public WordPieceTokenizer(Map<String, Integer> vocabulary, boolean lowerCase) {
+        this.vocabulary = vocabulary;
+        this.lowerCase = lowerCase;
+        this.clsId = requireToken(CLS);
+        this.sepId = requireToken(SEP);
+        this.unkId = requireToken(UNK);
+    }
+
+    public static WordPieceTokenizer load(Path vocabularyFile, boolean lowerCase) throws IOException {
+        List<String> lines = Files.readAllLines(vocabularyFile, StandardCharsets.UTF_8);
+        Map<String, Integer> vocabulary = new HashMap<>(lines.size() * 2);
+        for (int id = 0; id < lines.size(); id++) {
+            vocabulary.putIfAbsent(lines.get(id).strip(), id);
+        }
+        return new WordPieceTokenizer(vocabulary, lowerCase);
+    }
+
+    /**
+     * Token ids wrapped in {@code [CLS] ... [SEP]}, truncated to {@code maxLength} ids in total.
+     */
+    public int[] encode(String text, int maxLength) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(clsId);
+        int limit = Math.max(2, maxLength) - 1;
+
+        words:
+        for (String word : basicTokens(text)) {
+            for (int id : wordPieces(word)) {
+                if (ids.size() >= limit) {
+                    break words;
+                }
+                ids.add(id);
+            }
+        }
+        ids.add(sepId);
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    List<String> basicTokens(String text) {
+        String cleaned = lowerCase
+                ? stripAccents(text.toLowerCase())
+                : text;
+
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < cleaned.length(); ) {
+            int ch = cleaned.codePointAt(i);
+            i += Character.charCount(ch);
+
+            if (ch == 0 || ch == 0xFFFD || (Character.isISOControl(ch) && !Character.isWhitespace(ch))) {
+                continue;
+            }
+            if (Character.isWhitespace(ch) || Character.isSpaceChar(ch)) {
+                flush(word, tokens);
+            } else if (isPunctuation(ch) || isCjk(ch)) {
+                // Punctuation and CJK characters are tokens of their own
+                flush(word, tokens);
+                tokens.add(new String(Character.toChars(ch)));
+            } else {
+                word.appendCodePoint(ch);
+            }
+        }
+        flush(word, tokens);
+        return tokens;
+    }
+
+    private List<Integer> wordPieces(String word) {
+        if (word.length() > MAX_WORD_CHARS) {
+            return List.of(unkId);
+        }
+
+        List<Integer> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < word.length()) {
+            Integer match = null;
+            int end = word.length();
+            while (end > start) {
+                String piece = start == 0 ? word.substring(start, end) : CONTINUATION + word.substring(start, end);
+                match = vocabulary.get(piece);
+                if (match != null) {
+                    break;
+                }
+                end--;
+            }
+            if (match == null) {
+                return List.of(unkId);
+            }
+            pieces.add(match);
+            start = end;
+        }
+        return pieces;
+    }
+
+    private int requireToken(String token) {
+        Integer id = vocabulary.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("Vocabulary has no " + token + " token");
+        }
+        return id;
+    }
+
+    private static void flush(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static String stripAccents(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char ch = decomposed.charAt(i);
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                result.append(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isPunctuation(int ch) {
+        if ((ch >= 33 && ch <= 47) || (ch >= 58 && ch <= 64) || (ch >= 91 && ch <= 96) || (ch >= 123 && ch <= 126)) {
+            return true;
+        }
+        return switch (Character.getType(ch)) {
+            case Character.CONNECTOR_PUNCTUATION, Character.DASH_PUNCTUATION, Character.START_PUNCTUATION,
+                 Character.END_PUNCTUATION, Character.INITIAL_QUOTE_PUNCTUATION, Character.FINAL_QUOTE_PUNCTUATION,
+                 Character.OTHER_PUNCTUATION -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isCjk(int ch) {
+        return (ch >= 0x4E00 && ch <= 0x9FFF) || (ch >= 0x3400 && ch <= 0x4DBF) || (ch >= 0x20000 && ch <= 0x2A6DF)
+                || (ch >= 0x2A700 && ch <= 0x2CEAF) || (ch >= 0xF900 && ch <= 0xFAFF) || (ch >= 0x2F800 && ch <= 0x2FA1F);
+    }
+}
@@ -0,0 +1,175 @@
+package it.raptor_service.service.extraction;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.SectionedSplit;
+import it.raptor_service.service.splitter.TextSplitterService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Turns uploaded documents into chunks. Text is pulled out with Tika's SAX handlers (or
+ * PDFBox for PDFs) and passed to {@link TextSplitterService} section by section as it is
+ * parsed, so the full document text is never held as one string. The chunk a section ends
+ * in is finished with the next section, and overlap is added across all chunks at the end.
+ * PDFs with more than {@code pdfPagesPerRange} pages are split into page ranges that are
+ * parsed in parallel, each on its own copy of the document since PDFBox documents are not
+ * thread-safe; their sections are split in page order as the ranges complete.
+ */
+@Slf4j
+@Component
+public class DocumentTextExtractor {
+
+    private static final String PDF = "application/pdf";
+
+    private final TextSplitterService textSplitterService;
+    private final RaptorProperties.Processing config;
+    private final AutoDetectParser parser = new AutoDetectParser();
+    private final ExecutorService executor;
+
+    public DocumentTextExtractor(TextSplitterService textSplitterService, RaptorProperties properties) {
+        this.textSplitterService = textSplitterService;
+        this.config = properties.getProcessing();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, config.getExtractionParallelism()));
+    }
+
+    public ExtractedDocument extract(MultipartFile file, int chunkSize, long maxCharacters) throws IOException {
+        Metadata metadata = new Metadata();
+        if (file.getOriginalFilename() != null) {
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, file.getOriginalFilename());
+        }
+
+        try (TikaInputStream stream = TikaInputStream.get(file.getInputStream())) {
+            String mediaType = parser.getDetector().detect(stream, metadata).getBaseType().toString();
+            log.debug("Detected {} for {}", mediaType, file.getOriginalFilename());
+
+            return PDF.equals(mediaType)
+                    ? extractPdf(file.getBytes(), chunkSize, maxCharacters)
+                    : extractStream(stream, metadata, mediaType, chunkSize, maxCharacters);
+        }
+    }
+
+    private ExtractedDocument extractStream(
+            InputStream stream,
+            Metadata metadata,
+            String mediaType,
+            int chunkSize,
+            long maxCharacters) throws IOException {
+        SectionedSplit split = textSplitterService.sectionedSplit(chunkSize);
+        AtomicLong characters = new AtomicLong();
+        boolean truncated = false;
+
+        try (SectionWriter writer = sectionWriter(split::add, characters, maxCharacters)) {
+            parser.parse(stream, new BodyContentHandler(writer), metadata, new ParseContext());
+        } catch (SAXException | TikaException e) {
+            if (!isLimitReached(e)) {
+                throw new IOException("Could not extract text from " + mediaType + ": " + e.getMessage(), e);
+            }
+            truncated = true;
+        }
+
+        return new ExtractedDocument(mediaType, truncated ? List.of() : split.finish(), characters.get(), 0, truncated);
+    }
+
+    private ExtractedDocument extractPdf(byte[] content, int chunkSize, long maxCharacters) throws IOException {
+        int pages;
+        try (PDDocument document = Loader.loadPDF(content)) {
+            pages = document.getNumberOfPages();
+        }
+
+        int pagesPerRange = Math.max(1, config.getPdfPagesPerRange());
+        List<int[]> ranges = new ArrayList<>();
+        for (int start = 1; start <= pages; start += pagesPerRange) {
+            ranges.add(new int[]{start, Math.min(pages, start + pagesPerRange - 1)});
+        }
+
+        AtomicLong characters = new AtomicLong();
+        List<Future<List<String>>> futures = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            futures.add(executor.submit(() -> extractPages(content, range[0], range[1], characters, maxCharacters)));
+        }
+
+        SectionedSplit split = textSplitterService.sectionedSplit(chunkSize);
+        boolean truncated = false;
+        for (Future<List<String>> future : futures) {
+            try {
+                future.get().forEach(split::add);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new IOException("Interrupted while extracting PDF text", e);
+            } catch (ExecutionException e) {
+                if (!isLimitReached(e)) {
+                    futures.forEach(pending -> pending.cancel(true));
+                    throw new IOException("Could not extract text from PDF: " + e.getCause().getMessage(), e.getCause());
+                }
+                truncated = true;
+            }
+        }
+
+        List<String> chunks = truncated ? List.of() : split.finish();
+        log.debug("Extracted {} pages in {} ranges into {} chunks", pages, ranges.size(), chunks.size());
+        return new ExtractedDocument(PDF, chunks, characters.get(), pages, truncated);
+    }
+
+    /**
+     * The text of a page range, in sections.
+     */
+    private List<String> extractPages(
+            byte[] content,
+            int startPage,
+            int endPage,
+            AtomicLong characters,
+            long maxCharacters) throws IOException {
+        List<String> sections = new ArrayList<>();
+        try (PDDocument document = Loader.loadPDF(content);
+             SectionWriter writer = sectionWriter(sections::add, characters, maxCharacters)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+            stripper.writeText(document, writer);
+        }
+        return sections;
+    }
+
+    private SectionWriter sectionWriter(Consumer<String> sink, AtomicLong characters, long maxCharacters) {
+        return new SectionWriter(config.getExtractionSectionChars(), sink, characters, maxCharacters);
+    }
+
+    private static boolean isLimitReached(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SectionWriter.TextLimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,18 @@
+package it.raptor_service.service.extraction;
+
+import java.util.List;
+
+/**
+ * Chunks extracted from an uploaded document, in document order.
+ *
+ * @param characters extracted characters, counted up to one past the limit
+ * @param pages      page count for paginated formats, otherwise 0
+ * @param truncated  extraction stopped because the document exceeded the character limit
+ */
+public record ExtractedDocument(
+        String mediaType,
+        List<String> chunks,
+        long characters,
+        int pages,
+        boolean truncated) {
+}
@@ -0,0 +1,82 @@
+package it.raptor_service.service.extraction;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Writer that receives extracted text and hands it on in sections of roughly
+ * {@code sectionChars}, cut at a paragraph (or line, or word) boundary, so the splitter
+ * can start on the beginning of a document while the parser is still reading the rest.
+ * Characters are counted against a limit shared by all writers of one document.
+ */
+final class SectionWriter extends Writer {
+
+    private final int sectionChars;
+    private final Consumer<String> sink;
+    private final AtomicLong characters;
+    private final long maxCharacters;
+    private final StringBuilder buffer = new StringBuilder();
+
+    SectionWriter(int sectionChars, Consumer<String> sink, AtomicLong characters, long maxCharacters) {
+        this.sectionChars = Math.max(1, sectionChars);
+        this.sink = sink;
+        this.characters = characters;
+        this.maxCharacters = maxCharacters;
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        if (characters.addAndGet(length) > maxCharacters) {
+            throw new TextLimitExceededException(maxCharacters);
+        }
+        buffer.append(chars, offset, length);
+        if (buffer.length() >= sectionChars) {
+            emit(sectionEnd());
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Sections are only emitted at boundaries or on close
+    }
+
+    @Override
+    public void close() {
+        emit(buffer.length());
+    }
+
+    /**
+     * The last paragraph break in the buffer, falling back to a line break and then a
+     * space if the paragraph would leave less than half a section.
+     */
+    private int sectionEnd() {
+        int minimum = sectionChars / 2;
+        int paragraph = buffer.lastIndexOf("\n\n");
+        if (paragraph >= minimum) {
+            return paragraph + 2;
+        }
+        int line = buffer.lastIndexOf("\n");
+        if (line >= minimum) {
+            return line + 1;
+        }
+        int word = buffer.lastIndexOf(" ");
+        return word >= minimum ? word + 1 : buffer.length();
+    }
+
+    private void emit(int end) {
+        String section = buffer.substring(0, end);
+        buffer.delete(0, end);
+        // Whitespace-only sections still separate the words around them
+        if (!section.isEmpty()) {
+            sink.accept(section);
+        }
+    }
+
+    static final class TextLimitExceededException extends IOException {
+        TextLimitExceededException(long maxCharacters) {
+            super("Extracted text exceeds " + maxCharacters + " characters");
+        }
+    }
+}
@@ -40,7 +40,7 @@ public class ClusterFactory {
         );
     }
 
-    public GlobalCluster createGlobalCluster(int id, List<TextEmbedding> embeddings) {
-        return new GlobalCluster(id, embeddings);
+    public GlobalCluster createGlobalCluster(int id, List<TextEmbedding> embeddings, int[] rowIndices) {
+        return new GlobalCluster(id, embeddings, rowIndices);
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package it.raptor_service.service.lexical;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * BM25 over the segments of one tree, one segment per level. Collection statistics
+ * (document count, average length, document frequencies) are summed across segments, so
+ * adding a level never rewrites the postings of the levels before it.
+ */
+public final class LexicalIndex {
+
+    private final List<LexicalSegment> segments;
+    private final double k1;
+    private final double b;
+    private final int documents;
+    private final double averageLength;
+
+    public LexicalIndex(List<LexicalSegment> segments, double k1, double b) {
+        this.segments = List.copyOf(segments);
+        this.k1 = k1;
+        this.b = b;
+
+        long totalLength = 0;
+        int documentCount = 0;
+        for (LexicalSegment segment : segments) {
+            documentCount += segment.documents();
+            totalLength += segment.totalLength();
+        }
+        this.documents = documentCount;
+        this.averageLength = documentCount == 0 ? 0.0 : (double) totalLength / documentCount;
+    }
+
+    public int documents() {
+        return documents;
+    }
+
+    /**
+     * The {@code limit} best-scoring nodes for the query, best first.
+     */
+    public SearchResult search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(LexicalTokenizer.tokenize(query));
+        List<LexicalHit> hits = new ArrayList<>();
+
+        double[] idf = terms.stream().mapToDouble(this::idf).toArray();
+        for (LexicalSegment segment : segments) {
+            double[] scores = new double[segment.documents()];
+            boolean[] matched = new boolean[segment.documents()];
+
+            int t = 0;
+            for (String term : terms) {
+                double termIdf = idf[t++];
+                segment.forEachPosting(term, (doc, tf) -> {
+                    double norm = k1 * (1.0 - b + b * segment.length(doc) / averageLength);
+                    scores[doc] += termIdf * tf * (k1 + 1.0) / (tf + norm);
+                    matched[doc] = true;
+                });
+            }
+
+            for (int doc = 0; doc < scores.length; doc++) {
+                if (matched[doc]) {
+                    hits.add(new LexicalHit(segment.layer(doc), segment.id(doc), scores[doc]));
+                }
+            }
+        }
+
+        int matchedNodes = hits.size();
+        hits.sort(Comparator.comparingDouble(LexicalHit::score).reversed());
+        return new SearchResult(matchedNodes > limit ? List.copyOf(hits.subList(0, limit)) : hits, matchedNodes);
+    }
+
+    private double idf(String term) {
+        int frequency = 0;
+        for (LexicalSegment segment : segments) {
+            frequency += segment.documentFrequency(term);
+        }
+        return Math.log(1.0 + (documents - frequency + 0.5) / (frequency + 0.5));
+    }
+
+    /**
+     * A node matching the query: {@code layer} 0 for chunks, otherwise a level's summaries.
+     */
+    public record LexicalHit(int layer, int id, double score) {
+    }
+
+    /**
+     * Best hits and how many nodes matched at least one query term.
+     */
+    public record SearchResult(List<LexicalHit> hits, int matchedNodes) {
+    }
+}
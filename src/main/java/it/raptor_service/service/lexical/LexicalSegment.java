@@ -0,0 +1,290 @@
+package it.raptor_service.service.lexical;
+
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable inverted index over a set of tree nodes, built once per level. Terms are a
+ * sorted array searched by binary search; each term's postings are {@code (doc delta, tf)}
+ * pairs as unsigned varints in one shared byte array, so a segment costs a few bytes per
+ * posting and no objects per document.
+ */
+public final class LexicalSegment {
+
+    private final int[] layers;
+    private final int[] ids;
+    private final int[] lengths;
+    private final String[] terms;
+    private final int[] documentFrequencies;
+    /** Start of each term's postings in {@code postings}; one extra entry marks the end. */
+    private final int[] postingsStarts;
+    private final byte[] postings;
+
+    private LexicalSegment(
+            int[] layers,
+            int[] ids,
+            int[] lengths,
+            String[] terms,
+            int[] documentFrequencies,
+            int[] postingsStarts,
+            byte[] postings) {
+        this.layers = layers;
+        this.ids = ids;
+        this.lengths = lengths;
+        this.terms = terms;
+        this.documentFrequencies = documentFrequencies;
+        this.postingsStarts = postingsStarts;
+        this.postings = postings;
+    }
+
+    /**
+     * Indexes {@code texts[d]} as the node {@code (layers[d], ids[d])}.
+     */
+    public static LexicalSegment build(int[] layers, int[] ids, List<String> texts) {
+        if (layers.length != ids.length || ids.length != texts.size()) {
+            throw new IllegalArgumentException("Layers, ids and texts must have the same length");
+        }
+
+        int[] lengths = new int[texts.size()];
+        Map<String, PostingsWriter> writers = new TreeMap<>();
+        for (int doc = 0; doc < texts.size(); doc++) {
+            List<String> tokens = LexicalTokenizer.tokenize(texts.get(doc));
+            lengths[doc] = tokens.size();
+
+            Map<String, Integer> frequencies = new HashMap<>();
+            tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                writers.computeIfAbsent(entry.getKey(), term -> new PostingsWriter()).add(doc, entry.getValue());
+            }
+        }
+
+        String[] terms = writers.keySet().toArray(String[]::new);
+        int[] documentFrequencies = new int[terms.length];
+        int[] postingsStarts = new int[terms.length + 1];
+        ByteSink sink = new ByteSink();
+        for (int t = 0; t < terms.length; t++) {
+            PostingsWriter writer = writers.get(terms[t]);
+            documentFrequencies[t] = writer.documents;
+            postingsStarts[t] = sink.size();
+            sink.write(writer.bytes.toArray());
+        }
+        postingsStarts[terms.length] = sink.size();
+
+        return new LexicalSegment(layers.clone(), ids.clone(), lengths, terms, documentFrequencies,
+                postingsStarts, sink.toArray());
+    }
+
+    /**
+     * The nodes a level adds to the tree: the chunks (layer 0) for level 1, and the level's
+     * summaries (layer {@code level}, by position) for every level.
+     */
+    public static LexicalSegment forLevel(LevelResult level) {
+        List<Integer> layers = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+
+        if (level.getLevel() == 1) {
+            for (TextEmbedding embedding : level.getEmbeddings()) {
+                layers.add(0);
+                ids.add(embedding.getId());
+                texts.add(embedding.getText());
+            }
+        }
+        List<ClusterSummary> summaries = level.getSummaries();
+        for (int row = 0; row < summaries.size(); row++) {
+            layers.add(level.getLevel());
+            ids.add(row);
+            texts.add(summaries.get(row).getSummary());
+        }
+
+        return build(layers.stream().mapToInt(Integer::intValue).toArray(),
+                ids.stream().mapToInt(Integer::intValue).toArray(), texts);
+    }
+
+    public int documents() {
+        return ids.length;
+    }
+
+    public long totalLength() {
+        long total = 0;
+        for (int length : lengths) {
+            total += length;
+        }
+        return total;
+    }
+
+    public int layer(int doc) {
+        return layers[doc];
+    }
+
+    public int id(int doc) {
+        return ids[doc];
+    }
+
+    public int length(int doc) {
+        return lengths[doc];
+    }
+
+    /**
+     * Number of documents containing the term; 0 if it does not occur.
+     */
+    public int documentFrequency(String term) {
+        int t = Arrays.binarySearch(terms, term);
+        return t >= 0 ? documentFrequencies[t] : 0;
+    }
+
+    /**
+     * Calls {@code visitor} with {@code (doc, tf)} for every document containing the term.
+     */
+    public void forEachPosting(String term, PostingVisitor visitor) {
+        int t = Arrays.binarySearch(terms, term);
+        if (t < 0) {
+            return;
+        }
+        int[] position = {postingsStarts[t]};
+        int end = postingsStarts[t + 1];
+        int doc = 0;
+        while (position[0] < end) {
+            doc += readVarInt(postings, position);
+            visitor.visit(doc, readVarInt(postings, position));
+        }
+    }
+
+    /**
+     * Serialized form, all integers as unsigned varints: the documents' layer, id and length,
+     * then each term as UTF-8 with its document frequency and postings size, then the postings.
+     */
+    public byte[] toBytes() {
+        ByteSink sink = new ByteSink();
+        sink.writeVarInt(ids.length);
+        for (int doc = 0; doc < ids.length; doc++) {
+            sink.writeVarInt(layers[doc]);
+            sink.writeVarInt(ids[doc]);
+            sink.writeVarInt(lengths[doc]);
+        }
+        sink.writeVarInt(terms.length);
+        for (int t = 0; t < terms.length; t++) {
+            byte[] term = terms[t].getBytes(StandardCharsets.UTF_8);
+            sink.writeVarInt(term.length);
+            sink.write(term);
+            sink.writeVarInt(documentFrequencies[t]);
+            sink.writeVarInt(postingsStarts[t + 1] - postingsStarts[t]);
+        }
+        sink.write(postings);
+        return sink.toArray();
+    }
+
+    public static LexicalSegment fromBytes(byte[] bytes) {
+        int[] position = {0};
+        int documents = readVarInt(bytes, position);
+        int[] layers = new int[documents];
+        int[] ids = new int[documents];
+        int[] lengths = new int[documents];
+        for (int doc = 0; doc < documents; doc++) {
+            layers[doc] = readVarInt(bytes, position);
+            ids[doc] = readVarInt(bytes, position);
+            lengths[doc] = readVarInt(bytes, position);
+        }
+
+        int termCount = readVarInt(bytes, position);
+        String[] terms = new String[termCount];
+        int[] documentFrequencies = new int[termCount];
+        int[] postingsStarts = new int[termCount + 1];
+        for (int t = 0; t < termCount; t++) {
+            int length = readVarInt(bytes, position);
+            terms[t] = new String(bytes, position[0], length, StandardCharsets.UTF_8);
+            position[0] += length;
+            documentFrequencies[t] = readVarInt(bytes, position);
+            postingsStarts[t + 1] = postingsStarts[t] + readVarInt(bytes, position);
+        }
+
+        byte[] postings = Arrays.copyOfRange(bytes, position[0], position[0] + postingsStarts[termCount]);
+        return new LexicalSegment(layers, ids, lengths, terms, documentFrequencies, postingsStarts, postings);
+    }
+
+    /**
+     * Bytes used by the postings alone.
+     */
+    public int postingsBytes() {
+        return postings.length;
+    }
+
+    static int readVarInt(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface PostingVisitor {
+        void visit(int doc, int termFrequency);
+    }
+
+    private static final class PostingsWriter {
+        private final ByteSink bytes = new ByteSink();
+        private int lastDoc;
+        private int documents;
+
+        private void add(int doc, int termFrequency) {
+            bytes.writeVarInt(doc - lastDoc);
+            bytes.writeVarInt(termFrequency);
+            lastDoc = doc;
+            documents++;
+        }
+    }
+
+    /**
+     * A growable byte array.
+     */
+    private static final class ByteSink {
+        private byte[] buffer = new byte[16];
+        private int size;
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void write(byte[] bytes) {
+            ensureCapacity(size + bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(size + 1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
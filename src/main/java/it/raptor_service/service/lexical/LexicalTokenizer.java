@@ -0,0 +1,67 @@
+package it.raptor_service.service.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lower-cased terms for the lexical index. Identifiers joined by {@code . - : /}
+ * (API names, error codes, paths) are kept whole as well as split into their parts, so
+ * {@code ERR-1042} matches exactly and {@code NullPointerException} still matches
+ * {@code java.lang.NullPointerException}.
+ */
+public final class LexicalTokenizer {
+
+    private LexicalTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        boolean compound = false;
+        for (int i = 0; i <= lower.length(); i++) {
+            char ch = i < lower.length() ? lower.charAt(i) : ' ';
+            if (isTermChar(ch)) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0 && isConnector(ch) && i + 1 < lower.length() && isTermChar(lower.charAt(i + 1))) {
+                compound = true;
+            } else if (start >= 0) {
+                emit(lower.substring(start, i), compound, terms);
+                start = -1;
+                compound = false;
+            }
+        }
+        return terms;
+    }
+
+    private static void emit(String term, boolean compound, List<String> terms) {
+        terms.add(term);
+        if (!compound) {
+            return;
+        }
+        int partStart = 0;
+        for (int i = 0; i <= term.length(); i++) {
+            if (i == term.length() || isConnector(term.charAt(i))) {
+                if (i > partStart) {
+                    terms.add(term.substring(partStart, i));
+                }
+                partStart = i + 1;
+            }
+        }
+    }
+
+    private static boolean isTermChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+
+    private static boolean isConnector(char ch) {
+        return ch == '.' || ch == '-' || ch == ':' || ch == '/';
+    }
+}
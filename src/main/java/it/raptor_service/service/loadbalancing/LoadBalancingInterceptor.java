@@ -0,0 +1,81 @@
+package it.raptor_service.service.loadbalancing;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends requests aimed at the configured model base URL to the endpoint chosen by the
+ * {@link ModelEndpointBalancer}; other requests pass through untouched. Model servers
+ * answer non-streaming calls in one piece, so the endpoint slot is released as soon as
+ * the response arrives.
+ */
+public class LoadBalancingInterceptor implements ClientHttpRequestInterceptor {
+
+    private final URI primary;
+    private final ModelEndpointBalancer balancer;
+
+    public LoadBalancingInterceptor(URI primary, ModelEndpointBalancer balancer) {
+        this.primary = primary;
+        this.balancer = balancer;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!targetsPrimary(request.getURI())) {
+            return execution.execute(request, body);
+        }
+
+        ModelEndpoint endpoint = acquire();
+        URI target = endpoint.rewrite(request.getURI(), primary);
+        boolean success = false;
+        try {
+            ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+                @Override
+                public URI getURI() {
+                    return target;
+                }
+            }, body);
+            success = !response.getStatusCode().is5xxServerError();
+            return response;
+        } finally {
+            balancer.release(endpoint, success);
+        }
+    }
+
+    private ModelEndpoint acquire() throws IOException {
+        try {
+            return balancer.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a model endpoint");
+        } catch (TimeoutException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private boolean targetsPrimary(URI uri) {
+        String primaryPath = primary.getRawPath() == null ? "" : primary.getRawPath().replaceAll("/+$", "");
+        return Objects.equals(uri.getScheme(), primary.getScheme())
+                && Objects.equals(uri.getHost(), primary.getHost())
+                && port(uri) == port(primary)
+                && uri.getRawPath() != null
+                && uri.getRawPath().startsWith(primaryPath);
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() != -1) {
+            return uri.getPort();
+        }
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+}
@@ -0,0 +1,66 @@
+package it.raptor_service.service.loadbalancing;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One model server behind the balancer, with its live request count and health.
+ */
+public final class ModelEndpoint {
+
+    private final URI baseUri;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private int consecutiveFailures;
+
+    ModelEndpoint(URI baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    public URI getBaseUri() {
+        return baseUri;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * The same request path and query, sent to this endpoint instead of {@code primary}.
+     */
+    URI rewrite(URI uri, URI primary) {
+        String primaryPath = primary.getRawPath() == null ? "" : primary.getRawPath().replaceAll("/+$", "");
+        String path = uri.getRawPath().substring(primaryPath.length());
+        String query = uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery();
+        return resolve(path + query);
+    }
+
+    URI resolve(String pathAndQuery) {
+        return URI.create(baseUri.toString().replaceAll("/+$", "") + pathAndQuery);
+    }
+
+    AtomicInteger inFlightCounter() {
+        return inFlight;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    int recordFailure() {
+        return ++consecutiveFailures;
+    }
+
+    void resetFailures() {
+        consecutiveFailures = 0;
+    }
+
+    @Override
+    public String toString() {
+        return baseUri.toString();
+    }
+}
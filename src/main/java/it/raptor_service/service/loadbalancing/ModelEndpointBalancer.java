@@ -0,0 +1,182 @@
+package it.raptor_service.service.loadbalancing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Least-outstanding-requests selection over several model endpoints.
+ * <p>
+ * {@link #acquire()} picks the healthy endpoint with the fewest requests in flight
+ * (ties rotate) and waits while every endpoint is at its concurrency cap. Endpoints are
+ * marked down after consecutive failed requests or a failed health check
+ * ({@code GET /api/tags}), and back up when a health check passes. If every endpoint
+ * is down, all of them are tried rather than failing outright.
+ */
+@Slf4j
+public class ModelEndpointBalancer implements AutoCloseable {
+
+    private static final String HEALTH_PATH = "/api/tags";
+
+    private final List<ModelEndpoint> endpoints;
+    private final int maxConcurrentPerEndpoint;
+    private final long acquireTimeoutMs;
+    private final int unhealthyAfterFailures;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final HttpClient healthClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private ScheduledExecutorService healthChecks;
+
+    public ModelEndpointBalancer(
+            List<URI> endpoints,
+            int maxConcurrentPerEndpoint,
+            long acquireTimeoutMs,
+            int unhealthyAfterFailures) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one model endpoint is required");
+        }
+        if (maxConcurrentPerEndpoint < 1) {
+            throw new IllegalArgumentException("Per-endpoint concurrency must be at least 1");
+        }
+        this.endpoints = endpoints.stream().map(ModelEndpoint::new).toList();
+        this.maxConcurrentPerEndpoint = maxConcurrentPerEndpoint;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.unhealthyAfterFailures = Math.max(1, unhealthyAfterFailures);
+    }
+
+    public List<ModelEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public ModelEndpoint acquire() throws InterruptedException, TimeoutException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        lock.lock();
+        try {
+            while (true) {
+                ModelEndpoint chosen = leastOutstanding();
+                if (chosen != null) {
+                    chosen.inFlightCounter().incrementAndGet();
+                    return chosen;
+                }
+                if (remaining <= 0) {
+                    throw new TimeoutException("All " + endpoints.size() + " model endpoints at capacity for "
+                            + acquireTimeoutMs + " ms");
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(ModelEndpoint endpoint, boolean success) {
+        lock.lock();
+        try {
+            endpoint.inFlightCounter().decrementAndGet();
+            if (success) {
+                endpoint.resetFailures();
+            } else if (endpoint.recordFailure() >= unhealthyAfterFailures && endpoint.isHealthy()) {
+                endpoint.setHealthy(false);
+                log.warn("Model endpoint {} marked down after {} consecutive failures", endpoint, unhealthyAfterFailures);
+            }
+            released.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void startHealthChecks(long intervalMs) {
+        if (intervalMs <= 0 || healthChecks != null) {
+            return;
+        }
+        healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "model-endpoint-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkHealth, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Probes every endpoint once and updates its health.
+     */
+    public void checkHealth() {
+        for (ModelEndpoint endpoint : endpoints) {
+            boolean up = probe(endpoint);
+            lock.lock();
+            try {
+                if (up != endpoint.isHealthy()) {
+                    log.info("Model endpoint {} is {}", endpoint, up ? "up" : "down");
+                }
+                endpoint.setHealthy(up);
+                if (up) {
+                    endpoint.resetFailures();
+                    released.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean probe(ModelEndpoint endpoint) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(endpoint.resolve(HEALTH_PATH))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            return healthClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Health check of {} failed: {}", endpoint, e.getMessage());
+            return false;
+        }
+    }
+
+    // Caller holds the lock
+    private ModelEndpoint leastOutstanding() {
+        boolean anyHealthy = endpoints.stream().anyMatch(ModelEndpoint::isHealthy);
+        int size = endpoints.size();
+        int start = Math.floorMod(cursor.getAndIncrement(), size);
+        ModelEndpoint best = null;
+
+        for (int i = 0; i < size; i++) {
+            ModelEndpoint endpoint = endpoints.get((start + i) % size);
+            if (anyHealthy && !endpoint.isHealthy()) {
+                continue;
+            }
+            int inFlight = endpoint.getInFlight();
+            if (inFlight >= maxConcurrentPerEndpoint) {
+                continue;
+            }
+            if (best == null || inFlight < best.getInFlight()) {
+                best = endpoint;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void close() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package it.raptor_service.service.observation;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import it.raptor_service.config.RaptorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entry point for pipeline observations (spans). Falls back to a no-op
+ * registry when tracing is disabled so call sites never need to check.
+ */
+@Slf4j
+@Component
+public class RaptorObservations {
+
+    private final ObservationRegistry registry;
+
+    public RaptorObservations(RaptorProperties properties, ObjectProvider<ObservationRegistry> registryProvider) {
+        this.registry = properties.getMonitoring().isEnableTracing()
+                ? registryProvider.getIfAvailable(() -> ObservationRegistry.NOOP)
+                : ObservationRegistry.NOOP;
+
+        log.debug("Pipeline tracing {}", registry.isNoop() ? "disabled" : "enabled");
+    }
+
+    public Observation observation(String name) {
+        return Observation.createNotStarted(name, registry);
+    }
+
+    /**
+     * Creates an observation with an explicit parent, for work handed to another thread.
+     */
+    public Observation childOf(String name, Observation parent) {
+        Observation observation = observation(name);
+        if (parent != null) {
+            observation.parentObservation(parent);
+        }
+        return observation;
+    }
+
+    public Observation current() {
+        return registry.getCurrentObservation();
+    }
+
+    /**
+     * Adds an attribute to the observation currently in scope, if any.
+     */
+    public void tag(String key, Object value) {
+        Observation current = current();
+        if (current != null) {
+            current.highCardinalityKeyValue(key, String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package it.raptor_service.service.offheap;
+
+import it.raptor_service.config.RaptorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of direct buffers shared by all jobs. Direct memory is only returned to the
+ * OS when a buffer is garbage collected, so buffers released by a finished job are
+ * kept here (up to a byte budget) and handed to the next job instead.
+ */
+@Slf4j
+@Component
+public class DirectBufferPool {
+
+    private final long maxPooledBytes;
+    private final TreeMap<Integer, ArrayDeque<ByteBuffer>> freeByCapacity = new TreeMap<>();
+    private long pooledBytes;
+
+    public DirectBufferPool(RaptorProperties properties) {
+        this.maxPooledBytes = properties.getProcessing().getOffHeapPoolMaxBytes();
+    }
+
+    public OffHeapArena openArena() {
+        return new OffHeapArena(this);
+    }
+
+    synchronized ByteBuffer acquire(int bytes) {
+        Map.Entry<Integer, ArrayDeque<ByteBuffer>> entry = freeByCapacity.ceilingEntry(bytes);
+
+        // Reuse a pooled buffer unless it would waste more than half of itself
+        if (entry != null && entry.getKey() <= Math.max(bytes * 2L, 4096)) {
+            ByteBuffer buffer = entry.getValue().pop();
+            if (entry.getValue().isEmpty()) {
+                freeByCapacity.remove(entry.getKey());
+            }
+            pooledBytes -= buffer.capacity();
+            return buffer.clear().limit(bytes);
+        }
+
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    synchronized void release(ByteBuffer buffer) {
+        if (pooledBytes + buffer.capacity() > maxPooledBytes) {
+            log.debug("Off-heap pool full, dropping {} byte buffer", buffer.capacity());
+            return;
+        }
+        freeByCapacity.computeIfAbsent(buffer.capacity(), capacity -> new ArrayDeque<>()).push(buffer);
+        pooledBytes += buffer.capacity();
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+}
@@ -0,0 +1,71 @@
+package it.raptor_service.service.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap memory owned by one job. Everything allocated here is released back to
+ * the {@link DirectBufferPool} when the arena is closed; views must not be used after.
+ */
+public final class OffHeapArena implements AutoCloseable {
+
+    private final DirectBufferPool pool;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long allocatedBytes;
+    private boolean closed;
+
+    OffHeapArena(DirectBufferPool pool) {
+        this.pool = pool;
+    }
+
+    public OffHeapVectors allocateVectors(int rows, int dimensions) {
+        long bytes = (long) rows * dimensions * Float.BYTES;
+        return new OffHeapVectors(allocate(bytes), rows, dimensions);
+    }
+
+    public OffHeapTexts storeTexts(List<String> texts) {
+        byte[][] encoded = new byte[texts.size()][];
+        int[] offsets = new int[texts.size() + 1];
+
+        for (int i = 0; i < texts.size(); i++) {
+            encoded[i] = texts.get(i).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+        }
+
+        ByteBuffer buffer = allocate(offsets[texts.size()]);
+        for (int i = 0; i < encoded.length; i++) {
+            buffer.put(offsets[i], encoded[i]);
+        }
+        return new OffHeapTexts(buffer, offsets);
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    private ByteBuffer allocate(long bytes) {
+        if (closed) {
+            throw new IllegalStateException("Off-heap arena is closed");
+        }
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap block too large: " + bytes + " bytes");
+        }
+
+        ByteBuffer buffer = pool.acquire((int) bytes);
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        return buffer;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffers.forEach(pool::release);
+        buffers.clear();
+    }
+}
@@ -0,0 +1,122 @@
+package it.raptor_service.service.offheap;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the embeddings and cluster texts of completed levels off-heap while a job
+ * works on the levels above them, so long-lived vectors do not get promoted to the
+ * old generation. Levels are restored onto the heap just before the response is built,
+ * and {@link #close()} hands all memory back to the pool.
+ */
+@Slf4j
+public final class OffHeapLevelStore implements AutoCloseable {
+
+    private final OffHeapArena arena;
+    private final Map<Integer, ParkedLevel> parkedLevels = new HashMap<>();
+
+    private OffHeapLevelStore(OffHeapArena arena) {
+        this.arena = arena;
+    }
+
+    public static OffHeapLevelStore open(DirectBufferPool pool) {
+        return new OffHeapLevelStore(pool.openArena());
+    }
+
+    /**
+     * A store that keeps everything on the heap.
+     */
+    public static OffHeapLevelStore onHeap() {
+        return new OffHeapLevelStore(null);
+    }
+
+    public void park(LevelResult levelResult) {
+        if (arena == null || parkedLevels.containsKey(levelResult.getLevel())) {
+            return;
+        }
+
+        List<TextEmbedding> embeddings = levelResult.getEmbeddings();
+        int dimensions = embeddings.isEmpty() || embeddings.get(0).getEmbedding() == null
+                ? 0
+                : embeddings.get(0).getEmbedding().length;
+        if (dimensions == 0) {
+            // Fallback levels carry empty vectors; nothing worth moving
+            return;
+        }
+
+        OffHeapVectors vectors = arena.allocateVectors(embeddings.size(), dimensions);
+        List<String> embeddingTexts = new ArrayList<>(embeddings.size());
+        for (int row = 0; row < embeddings.size(); row++) {
+            TextEmbedding embedding = embeddings.get(row);
+            vectors.put(row, embedding.getEmbedding());
+            embeddingTexts.add(embedding.getText());
+        }
+
+        List<Cluster> clusters = levelResult.getClusters();
+        List<String> clusterTexts = new ArrayList<>();
+        int[] clusterStarts = new int[clusters.size() + 1];
+        for (int i = 0; i < clusters.size(); i++) {
+            clusterTexts.addAll(clusters.get(i).getTexts());
+            clusterStarts[i + 1] = clusterTexts.size();
+        }
+
+        parkedLevels.put(levelResult.getLevel(), new ParkedLevel(
+                vectors,
+                arena.storeTexts(embeddingTexts),
+                arena.storeTexts(clusterTexts),
+                clusterStarts
+        ));
+
+        embeddings.forEach(embedding -> {
+            embedding.setEmbedding(null);
+            embedding.setText(null);
+        });
+        clusters.forEach(cluster -> cluster.setTexts(null));
+
+        log.debug("Parked level {} off-heap ({} bytes in arena)", levelResult.getLevel(), arena.getAllocatedBytes());
+    }
+
+    public void restore(LevelResult levelResult) {
+        ParkedLevel parked = parkedLevels.remove(levelResult.getLevel());
+        if (parked == null) {
+            return;
+        }
+
+        List<TextEmbedding> embeddings = levelResult.getEmbeddings();
+        for (int row = 0; row < embeddings.size(); row++) {
+            embeddings.get(row).setEmbedding(parked.vectors().get(row));
+            embeddings.get(row).setText(parked.embeddingTexts().get(row));
+        }
+
+        List<Cluster> clusters = levelResult.getClusters();
+        for (int i = 0; i < clusters.size(); i++) {
+            List<String> texts = new ArrayList<>(parked.clusterStarts()[i + 1] - parked.clusterStarts()[i]);
+            for (int t = parked.clusterStarts()[i]; t < parked.clusterStarts()[i + 1]; t++) {
+                texts.add(parked.clusterTexts().get(t));
+            }
+            clusters.get(i).setTexts(texts);
+        }
+    }
+
+    @Override
+    public void close() {
+        parkedLevels.clear();
+        if (arena != null) {
+            arena.close();
+        }
+    }
+
+    private record ParkedLevel(
+            OffHeapVectors vectors,
+            OffHeapTexts embeddingTexts,
+            OffHeapTexts clusterTexts,
+            int[] clusterStarts) {
+    }
+}
@@ -0,0 +1,28 @@
+package it.raptor_service.service.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 encoded texts packed back to back in off-heap memory.
+ */
+public final class OffHeapTexts {
+
+    private final ByteBuffer data;
+    private final int[] offsets;
+
+    OffHeapTexts(ByteBuffer data, int[] offsets) {
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public String get(int index) {
+        byte[] bytes = new byte[offsets[index + 1] - offsets[index]];
+        data.get(offsets[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
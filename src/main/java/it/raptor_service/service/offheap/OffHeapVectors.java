@@ -0,0 +1,41 @@
+package it.raptor_service.service.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * A row-major float matrix in off-heap memory.
+ */
+public final class OffHeapVectors {
+
+    private final FloatBuffer data;
+    private final int rows;
+    private final int dimensions;
+
+    OffHeapVectors(ByteBuffer buffer, int rows, int dimensions) {
+        this.data = buffer.asFloatBuffer();
+        this.rows = rows;
+        this.dimensions = dimensions;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public void put(int row, float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        data.put(row * dimensions, vector);
+    }
+
+    public float[] get(int row) {
+        float[] vector = new float[dimensions];
+        data.get(row * dimensions, vector);
+        return vector;
+    }
+}
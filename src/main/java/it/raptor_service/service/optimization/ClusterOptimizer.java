@@ -6,6 +6,11 @@ import org.springframework.stereotype.Component;
 import weka.clusterers.EM;
 import weka.core.Instances;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 @Slf4j
 @Component
 public class ClusterOptimizer {
@@ -28,9 +33,21 @@ public class ClusterOptimizer {
         log.debug("Finding optimal cluster count for {} instances, max clusters: {}",
                 data.numInstances(), maxClusters);
 
-        for (int k = 1; k <= Math.min(maxClusters, data.numInstances() - 1); k++) {
-            try {
-                double bic = calculateBIC(data, k);
+        int maxK = Math.min(maxClusters, data.numInstances() - 1);
+        int waveSize = parallelWaveSize(data);
+
+        // Candidates are fitted in waves; inside a fork-join pool a wave runs as parallel
+        // subtasks. Scores are scanned in k order, so the result matches a serial search.
+        scan:
+        for (int waveStart = 1; waveStart <= maxK; waveStart += waveSize) {
+            int waveEnd = Math.min(maxK, waveStart + waveSize - 1);
+            double[] scores = evaluateWave(data, waveStart, waveEnd);
+
+            for (int k = waveStart; k <= waveEnd; k++) {
+                double bic = scores[k - waveStart];
+                if (Double.isNaN(bic)) {
+                    continue;
+                }
 
                 if (bic < bestScore) {
                     bestScore = bic;
@@ -43,11 +60,8 @@ public class ClusterOptimizer {
                 // Early stopping
                 if (noImprovementCount >= 3 && k > 3) {
                     log.debug("Early stopping at k={} due to no improvement", k);
-                    break;
+                    break scan;
                 }
-
-            } catch (Exception e) {
-                log.debug("Failed to evaluate k={}: {}", k, e.getMessage());
             }
         }
 
@@ -55,6 +69,52 @@ public class ClusterOptimizer {
         return bestK;
     }
 
+    private int parallelWaveSize(Instances data) {
+        if (!ForkJoinTask.inForkJoinPool()
+                || data.numInstances() < properties.getClustering().getParallelFitMinInstances()) {
+            return 1;
+        }
+        return Math.max(1, ForkJoinTask.getPool().getParallelism());
+    }
+
+    private double[] evaluateWave(Instances data, int fromK, int toK) {
+        double[] scores = new double[toK - fromK + 1];
+
+        if (scores.length == 1) {
+            scores[0] = evaluate(data, fromK);
+            return scores;
+        }
+
+        List<RecursiveTask<Double>> fits = new ArrayList<>(scores.length);
+        for (int k = fromK; k <= toK; k++) {
+            final int candidate = k;
+            fits.add(new RecursiveTask<>() {
+                @Override
+                protected Double compute() {
+                    return evaluate(data, candidate);
+                }
+            });
+        }
+
+        ForkJoinTask.invokeAll(fits);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = fits.get(i).join();
+        }
+        return scores;
+    }
+
+    /**
+     * BIC for k clusters, or NaN when the fit fails.
+     */
+    private double evaluate(Instances data, int k) {
+        try {
+            return calculateBIC(data, k);
+        } catch (Exception e) {
+            log.debug("Failed to evaluate k={}: {}", k, e.getMessage());
+            return Double.NaN;
+        }
+    }
+
     private double calculateBIC(Instances data, int k) throws Exception {
         EM clusterer = new EM();
         clusterer.setNumClusters(k);
@@ -2,35 +2,64 @@ package it.raptor_service.service.postprocessing;
 
 import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.model.Cluster;
-import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import it.raptor_service.service.splitter.util.TokenEstimator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @Component
 public class ClusterPostProcessor {
 
     private final RaptorProperties properties;
-    private final ClusterFactory clusterFactory;
+    private final SimilarityCalculator similarityCalculator;
+    private final TokenEstimator tokenEstimator;
 
-    public ClusterPostProcessor(RaptorProperties properties, ClusterFactory clusterFactory) {
+    public ClusterPostProcessor(
+            RaptorProperties properties,
+            SimilarityCalculator similarityCalculator,
+            TokenEstimator tokenEstimator) {
         this.properties = properties;
-        this.clusterFactory = clusterFactory;
+        this.similarityCalculator = similarityCalculator;
+        this.tokenEstimator = tokenEstimator;
     }
 
-    public List<Cluster> postProcessClusters(List<Cluster> clusters) {
+    public List<Cluster> postProcessClusters(List<Cluster> clusters, List<TextEmbedding> embeddings) {
+        return postProcessClusters(clusters, embeddings, 0);
+    }
+
+    /**
+     * Drops empty clusters, moves members of undersized clusters to the most similar large
+     * cluster, splits clusters whose texts exceed the token budget, merges clusters until the
+     * average fan-in reaches {@code targetFanIn} (0 disables), and renumbers the result.
+     */
+    public List<Cluster> postProcessClusters(List<Cluster> clusters, List<TextEmbedding> embeddings, int targetFanIn) {
         List<Cluster> validClusters = removeEmptyClusters(clusters);
+        Map<Integer, Member> members = indexMembers(embeddings);
 
         int minClusterSize = properties.getClustering().getMinClusterSize();
         if (minClusterSize > 1) {
-            validClusters = mergeSmallClusters(validClusters, minClusterSize);
+            validClusters = reassignSmallClusters(validClusters, minClusterSize, members);
+        }
+
+        int maxClusterTokens = properties.getClustering().getMaxClusterTokens();
+        if (maxClusterTokens > 0) {
+            validClusters = splitOversizedClusters(validClusters, maxClusterTokens, members);
+        }
+
+        if (targetFanIn > 1) {
+            validClusters = mergeTowardsFanIn(validClusters, targetFanIn, maxClusterTokens, members);
         }
 
-        log.info("Post-processing: {} -> {} clusters", clusters.size(), validClusters.size());
-        return validClusters;
+        List<Cluster> result = renumber(validClusters);
+        log.info("Post-processing: {} -> {} clusters", clusters.size(), result.size());
+        return result;
     }
 
     private List<Cluster> removeEmptyClusters(List<Cluster> clusters) {
@@ -39,36 +68,283 @@ public class ClusterPostProcessor {
                 .toList();
     }
 
-    private List<Cluster> mergeSmallClusters(List<Cluster> clusters, int minSize) {
+    private Map<Integer, Member> indexMembers(List<TextEmbedding> embeddings) {
+        Map<Integer, Member> members = new HashMap<>(embeddings.size() * 2);
+        for (TextEmbedding embedding : embeddings) {
+            members.put(embedding.getId(), new Member(
+                    embedding.getId(),
+                    embedding.getText(),
+                    embedding.getEmbedding(),
+                    tokenEstimator.estimateTokenCount(embedding.getText())
+            ));
+        }
+        return members;
+    }
+
+    private List<Cluster> reassignSmallClusters(List<Cluster> clusters, int minSize, Map<Integer, Member> members) {
         List<Cluster> largeClusters = new ArrayList<>();
         List<Cluster> smallClusters = new ArrayList<>();
 
         for (Cluster cluster : clusters) {
             if (cluster.getTexts().size() >= minSize) {
-                largeClusters.add(cluster);
+                largeClusters.add(copyOf(cluster));
             } else {
                 smallClusters.add(cluster);
             }
         }
 
-        if (!smallClusters.isEmpty()) {
-            Cluster mergedCluster = mergeClusters(smallClusters, largeClusters.size());
-            largeClusters.add(mergedCluster);
-            log.debug("Merged {} small clusters into one", smallClusters.size());
+        if (smallClusters.isEmpty()) {
+            return largeClusters;
+        }
+
+        if (largeClusters.isEmpty()) {
+            // Nothing to absorb them: keep the level together as one cluster
+            Cluster merged = new Cluster(0, new ArrayList<>(), new ArrayList<>());
+            smallClusters.forEach(cluster -> appendAll(merged, cluster));
+            log.debug("No cluster reached {} members, merged {} small clusters", minSize, smallClusters.size());
+            return List.of(merged);
+        }
+
+        // Centroids are computed once from the large clusters as they came out of the engine,
+        // so the outcome does not depend on the order small clusters are visited in
+        float[][] centroids = largeClusters.stream()
+                .map(cluster -> centroid(membersOf(cluster, members)))
+                .toArray(float[][]::new);
+
+        int moved = 0;
+        for (Cluster small : smallClusters) {
+            for (Member member : membersOf(small, members)) {
+                Cluster target = largeClusters.get(nearestCentroid(member.vector(), centroids));
+                target.getTexts().add(member.text());
+                target.getTextIds().add(member.id());
+                moved++;
+            }
         }
 
+        log.debug("Reassigned {} members of {} small clusters to {} large clusters",
+                moved, smallClusters.size(), largeClusters.size());
         return largeClusters;
     }
 
-    private Cluster mergeClusters(List<Cluster> clusters, int newId) {
-        List<String> allTexts = clusters.stream()
-                .flatMap(c -> c.getTexts().stream())
+    private List<Cluster> splitOversizedClusters(List<Cluster> clusters, int maxTokens, Map<Integer, Member> members) {
+        List<Cluster> result = new ArrayList<>(clusters.size());
+
+        for (Cluster cluster : clusters) {
+            List<List<Member>> parts = new ArrayList<>();
+            bisectUntilWithinBudget(membersOf(cluster, members), maxTokens, parts);
+
+            if (parts.size() > 1) {
+                log.debug("Split cluster {} ({} texts) into {} parts of at most {} tokens",
+                        cluster.getId(), cluster.getTexts().size(), parts.size(), maxTokens);
+            }
+            parts.forEach(part -> result.add(toCluster(part)));
+        }
+        return result;
+    }
+
+    /**
+     * Splits a cluster in two around its two most distant members (farthest from the
+     * centroid, then farthest from that one) until every part fits the budget. A single
+     * text over budget stays on its own.
+     */
+    private void bisectUntilWithinBudget(List<Member> cluster, int maxTokens, List<List<Member>> out) {
+        int tokens = cluster.stream().mapToInt(Member::tokens).sum();
+        if (tokens <= maxTokens || cluster.size() < 2) {
+            out.add(cluster);
+            return;
+        }
+
+        float[] centroid = centroid(cluster);
+        Member first = farthestFrom(centroid, cluster);
+        Member second = farthestFrom(first.vector(), cluster);
+
+        List<Member> left = new ArrayList<>();
+        List<Member> right = new ArrayList<>();
+        for (Member member : cluster) {
+            double toFirst = similarityCalculator.calculateCosineSimilarity(member.vector(), first.vector());
+            double toSecond = similarityCalculator.calculateCosineSimilarity(member.vector(), second.vector());
+            (toFirst >= toSecond ? left : right).add(member);
+        }
+
+        if (left.isEmpty() || right.isEmpty()) {
+            // Indistinguishable vectors: split by position instead
+            int half = cluster.size() / 2;
+            left = new ArrayList<>(cluster.subList(0, half));
+            right = new ArrayList<>(cluster.subList(half, cluster.size()));
+        }
+
+        bisectUntilWithinBudget(left, maxTokens, out);
+        bisectUntilWithinBudget(right, maxTokens, out);
+    }
+
+    /**
+     * Merges the smallest cluster into its most similar neighbour (by centroid) until there are
+     * at most {@code texts / targetFanIn} clusters. Merges that would exceed the token budget are
+     * skipped, so a level whose texts cannot be packed tighter keeps more clusters.
+     */
+    private List<Cluster> mergeTowardsFanIn(
+            List<Cluster> clusters,
+            int targetFanIn,
+            int maxTokens,
+            Map<Integer, Member> members) {
+        int texts = clusters.stream().mapToInt(cluster -> cluster.getTextIds().size()).sum();
+        int targetClusters = Math.max(1, Math.ceilDiv(texts, targetFanIn));
+        if (clusters.size() <= targetClusters) {
+            return clusters;
+        }
+
+        List<MergeGroup> groups = new ArrayList<>(clusters.size());
+        for (Cluster cluster : clusters) {
+            groups.add(new MergeGroup(membersOf(cluster, members)));
+        }
+
+        int merges = 0;
+        while (groups.size() > targetClusters) {
+            MergeGroup smallest = null;
+            for (MergeGroup group : groups) {
+                if (!group.unmergeable && (smallest == null || group.members.size() < smallest.members.size())) {
+                    smallest = group;
+                }
+            }
+            if (smallest == null) {
+                break;
+            }
+
+            MergeGroup nearest = null;
+            double best = Double.NEGATIVE_INFINITY;
+            for (MergeGroup group : groups) {
+                if (group == smallest || (maxTokens > 0 && group.tokens + smallest.tokens > maxTokens)) {
+                    continue;
+                }
+                double similarity = similarityCalculator.calculateCosineSimilarity(smallest.direction, group.direction);
+                if (similarity > best) {
+                    best = similarity;
+                    nearest = group;
+                }
+            }
+
+            if (nearest == null) {
+                // Only grows from here, so it stays unmergeable
+                smallest.unmergeable = true;
+                continue;
+            }
+            nearest.absorb(smallest);
+            groups.remove(smallest);
+            merges++;
+        }
+
+        log.debug("Merged {} clusters towards fan-in {} ({} -> {} clusters for {} texts)",
+                merges, targetFanIn, clusters.size(), groups.size(), texts);
+        return groups.stream()
+                .map(group -> toCluster(group.members))
                 .toList();
+    }
+
+    private Member farthestFrom(float[] reference, List<Member> cluster) {
+        Member farthest = cluster.get(0);
+        double lowest = Double.POSITIVE_INFINITY;
+        for (Member member : cluster) {
+            double similarity = similarityCalculator.calculateCosineSimilarity(member.vector(), reference);
+            if (similarity < lowest) {
+                lowest = similarity;
+                farthest = member;
+            }
+        }
+        return farthest;
+    }
 
-        List<Integer> allIds = clusters.stream()
-                .map(Cluster::getId)
+    private int nearestCentroid(float[] vector, float[][] centroids) {
+        float[] similarities = new float[centroids.length];
+        similarityCalculator.calculateCosineSimilarities(vector, centroids, similarities);
+
+        int nearest = 0;
+        for (int i = 1; i < similarities.length; i++) {
+            if (similarities[i] > similarities[nearest]) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private float[] centroid(List<Member> cluster) {
+        float[] sum = new float[cluster.get(0).vector().length];
+        for (Member member : cluster) {
+            float[] unit = similarityCalculator.normalize(member.vector());
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] += unit[d];
+            }
+        }
+        return similarityCalculator.normalize(sum);
+    }
+
+    private static List<Member> membersOf(Cluster cluster, Map<Integer, Member> members) {
+        return cluster.getTextIds().stream()
+                .map(members::get)
                 .toList();
+    }
+
+    private static Cluster toCluster(List<Member> members) {
+        List<String> texts = new ArrayList<>(members.size());
+        List<Integer> ids = new ArrayList<>(members.size());
+        for (Member member : members) {
+            texts.add(member.text());
+            ids.add(member.id());
+        }
+        return new Cluster(0, texts, ids);
+    }
+
+    private static Cluster copyOf(Cluster cluster) {
+        return new Cluster(cluster.getId(), new ArrayList<>(cluster.getTexts()), new ArrayList<>(cluster.getTextIds()));
+    }
+
+    private static void appendAll(Cluster target, Cluster source) {
+        target.getTexts().addAll(source.getTexts());
+        target.getTextIds().addAll(source.getTextIds());
+    }
+
+    private static List<Cluster> renumber(List<Cluster> clusters) {
+        List<Cluster> result = new ArrayList<>(clusters.size());
+        for (int id = 0; id < clusters.size(); id++) {
+            Cluster cluster = clusters.get(id);
+            result.add(new Cluster(id, cluster.getTexts(), cluster.getTextIds()));
+        }
+        return result;
+    }
+
+    /**
+     * A cluster being merged: its members, summed unit vectors and token count.
+     */
+    private final class MergeGroup {
+        private final List<Member> members;
+        private final float[] direction;
+        private int tokens;
+        private boolean unmergeable;
+
+        private MergeGroup(List<Member> members) {
+            this.members = new ArrayList<>(members);
+            this.direction = new float[members.get(0).vector().length];
+            members.forEach(this::add);
+        }
+
+        private void absorb(MergeGroup other) {
+            other.members.forEach(member -> {
+                members.add(member);
+                add(member);
+            });
+        }
+
+        private void add(Member member) {
+            float[] unit = similarityCalculator.normalize(member.vector());
+            for (int d = 0; d < direction.length; d++) {
+                direction[d] += unit[d];
+            }
+            tokens += member.tokens();
+        }
+    }
 
-        return new Cluster(newId, allTexts, allIds);
+    /**
+     * A level text with its embedding and estimated token count.
+     */
+    private record Member(int id, String text, float[] vector, int tokens) {
     }
 }
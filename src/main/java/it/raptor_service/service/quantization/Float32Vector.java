@@ -0,0 +1,33 @@
+package it.raptor_service.service.quantization;
+
+public record Float32Vector(float[] values) implements QuantizedVector {
+
+    @Override
+    public int dimensions() {
+        return values.length;
+    }
+
+    @Override
+    public QuantizationType type() {
+        return QuantizationType.NONE;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        return values.clone();
+    }
+
+    @Override
+    public double dot(float[] query) {
+        double sum = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i] * query[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 32L + (long) values.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,45 @@
+package it.raptor_service.service.quantization;
+
+public record Fp16Vector(short[] values) implements QuantizedVector {
+
+    static Fp16Vector of(float[] vector) {
+        short[] values = new short[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            values[i] = Float.floatToFloat16(vector[i]);
+        }
+        return new Fp16Vector(values);
+    }
+
+    @Override
+    public int dimensions() {
+        return values.length;
+    }
+
+    @Override
+    public QuantizationType type() {
+        return QuantizationType.FP16;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = Float.float16ToFloat(values[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public double dot(float[] query) {
+        double sum = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += Float.float16ToFloat(values[i]) * query[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 32L + (long) values.length * Short.BYTES;
+    }
+}
@@ -0,0 +1,72 @@
+package it.raptor_service.service.quantization;
+
+/**
+ * Symmetric per-vector int8 quantization: {@code value ~= values[i] * scale},
+ * with {@code scale = max|v| / 127}.
+ */
+public record Int8Vector(byte[] values, float scale) implements QuantizedVector {
+
+    static Int8Vector of(float[] vector) {
+        float maxAbs = 0.0f;
+        for (float value : vector) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+
+        byte[] values = new byte[vector.length];
+        if (maxAbs == 0.0f) {
+            return new Int8Vector(values, 0.0f);
+        }
+
+        float scale = maxAbs / 127.0f;
+        float inverse = 1.0f / scale;
+        for (int i = 0; i < vector.length; i++) {
+            int quantized = Math.round(vector[i] * inverse);
+            values[i] = (byte) Math.max(-127, Math.min(127, quantized));
+        }
+        return new Int8Vector(values, scale);
+    }
+
+    @Override
+    public int dimensions() {
+        return values.length;
+    }
+
+    @Override
+    public QuantizationType type() {
+        return QuantizationType.INT8;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i] * scale;
+        }
+        return result;
+    }
+
+    @Override
+    public double dot(float[] query) {
+        double sum = 0.0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i] * query[i];
+        }
+        return sum * scale;
+    }
+
+    /**
+     * Dot product of two int8 vectors with integer accumulation, scaled once at the end.
+     */
+    public double dot(Int8Vector other) {
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += values[i] * other.values[i];
+        }
+        return sum * (double) scale * other.scale;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return 32L + values.length;
+    }
+}
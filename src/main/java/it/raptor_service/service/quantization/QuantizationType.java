@@ -0,0 +1,13 @@
+package it.raptor_service.service.quantization;
+
+/**
+ * Storage precision for retained embeddings.
+ */
+public enum QuantizationType {
+    /** 4 bytes per dimension, exact. */
+    NONE,
+    /** 2 bytes per dimension, IEEE half precision. */
+    FP16,
+    /** 1 byte per dimension plus one float scale per vector. */
+    INT8
+}
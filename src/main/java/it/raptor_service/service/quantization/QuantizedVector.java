@@ -0,0 +1,24 @@
+package it.raptor_service.service.quantization;
+
+/**
+ * A stored embedding in one of the {@link QuantizationType} formats.
+ * Dot products run directly on the stored values without expanding to float[].
+ */
+public sealed interface QuantizedVector permits Float32Vector, Fp16Vector, Int8Vector {
+
+    int dimensions();
+
+    QuantizationType type();
+
+    float[] toFloatArray();
+
+    /**
+     * Dot product against a full-precision query.
+     */
+    double dot(float[] query);
+
+    /**
+     * Approximate heap footprint, including object and array headers.
+     */
+    long sizeInBytes();
+}
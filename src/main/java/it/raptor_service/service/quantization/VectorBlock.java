@@ -0,0 +1,144 @@
+package it.raptor_service.service.quantization;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Row-major block of vectors in one {@link QuantizationType} format, little-endian: float32
+ * or fp16 values per row, or for int8 a float scale followed by the row's bytes. Rows are
+ * read in place, so a block mapped from a file is scored without copying it onto the heap.
+ */
+public final class VectorBlock {
+
+    private final ByteBuffer data;
+    private final QuantizationType type;
+    private final int rows;
+    private final int dimensions;
+    private final int rowBytes;
+
+    private VectorBlock(ByteBuffer data, QuantizationType type, int rows, int dimensions) {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        this.type = type;
+        this.rows = rows;
+        this.dimensions = dimensions;
+        this.rowBytes = rowBytes(type, dimensions);
+    }
+
+    public static VectorBlock wrap(ByteBuffer data, QuantizationType type, int rows, int dimensions) {
+        if ((long) rows * rowBytes(type, dimensions) > data.capacity()) {
+            throw new IllegalArgumentException("Vector block of " + rows + " x " + dimensions + " " + type
+                    + " does not fit in " + data.capacity() + " bytes");
+        }
+        return new VectorBlock(data, type, rows, dimensions);
+    }
+
+    /**
+     * Encodes {@code vectors}, all of {@code dimensions} values, as a block of {@code type}.
+     */
+    public static VectorBlock encode(List<float[]> vectors, int dimensions, QuantizationType type) {
+        ByteBuffer data = ByteBuffer.allocate(vectors.size() * rowBytes(type, dimensions)).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] vector : vectors) {
+            if (vector.length != dimensions) {
+                throw new IllegalArgumentException("Vector has " + vector.length + " dimensions, expected " + dimensions);
+            }
+            switch (type) {
+                case NONE -> {
+                    for (float value : vector) {
+                        data.putFloat(value);
+                    }
+                }
+                case FP16 -> {
+                    for (short value : Fp16Vector.of(vector).values()) {
+                        data.putShort(value);
+                    }
+                }
+                case INT8 -> {
+                    Int8Vector quantized = Int8Vector.of(vector);
+                    data.putFloat(quantized.scale());
+                    data.put(quantized.values());
+                }
+            }
+        }
+        return new VectorBlock(data.flip(), type, vectors.size(), dimensions);
+    }
+
+    public static int rowBytes(QuantizationType type, int dimensions) {
+        return switch (type) {
+            case NONE -> dimensions * Float.BYTES;
+            case FP16 -> dimensions * Short.BYTES;
+            case INT8 -> Float.BYTES + dimensions;
+        };
+    }
+
+    public QuantizationType type() {
+        return type;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * The encoded block, ready to be written out.
+     */
+    public ByteBuffer bytes() {
+        return data.duplicate().clear().limit(rows * rowBytes);
+    }
+
+    /**
+     * Dot product of a row against a full-precision query, on the stored values.
+     */
+    public double dot(int row, float[] query) {
+        int offset = row * rowBytes;
+        double sum = 0.0;
+        switch (type) {
+            case NONE -> {
+                for (int d = 0; d < dimensions; d++) {
+                    sum += data.getFloat(offset + d * Float.BYTES) * query[d];
+                }
+            }
+            case FP16 -> {
+                for (int d = 0; d < dimensions; d++) {
+                    sum += Float.float16ToFloat(data.getShort(offset + d * Short.BYTES)) * query[d];
+                }
+            }
+            case INT8 -> {
+                int values = offset + Float.BYTES;
+                for (int d = 0; d < dimensions; d++) {
+                    sum += data.get(values + d) * query[d];
+                }
+                sum *= data.getFloat(offset);
+            }
+        }
+        return sum;
+    }
+
+    public float[] toFloatArray(int row) {
+        int offset = row * rowBytes;
+        float[] vector = new float[dimensions];
+        switch (type) {
+            case NONE -> {
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = data.getFloat(offset + d * Float.BYTES);
+                }
+            }
+            case FP16 -> {
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = Float.float16ToFloat(data.getShort(offset + d * Short.BYTES));
+                }
+            }
+            case INT8 -> {
+                float scale = data.getFloat(offset);
+                for (int d = 0; d < dimensions; d++) {
+                    vector[d] = data.get(offset + Float.BYTES + d) * scale;
+                }
+            }
+        }
+        return vector;
+    }
+}
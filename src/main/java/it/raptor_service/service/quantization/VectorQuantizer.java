@@ -0,0 +1,40 @@
+package it.raptor_service.service.quantization;
+
+import org.springframework.stereotype.Component;
+
+@Component
+public class VectorQuantizer {
+
+    public QuantizedVector quantize(float[] vector, QuantizationType type) {
+        if (vector == null) {
+            throw new IllegalArgumentException("Vector cannot be null");
+        }
+
+        return switch (type) {
+            case NONE -> new Float32Vector(vector.clone());
+            case FP16 -> Fp16Vector.of(vector);
+            case INT8 -> Int8Vector.of(vector);
+        };
+    }
+
+    /**
+     * Dot product between two stored vectors, staying in integer arithmetic for int8 pairs.
+     */
+    public double dot(QuantizedVector a, QuantizedVector b) {
+        if (a.dimensions() != b.dimensions()) {
+            throw new IllegalArgumentException("Vectors must have same dimensions");
+        }
+
+        if (a instanceof Int8Vector int8A && b instanceof Int8Vector int8B) {
+            return int8A.dot(int8B);
+        }
+        return a.dot(b.toFloatArray());
+    }
+
+    public double dot(QuantizedVector stored, float[] query) {
+        if (stored.dimensions() != query.length) {
+            throw new IllegalArgumentException("Vectors must have same dimensions");
+        }
+        return stored.dot(query);
+    }
+}
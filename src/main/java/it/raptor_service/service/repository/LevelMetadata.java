@@ -0,0 +1,16 @@
+package it.raptor_service.service.repository;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+
+import java.util.List;
+
+/**
+ * The non-vector part of a stored level.
+ */
+public record LevelMetadata(
+        List<Integer> embeddingIds,
+        List<String> embeddingTexts,
+        List<Cluster> clusters,
+        List<ClusterSummary> summaries) {
+}
@@ -0,0 +1,136 @@
+package it.raptor_service.service.repository;
+
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.lexical.LexicalSegment;
+import it.raptor_service.service.quantization.VectorBlock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A tree in the repository. Only the header is read up front; each level's texts, clusters
+ * and summaries are read on first access and kept, and its vectors can be read in place
+ * through {@link #vectors(int)} without copying them onto the heap. Each level's lexical
+ * index segment is stored next to its vectors.
+ */
+public final class StoredTree {
+
+    private final TreeSegmentFile file;
+    private final TreeHeader header;
+    private final Map<Integer, TreeHeader.LevelBlock> blocks = new HashMap<>();
+    private final Map<Integer, LevelResult> loadedLevels = new ConcurrentHashMap<>();
+    private volatile List<String> allTexts;
+
+    StoredTree(TreeSegmentFile file, TreeHeader header) {
+        this.file = file;
+        this.header = header;
+        header.levels().forEach(block -> blocks.put(block.level(), block));
+    }
+
+    public String getContentHash() {
+        return header.contentHash();
+    }
+
+    public long getCreatedAt() {
+        return header.createdAt();
+    }
+
+    /**
+     * Level numbers, lowest first.
+     */
+    public List<Integer> levels() {
+        return header.levels().stream().map(TreeHeader.LevelBlock::level).toList();
+    }
+
+    public LevelResult level(int level) {
+        TreeHeader.LevelBlock block = block(level);
+        return loadedLevels.computeIfAbsent(level, key -> load(block));
+    }
+
+    /**
+     * A level's ids, texts, clusters and summaries, read from the segment file on every call
+     * and not kept, for callers that hold the parts they need themselves.
+     */
+    public LevelMetadata metadata(int level) {
+        TreeHeader.LevelBlock block = block(level);
+        return file.readJson(block.metadataOffset(), block.metadataLength(), LevelMetadata.class);
+    }
+
+    /**
+     * A level's vectors in the format they were stored in, mapped from the segment file.
+     */
+    public VectorBlock vectors(int level) {
+        return file.mapVectors(block(level));
+    }
+
+    public int dimensions(int level) {
+        return block(level).dimensions();
+    }
+
+    /**
+     * The lexical index segment stored with a level, or built from the level for trees
+     * stored without one.
+     */
+    public LexicalSegment lexicalSegment(int level) {
+        TreeHeader.LevelBlock block = block(level);
+        return block.lexicalLength() > 0
+                ? LexicalSegment.fromBytes(file.readBytes(block.lexicalOffset(), block.lexicalLength()))
+                : LexicalSegment.forLevel(level(level));
+    }
+
+    public List<String> allTexts() {
+        List<String> texts = allTexts;
+        if (texts == null) {
+            String[] stored = file.readJson(header.allTextsOffset(), header.allTextsLength(), String[].class);
+            texts = List.of(stored);
+            allTexts = texts;
+        }
+        return texts;
+    }
+
+    /**
+     * The whole tree as the pipeline returned it, with vectors at their stored precision,
+     * paging in any level not read yet. Search builds its layout from the mapped levels instead.
+     */
+    public RaptorResult toResult() {
+        Map<Integer, LevelResult> levelResults = new HashMap<>();
+        for (int level : levels()) {
+            levelResults.put(level, copyOf(level(level)));
+        }
+        return new RaptorResult(levelResults, new ArrayList<>(allTexts()),
+                header.deduplication(), header.reductions());
+    }
+
+    private TreeHeader.LevelBlock block(int level) {
+        TreeHeader.LevelBlock block = blocks.get(level);
+        if (block == null) {
+            throw new IllegalArgumentException("Tree has no level " + level);
+        }
+        return block;
+    }
+
+    private LevelResult load(TreeHeader.LevelBlock block) {
+        LevelMetadata metadata = file.readJson(block.metadataOffset(), block.metadataLength(), LevelMetadata.class);
+        VectorBlock vectors = file.mapVectors(block);
+
+        List<TextEmbedding> embeddings = new ArrayList<>(block.vectorCount());
+        for (int row = 0; row < block.vectorCount(); row++) {
+            embeddings.add(new TextEmbedding(metadata.embeddingIds().get(row), metadata.embeddingTexts().get(row),
+                    vectors.toFloatArray(row)));
+        }
+        return new LevelResult(block.level(), embeddings, metadata.clusters(), metadata.summaries());
+    }
+
+    /**
+     * Callers get their own lists, so the cached level cannot be changed through a response.
+     */
+    private static LevelResult copyOf(LevelResult level) {
+        return new LevelResult(level.getLevel(), new ArrayList<>(level.getEmbeddings()),
+                new ArrayList<>(level.getClusters()), new ArrayList<>(level.getSummaries()));
+    }
+}
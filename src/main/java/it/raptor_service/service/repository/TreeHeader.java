@@ -0,0 +1,43 @@
+package it.raptor_service.service.repository;
+
+import it.raptor_service.model.DeduplicationStats;
+import it.raptor_service.model.LevelReduction;
+import it.raptor_service.service.quantization.QuantizationType;
+
+import java.util.List;
+
+/**
+ * Written after a tree's level blocks; everything needed to page the levels back in.
+ */
+record TreeHeader(
+        String contentHash,
+        long createdAt,
+        long allTextsOffset,
+        int allTextsLength,
+        DeduplicationStats deduplication,
+        List<LevelReduction> reductions,
+        List<LevelBlock> levels) {
+
+    /**
+     * Location of one level: a JSON metadata block (ids, texts, clusters, summaries), a
+     * {@link it.raptor_service.service.quantization.VectorBlock} of {@code vectorCount} rows
+     * in {@code quantization} format (absent, and float32, in trees stored before it existed)
+     * and the level's lexical index segment ({@code lexicalLength} 0 in trees stored before
+     * it existed).
+     */
+    record LevelBlock(
+            int level,
+            long metadataOffset,
+            int metadataLength,
+            long vectorsOffset,
+            int vectorCount,
+            int dimensions,
+            QuantizationType quantization,
+            long lexicalOffset,
+            int lexicalLength) {
+
+        QuantizationType vectorFormat() {
+            return quantization != null ? quantization : QuantizationType.NONE;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package it.raptor_service.service.repository;
+
+/**
+ * One line of the repository index: where the header of a stored tree starts in the
+ * segment file and the keys it can be found under. Several entries may point at the same
+ * header when identical content was submitted under different document ids.
+ */
+record TreeIndexEntry(
+        String documentId,
+        String contentHash,
+        long headerOffset,
+        int headerLength,
+        long createdAt) {
+
+    long end() {
+        return headerOffset + headerLength;
+    }
+}
@@ -0,0 +1,217 @@
+package it.raptor_service.service.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.TextEmbedding;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps built trees on local disk so a tree can be fetched again by document id, and a
+ * re-submission of identical content is answered without running the pipeline. The most
+ * recently used trees stay on the heap; the others are paged in from the segment file.
+ */
+@Slf4j
+@Component
+public class TreeRepository {
+
+    private final TreeSegmentFile file;
+    private final byte[] configFingerprint;
+    private final Cache<Long, StoredTree> hotTrees;
+    private final Map<String, TreeIndexEntry> byDocumentId = new ConcurrentHashMap<>();
+    private final Map<String, TreeIndexEntry> byContentHash = new ConcurrentHashMap<>();
+
+    public TreeRepository(
+            RaptorProperties properties,
+            ObjectMapper objectMapper,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${spring.ai.ollama.chat.model:}") String chatModel,
+            @Value("${spring.ai.ollama.embedding.model:}") String embeddingModel) {
+        RaptorProperties.Repository settings = properties.getRepository();
+        this.configFingerprint = configFingerprint(properties, objectMapper, chatModel, embeddingModel);
+        this.hotTrees = Caffeine.newBuilder()
+                .maximumSize(settings.getHotTrees())
+                .recordStats()
+                .build();
+
+        if (!settings.isEnabled()) {
+            this.file = null;
+            return;
+        }
+
+        Path directory = Path.of(settings.getDirectory());
+        try {
+            this.file = TreeSegmentFile.open(directory, objectMapper,
+                    properties.getProcessing().getEmbeddingQuantization());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open tree repository " + directory, e);
+        }
+        // Later entries win: the newest tree for a document id, the newest alias for a hash
+        file.entries().forEach(this::index);
+
+        if (properties.getMonitoring().isEnableMetrics()) {
+            meterRegistry.ifAvailable(registry ->
+                    CaffeineCacheMetrics.monitor(registry, hotTrees, "raptor.trees"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    public Optional<StoredTree> findByDocumentId(String documentId) {
+        if (!isEnabled() || documentId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byDocumentId.get(documentId)).map(this::tree);
+    }
+
+    public Optional<StoredTree> findByContentHash(String contentHash) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byContentHash.get(contentHash)).map(this::tree);
+    }
+
+    /**
+     * Stores a tree under its content hash and, when given, a document id. Content that is
+     * already stored is not written again; the document id is added as another index entry.
+     */
+    public synchronized void save(String documentId, String contentHash, RaptorResult result) {
+        if (!isEnabled()) {
+            return;
+        }
+        String degraded = degradedLevel(result);
+        if (degraded != null) {
+            log.warn("Not storing tree {}: {}", contentHash, degraded);
+            return;
+        }
+
+        TreeIndexEntry existing = byContentHash.get(contentHash);
+        if (existing != null) {
+            if (documentId != null && !documentId.equals(existing.documentId())
+                    && byDocumentId.get(documentId) != existing) {
+                index(file.alias(existing, documentId));
+            }
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        TreeIndexEntry entry = file.append(documentId, contentHash, result);
+        index(entry);
+        log.info("Stored tree {} (document {}) in {}ms", contentHash, documentId, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Identifies a job's input: the submitted bytes, the request parameters and the
+     * configuration the tree depends on, so a tree built with other models or other
+     * clustering settings is not served for it.
+     */
+    public String contentHash(byte[] content, int chunkSize, int maxLevels) {
+        MessageDigest digest = sha256();
+        digest.update(content);
+        digest.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(chunkSize).putInt(maxLevels).array());
+        digest.update(configFingerprint);
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * Models and every settings section that shapes a tree: the embedding provider and model,
+     * the summary model and its per-level routing, clustering, deduplication, subtrees and
+     * the level convergence threshold. Map keys are sorted so the fingerprint is stable.
+     */
+    private static byte[] configFingerprint(
+            RaptorProperties properties,
+            ObjectMapper objectMapper,
+            String chatModel,
+            String embeddingModel) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("chatModel", chatModel);
+        config.put("embeddingModel", embeddingModel);
+        config.put("embedding", properties.getEmbedding());
+        config.put("routing", properties.getRouting());
+        config.put("clustering", properties.getClustering());
+        config.put("deduplication", properties.getDeduplication());
+        config.put("subtrees", properties.getSubtrees());
+        config.put("minReductionRatio", properties.getProcessing().getMinReductionRatio());
+        config.put("summaryPromptMaxTokens", properties.getProcessing().getSummaryPromptMaxTokens());
+        try {
+            byte[] json = objectMapper.writer()
+                    .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(config);
+            return sha256().digest(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint the tree configuration", e);
+        }
+    }
+
+    /**
+     * Why a result cannot be reused, or {@code null}: a degraded run leaves levels with rows
+     * that have no vector, or vectors of another size.
+     */
+    private static String degradedLevel(RaptorResult result) {
+        for (LevelResult level : result.getLevelResults().values()) {
+            List<TextEmbedding> embeddings = level.getEmbeddings();
+            int dimensions = embeddings.isEmpty() || embeddings.get(0).getEmbedding() == null
+                    ? 0 : embeddings.get(0).getEmbedding().length;
+            for (TextEmbedding embedding : embeddings) {
+                float[] vector = embedding.getEmbedding();
+                if (vector == null || vector.length == 0 || vector.length != dimensions) {
+                    return "level " + level.getLevel() + " has no usable vector for text " + embedding.getId();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void index(TreeIndexEntry entry) {
+        if (entry.documentId() != null) {
+            byDocumentId.put(entry.documentId(), entry);
+        }
+        byContentHash.put(entry.contentHash(), entry);
+    }
+
+    private StoredTree tree(TreeIndexEntry entry) {
+        return hotTrees.get(entry.headerOffset(), offset -> new StoredTree(file,
+                file.readJson(entry.headerOffset(), entry.headerLength(), TreeHeader.class)));
+    }
+}
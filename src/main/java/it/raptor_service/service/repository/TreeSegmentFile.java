@@ -0,0 +1,265 @@
+package it.raptor_service.service.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.lexical.LexicalSegment;
+import it.raptor_service.service.quantization.QuantizationType;
+import it.raptor_service.service.quantization.VectorBlock;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The on-disk part of the tree repository: an append-only segment file holding each tree's
+ * level blocks followed by its header, and a JSON-lines index of header locations. A tree is
+ * forced to disk before its index line is written, so on open every indexed tree is complete
+ * and anything after the last indexed tree (a crash mid-write) is cut off.
+ */
+@Slf4j
+final class TreeSegmentFile implements AutoCloseable {
+
+    static final String SEGMENT_FILE = "trees.seg";
+    static final String INDEX_FILE = "trees.idx";
+
+    private final Path directory;
+    private final FileChannel segment;
+    private final FileChannel index;
+    private final ObjectMapper objectMapper;
+    private final QuantizationType quantization;
+    private final List<TreeIndexEntry> entries = new ArrayList<>();
+    private long end;
+
+    private TreeSegmentFile(
+            Path directory,
+            FileChannel segment,
+            FileChannel index,
+            ObjectMapper objectMapper,
+            QuantizationType quantization) {
+        this.directory = directory;
+        this.segment = segment;
+        this.index = index;
+        this.objectMapper = objectMapper;
+        this.quantization = quantization;
+    }
+
+    /**
+     * @param quantization format of the vector blocks written from now on; stored trees keep theirs
+     */
+    static TreeSegmentFile open(Path directory, ObjectMapper objectMapper, QuantizationType quantization)
+            throws IOException {
+        Files.createDirectories(directory);
+        FileChannel segment = FileChannel.open(directory.resolve(SEGMENT_FILE), CREATE, READ, WRITE);
+        FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), CREATE, READ, WRITE);
+        TreeSegmentFile file = new TreeSegmentFile(directory, segment, index, objectMapper, quantization);
+        file.load();
+        return file;
+    }
+
+    /**
+     * Index entries in the order they were written.
+     */
+    synchronized List<TreeIndexEntry> entries() {
+        return List.copyOf(entries);
+    }
+
+    synchronized TreeIndexEntry append(String documentId, String contentHash, RaptorResult result) {
+        try {
+            long createdAt = System.currentTimeMillis();
+            List<TreeHeader.LevelBlock> blocks = new ArrayList<>();
+            List<LevelResult> levels = result.getLevelResults().values().stream()
+                    .sorted(Comparator.comparingInt(LevelResult::getLevel))
+                    .toList();
+
+            for (LevelResult level : levels) {
+                blocks.add(writeLevel(level));
+            }
+
+            long allTextsOffset = end;
+            int allTextsLength = writeBlock(objectMapper.writeValueAsBytes(result.getAllTexts()));
+
+            TreeHeader header = new TreeHeader(contentHash, createdAt, allTextsOffset, allTextsLength,
+                    result.getDeduplication(), result.getReductions(), blocks);
+            long headerOffset = end;
+            int headerLength = writeBlock(objectMapper.writeValueAsBytes(header));
+            segment.force(false);
+
+            return appendEntry(new TreeIndexEntry(documentId, contentHash, headerOffset, headerLength, createdAt));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store tree in " + directory, e);
+        }
+    }
+
+    /**
+     * Adds another index entry for a tree that is already stored.
+     */
+    synchronized TreeIndexEntry alias(TreeIndexEntry stored, String documentId) {
+        try {
+            return appendEntry(new TreeIndexEntry(documentId, stored.contentHash(),
+                    stored.headerOffset(), stored.headerLength(), System.currentTimeMillis()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update tree index in " + directory, e);
+        }
+    }
+
+    <T> T readJson(long offset, int length, Class<T> type) {
+        try {
+            return objectMapper.readValue(readBytes(offset, length), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read tree data from " + directory, e);
+        }
+    }
+
+    byte[] readBytes(long offset, int length) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (segment.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of segment at " + (offset + buffer.position()));
+                }
+            }
+            return buffer.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read tree data from " + directory, e);
+        }
+    }
+
+    /**
+     * Memory-mapped view of a level's vectors; pages are read from disk as they are touched.
+     */
+    VectorBlock mapVectors(TreeHeader.LevelBlock block) {
+        long bytes = (long) block.vectorCount() * VectorBlock.rowBytes(block.vectorFormat(), block.dimensions());
+        if (bytes == 0) {
+            return VectorBlock.wrap(ByteBuffer.allocate(0), block.vectorFormat(), 0, block.dimensions());
+        }
+        try {
+            return VectorBlock.wrap(segment.map(FileChannel.MapMode.READ_ONLY, block.vectorsOffset(), bytes),
+                    block.vectorFormat(), block.vectorCount(), block.dimensions());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map tree vectors in " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            segment.close();
+            index.close();
+        } catch (IOException e) {
+            log.warn("Could not close tree repository {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private TreeHeader.LevelBlock writeLevel(LevelResult level) throws IOException {
+        List<TextEmbedding> embeddings = level.getEmbeddings();
+        int dimensions = embeddings.stream()
+                .map(TextEmbedding::getEmbedding)
+                .filter(vector -> vector != null && vector.length > 0)
+                .findFirst()
+                .map(vector -> vector.length)
+                .orElse(0);
+
+        List<Integer> ids = new ArrayList<>(embeddings.size());
+        List<String> texts = new ArrayList<>(embeddings.size());
+        for (TextEmbedding embedding : embeddings) {
+            ids.add(embedding.getId());
+            texts.add(embedding.getText());
+        }
+        VectorBlock vectors = VectorBlock.encode(
+                embeddings.stream().map(TextEmbedding::getEmbedding).toList(), dimensions, quantization);
+
+        long metadataOffset = end;
+        int metadataLength = writeBlock(objectMapper.writeValueAsBytes(
+                new LevelMetadata(ids, texts, level.getClusters(), level.getSummaries())));
+        long vectorsOffset = end;
+        writeBlock(vectors.bytes());
+        long lexicalOffset = end;
+        int lexicalLength = writeBlock(LexicalSegment.forLevel(level).toBytes());
+
+        return new TreeHeader.LevelBlock(level.getLevel(), metadataOffset, metadataLength,
+                vectorsOffset, embeddings.size(), dimensions, quantization, lexicalOffset, lexicalLength);
+    }
+
+    private int writeBlock(byte[] bytes) throws IOException {
+        return writeBlock(ByteBuffer.wrap(bytes));
+    }
+
+    private int writeBlock(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer, end + length - buffer.remaining());
+        }
+        end += length;
+        return length;
+    }
+
+    private TreeIndexEntry appendEntry(TreeIndexEntry entry) throws IOException {
+        ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            index.write(line);
+        }
+        index.force(false);
+        entries.add(entry);
+        return entry;
+    }
+
+    private void load() throws IOException {
+        byte[] content = Files.readAllBytes(directory.resolve(INDEX_FILE));
+        long segmentSize = segment.size();
+        int start = 0;
+        long validLength = 0;
+
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] != '\n') {
+                continue;
+            }
+            if (i > start) {
+                TreeIndexEntry entry = parse(new String(content, start, i - start, StandardCharsets.UTF_8));
+                if (entry == null || entry.end() > segmentSize) {
+                    break;
+                }
+                entries.add(entry);
+                end = Math.max(end, entry.end());
+            }
+            start = i + 1;
+            validLength = start;
+        }
+
+        if (validLength < content.length) {
+            log.warn("Discarding {} bytes of incomplete tree index data in {}", content.length - validLength, directory);
+            index.truncate(validLength);
+        }
+        index.position(validLength);
+
+        if (end < segmentSize) {
+            log.warn("Discarding {} bytes of unindexed tree data in {}", segmentSize - end, directory);
+            segment.truncate(end);
+        }
+
+        log.info("Tree repository {}: {} index entries, {} bytes", directory, entries.size(), end);
+    }
+
+    private TreeIndexEntry parse(String line) {
+        try {
+            return objectMapper.readValue(line, TreeIndexEntry.class);
+        } catch (IOException e) {
+            log.warn("Unreadable tree index entry in {}: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package it.raptor_service.service.resilience;
+
+/**
+ * A model call that did not succeed within its attempts, deadline or open circuit.
+ */
+public class ModelCallException extends RuntimeException {
+
+    public ModelCallException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,225 @@
+package it.raptor_service.service.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import it.raptor_service.config.RaptorProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs chat and embedding model calls with a per-call deadline, jittered exponential
+ * retry and a circuit breaker per {@link ModelOperation}. Chat calls can optionally be
+ * hedged: if the first attempt has not answered after {@code hedgeDelayMs}, a second one
+ * is started and whichever succeeds first wins.
+ * <p>
+ * Attempts run on virtual threads so a deadline can abandon a hung HTTP call without
+ * tying up a platform thread.
+ */
+@Slf4j
+@Component
+public class ModelCallExecutor {
+
+    private final RaptorProperties.Resilience config;
+    private final MeterRegistry meterRegistry;
+    private final Map<ModelOperation, CircuitBreaker> breakers = new EnumMap<>(ModelOperation.class);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ModelCallExecutor(RaptorProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC());
+    }
+
+    ModelCallExecutor(RaptorProperties properties, ObjectProvider<MeterRegistry> meterRegistry, Clock clock) {
+        this.config = properties.getResilience();
+        this.meterRegistry = properties.getMonitoring().isEnableMetrics() ? meterRegistry.getIfAvailable() : null;
+
+        for (ModelOperation operation : ModelOperation.values()) {
+            CircuitBreaker breaker = new CircuitBreaker(config.getCircuitFailureThreshold(), config.getCircuitOpenMs(), clock);
+            breakers.put(operation, breaker);
+            if (this.meterRegistry != null) {
+                Gauge.builder("raptor.model.circuit.state", breaker, b -> b.getState().ordinal())
+                        .description("0 closed, 1 open, 2 half-open")
+                        .tag("operation", operation.tag())
+                        .register(this.meterRegistry);
+            }
+        }
+    }
+
+    public <T> T call(ModelOperation operation, Callable<T> call) {
+        CircuitBreaker breaker = breakers.get(operation);
+        int maxAttempts = Math.max(1, config.getMaxAttempts());
+        long started = System.nanoTime();
+        Exception lastFailure = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!breaker.tryAcquire()) {
+                count("raptor.model.attempts", operation, "rejected");
+                lastFailure = new IllegalStateException("Circuit open for " + operation.tag() + " calls");
+                break;
+            }
+
+            try {
+                T result = hedged(operation) ? attemptHedged(operation, call) : attempt(operation, call);
+                breaker.onSuccess();
+                count("raptor.model.attempts", operation, "success");
+                record(operation, "success", started);
+                return result;
+            } catch (Exception e) {
+                breaker.onFailure();
+                lastFailure = e;
+                count("raptor.model.attempts", operation, e instanceof TimeoutException ? "timeout" : "failure");
+
+                if (!isRetryable(e) || attempt == maxAttempts) {
+                    break;
+                }
+                long backoff = backoffMillis(attempt);
+                log.warn("{} call failed (attempt {}/{}), retrying in {} ms: {}",
+                        operation.tag(), attempt, maxAttempts, backoff, e.toString());
+                if (!sleep(backoff)) {
+                    break;
+                }
+            }
+        }
+
+        record(operation, "failure", started);
+        throw new ModelCallException(operation.tag() + " call failed: " + describe(lastFailure), lastFailure);
+    }
+
+    public CircuitBreaker.State circuitState(ModelOperation operation) {
+        return breakers.get(operation).getState();
+    }
+
+    private <T> T attempt(ModelOperation operation, Callable<T> call) throws Exception {
+        Future<T> future = executor.submit(call);
+        try {
+            return future.get(deadlineMillis(operation), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            future.cancel(true);
+        }
+    }
+
+    private <T> T attemptHedged(ModelOperation operation, Callable<T> call) throws Exception {
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis(operation));
+        Future<T> primary = completion.submit(call);
+        Future<T> hedge = null;
+
+        try {
+            Future<T> done = completion.poll(Math.min(config.getHedgeDelayMs(), deadlineMillis(operation)), TimeUnit.MILLISECONDS);
+            if (done == null) {
+                hedge = completion.submit(call);
+                count("raptor.model.hedges", operation, "started");
+            }
+
+            int pending = hedge == null ? 1 : 2;
+            Exception failure = null;
+            while (pending > 0) {
+                if (done == null) {
+                    done = completion.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (done == null) {
+                        throw new TimeoutException("No answer within " + deadlineMillis(operation) + " ms");
+                    }
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    if (done == hedge) {
+                        count("raptor.model.hedges", operation, "won");
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = unwrap(e);
+                    done = null;
+                }
+            }
+            throw failure;
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private boolean hedged(ModelOperation operation) {
+        return operation == ModelOperation.CHAT && config.isHedgeEnabled();
+    }
+
+    private long deadlineMillis(ModelOperation operation) {
+        return operation == ModelOperation.CHAT ? config.getChatDeadlineMs() : config.getEmbeddingDeadlineMs();
+    }
+
+    /**
+     * Full jitter: uniform in {@code [0, min(max, initial * 2^(attempt - 1))]}.
+     */
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(config.getMaxBackoffMs(), config.getInitialBackoffMs() << Math.min(20, attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(Exception e) {
+        // Bad input will fail the same way every time
+        return !(e instanceof IllegalArgumentException);
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String describe(Exception e) {
+        return e == null ? "unknown error" : e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private void count(String name, ModelOperation operation, String outcome) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(name, "operation", operation.tag(), "outcome", outcome).increment();
+        }
+    }
+
+    private void record(ModelOperation operation, String outcome, long startedNanos) {
+        if (meterRegistry != null) {
+            Timer.builder("raptor.model.calls")
+                    .tag("operation", operation.tag())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,19 @@
+package it.raptor_service.service.resilience;
+
+/**
+ * Kinds of model calls; each gets its own circuit breaker, deadline and metrics tag.
+ */
+public enum ModelOperation {
+    CHAT("chat"),
+    EMBEDDING("embedding");
+
+    private final String tag;
+
+    ModelOperation(String tag) {
+        this.tag = tag;
+    }
+
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,113 @@
+package it.raptor_service.service.retrieval;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.RetrievalResult;
+import it.raptor_service.model.RetrievedNode;
+import it.raptor_service.service.lexical.LexicalIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hybrid retrieval: the tree traversal ranks nodes by embedding similarity, BM25 ranks them
+ * by the query's terms, and reciprocal-rank fusion merges both lists. Exact identifiers,
+ * names and numbers that an embedding blurs still reach the top through the lexical list.
+ */
+@Slf4j
+@Component
+public class HybridRetriever {
+
+    private final TreeTraversalRetriever traversal;
+    private final RaptorProperties.Retrieval settings;
+
+    public HybridRetriever(TreeTraversalRetriever traversal, RaptorProperties properties) {
+        this.traversal = traversal;
+        this.settings = properties.getRetrieval();
+    }
+
+    public RetrievalResult retrieve(
+            TreeIndex index,
+            LexicalIndex lexical,
+            float[] vector,
+            String query,
+            Integer beamWidth,
+            NodeTexts texts) {
+        long start = System.nanoTime();
+        RetrievalResult vectorResult = traversal.retrieve(index, vector, beamWidth);
+        LexicalIndex.SearchResult lexicalResult = lexical.search(query, settings.getLexicalCandidates());
+
+        List<RetrievedNode> nodes = fuse(vectorResult.getNodes(), lexicalResult.hits(),
+                settings.getRrfK(), settings.getHybridResults(), texts);
+
+        long latencyMicros = (System.nanoTime() - start) / 1_000;
+        log.debug("Hybrid query: {} traversal nodes, {} lexical matches, {} fused in {}us",
+                vectorResult.getNodes().size(), lexicalResult.matchedNodes(), nodes.size(), latencyMicros);
+        return new RetrievalResult(nodes, vectorResult.getVisitedNodes() + lexicalResult.matchedNodes(),
+                vectorResult.getTotalNodes(), latencyMicros);
+    }
+
+    /**
+     * Reciprocal-rank fusion: a node scores {@code 1 / (rrfK + rank)} for each list it
+     * appears in (rank from 1), and the {@code limit} best fused scores are returned.
+     */
+    static List<RetrievedNode> fuse(
+            List<RetrievedNode> vectorNodes,
+            List<LexicalIndex.LexicalHit> lexicalHits,
+            int rrfK,
+            int limit,
+            NodeTexts texts) {
+        if (rrfK < 0 || limit < 1) {
+            throw new IllegalArgumentException("RRF k must be at least 0 and the result limit at least 1");
+        }
+
+        Map<Long, RetrievedNode> fused = new LinkedHashMap<>();
+        List<RetrievedNode> byScore = new ArrayList<>(vectorNodes);
+        byScore.sort(Comparator.comparingDouble(RetrievedNode::getScore).reversed());
+        Set<Long> ranked = new HashSet<>();
+        int rank = 0;
+        for (RetrievedNode node : byScore) {
+            long key = key(node.getLayer(), node.getId());
+            if (ranked.add(key)) {
+                rank++;
+                fused.put(key, new RetrievedNode(node.getLayer(), node.getId(), node.getText(), 1.0 / (rrfK + rank)));
+            }
+        }
+
+        rank = 0;
+        for (LexicalIndex.LexicalHit hit : lexicalHits) {
+            rank++;
+            double score = 1.0 / (rrfK + rank);
+            RetrievedNode node = fused.get(key(hit.layer(), hit.id()));
+            if (node != null) {
+                node.setScore(node.getScore() + score);
+            } else {
+                fused.put(key(hit.layer(), hit.id()),
+                        new RetrievedNode(hit.layer(), hit.id(), texts.text(hit.layer(), hit.id()), score));
+            }
+        }
+
+        return fused.values().stream()
+                .sorted(Comparator.comparingDouble(RetrievedNode::getScore).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static long key(int layer, int id) {
+        return ((long) layer << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Text of a node found only by the lexical search.
+     */
+    @FunctionalInterface
+    public interface NodeTexts {
+        String text(int layer, int id);
+    }
+}
@@ -0,0 +1,131 @@
+package it.raptor_service.service.retrieval;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.RetrievalResult;
+import it.raptor_service.service.cache.EmbeddingCache;
+import it.raptor_service.service.lexical.LexicalIndex;
+import it.raptor_service.service.observation.RaptorObservations;
+import it.raptor_service.service.repository.StoredTree;
+import it.raptor_service.service.repository.TreeRepository;
+import it.raptor_service.service.resilience.ModelCallExecutor;
+import it.raptor_service.service.resilience.ModelOperation;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Answers queries against built trees. Search layouts and lexical indexes of stored trees
+ * are kept for the most recently queried trees, so a query only embeds the question and
+ * walks the tree (and, for hybrid queries, reads the postings of its terms).
+ */
+@Slf4j
+@Service
+public class RetrievalService {
+
+    private final TreeRepository treeRepository;
+    private final TreeTraversalRetriever retriever;
+    private final HybridRetriever hybridRetriever;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingCache embeddingCache;
+    private final ModelCallExecutor modelCalls;
+    private final SimilarityCalculator similarityCalculator;
+    private final RaptorObservations observations;
+    private final RaptorProperties.Retrieval settings;
+    private final Cache<String, TreeIndex> indexes;
+    private final Cache<String, LexicalIndex> lexicalIndexes;
+
+    public RetrievalService(
+            TreeRepository treeRepository,
+            TreeTraversalRetriever retriever,
+            HybridRetriever hybridRetriever,
+            EmbeddingModel embeddingModel,
+            EmbeddingCache embeddingCache,
+            ModelCallExecutor modelCalls,
+            SimilarityCalculator similarityCalculator,
+            RaptorObservations observations,
+            RaptorProperties properties) {
+        this.treeRepository = treeRepository;
+        this.retriever = retriever;
+        this.hybridRetriever = hybridRetriever;
+        this.embeddingModel = embeddingModel;
+        this.embeddingCache = embeddingCache;
+        this.modelCalls = modelCalls;
+        this.similarityCalculator = similarityCalculator;
+        this.observations = observations;
+        this.settings = properties.getRetrieval();
+        this.indexes = Caffeine.newBuilder()
+                .maximumSize(properties.getRepository().getHotTrees())
+                .build();
+        this.lexicalIndexes = Caffeine.newBuilder()
+                .maximumSize(properties.getRepository().getHotTrees())
+                .build();
+    }
+
+    /**
+     * Queries the latest stored tree of a document; empty if there is none.
+     *
+     * @param hybrid fuse the traversal with BM25 results; {@code null} uses {@code raptor.retrieval.hybrid}
+     */
+    public Optional<RetrievalResult> query(String documentId, String query, Integer beamWidth, Boolean hybrid) {
+        Optional<StoredTree> found = treeRepository.findByDocumentId(documentId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query cannot be empty");
+        }
+
+        StoredTree tree = found.get();
+        TreeIndex index = indexes.get(tree.getContentHash(),
+                hash -> TreeIndex.of(tree, similarityCalculator));
+        boolean fused = hybrid != null ? hybrid : settings.isHybrid();
+
+        return Optional.of(observations.observation("raptor.retrieve")
+                .lowCardinalityKeyValue("retrieval.mode", fused ? "hybrid" : "tree")
+                .highCardinalityKeyValue("tree.nodes", String.valueOf(index.totalNodes()))
+                .observe(() -> {
+                    float[] vector = embedQuery(query);
+                    RetrievalResult result = fused
+                            ? hybridRetriever.retrieve(index, lexicalIndex(tree), vector, query, beamWidth,
+                                    (layer, id) -> nodeText(tree, index, layer, id))
+                            : retriever.retrieve(index, vector, beamWidth);
+                    observations.tag("visited.nodes", result.getVisitedNodes());
+                    observations.tag("traversal.micros", result.getLatencyMicros());
+                    log.info("Query scored {} of {} nodes in {}us, returned {} nodes",
+                            result.getVisitedNodes(), result.getTotalNodes(), result.getLatencyMicros(),
+                            result.getNodes().size());
+                    return result;
+                }));
+    }
+
+    private LexicalIndex lexicalIndex(StoredTree tree) {
+        return lexicalIndexes.get(tree.getContentHash(), hash -> new LexicalIndex(
+                tree.levels().stream().map(tree::lexicalSegment).toList(),
+                settings.getBm25K1(), settings.getBm25B()));
+    }
+
+    /**
+     * Chunk ids index the tree's texts, which start with the chunks; summary ids are rows of
+     * their layer.
+     */
+    private static String nodeText(StoredTree tree, TreeIndex index, int layer, int id) {
+        return layer == 0
+                ? tree.allTexts().get(id)
+                : index.layer(layer).texts().get(id);
+    }
+
+    private float[] embedQuery(String query) {
+        float[] cached = embeddingCache.get(query);
+        if (cached != null) {
+            return cached;
+        }
+        float[] vector = modelCalls.call(ModelOperation.EMBEDDING, () -> embeddingModel.embed(query));
+        embeddingCache.put(query, vector);
+        return vector;
+    }
+}
@@ -0,0 +1,306 @@
+package it.raptor_service.service.retrieval;
+
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.quantization.QuantizationType;
+import it.raptor_service.service.quantization.VectorBlock;
+import it.raptor_service.service.repository.LevelMetadata;
+import it.raptor_service.service.repository.StoredTree;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A built tree laid out for top-down search. Layer 0 holds the chunks, layer {@code k}
+ * the cluster summaries of level {@code k}; every node has a vector and the rows of its
+ * children in the layer below.
+ * <p>
+ * A level-{@code k} summary's vector is the embedding level {@code k + 1} computed for it.
+ * The top level's summaries were never embedded, so they use the normalized centroid of
+ * their children instead of a model call per query. Embedded vectors are scored in the
+ * block they were read from, scaled by their inverse norm; only centroids are computed.
+ */
+public final class TreeIndex {
+
+    private final List<Layer> layers;
+
+    private TreeIndex(List<Layer> layers) {
+        this.layers = layers;
+    }
+
+    public static TreeIndex of(Map<Integer, LevelResult> levels, SimilarityCalculator similarityCalculator) {
+        return build(level -> levels.containsKey(level) ? IndexLevel.of(levels.get(level)) : null,
+                similarityCalculator);
+    }
+
+    /**
+     * Lays out a stored tree one level at a time: each level's metadata is read once, and
+     * the vectors stay in the mapped segment file in the format they were stored in.
+     */
+    public static TreeIndex of(StoredTree tree, SimilarityCalculator similarityCalculator) {
+        Set<Integer> stored = Set.copyOf(tree.levels());
+        return build(level -> stored.contains(level) ? IndexLevel.of(tree.metadata(level), tree.vectors(level)) : null,
+                similarityCalculator);
+    }
+
+    /**
+     * Highest layer; 0 when no level was summarized.
+     */
+    public int topLayer() {
+        return layers.size() - 1;
+    }
+
+    public Layer layer(int layer) {
+        return layers.get(layer);
+    }
+
+    public int totalNodes() {
+        return layers.stream().mapToInt(Layer::size).sum();
+    }
+
+    private static TreeIndex build(IntFunction<IndexLevel> levels, SimilarityCalculator similarityCalculator) {
+        IndexLevel current = levels.apply(1);
+        if (current == null) {
+            throw new IllegalArgumentException("Tree has no level 1");
+        }
+
+        List<Layer> layers = new ArrayList<>();
+        Map<Integer, Integer> chunkRows = new HashMap<>();
+        layers.add(chunkLayer(current, chunkRows, similarityCalculator));
+
+        // Only the level being laid out and the one above it are held at a time
+        for (int level = 1; current != null && !current.summaries().isEmpty(); level++) {
+            IndexLevel above = levels.apply(level + 1);
+            Map<Integer, Integer> childRows = level == 1 ? chunkRows : identityRows(layers.get(level - 1).size());
+            layers.add(summaryLayer(current, above, layers.get(level - 1), childRows, similarityCalculator));
+            current = above;
+        }
+        return new TreeIndex(List.copyOf(layers));
+    }
+
+    private static Layer chunkLayer(IndexLevel level, Map<Integer, Integer> rows, SimilarityCalculator similarity) {
+        VectorBlock block = level.vectors();
+        int[] ids = new int[block.rows()];
+        List<String> texts = new ArrayList<>(block.rows());
+        int[] blockRows = new int[block.rows()];
+        float[] inverseNorms = new float[block.rows()];
+        int size = 0;
+
+        for (int row = 0; row < block.rows(); row++) {
+            float inverseNorm = inverseNorm(block, row, similarity);
+            if (inverseNorm == 0.0f) {
+                // Rows without a vector have nothing to score
+                continue;
+            }
+            rows.put(level.embeddingIds().get(row), size);
+            ids[size] = level.embeddingIds().get(row);
+            texts.add(level.embeddingTexts().get(row));
+            blockRows[size] = row;
+            inverseNorms[size] = inverseNorm;
+            size++;
+        }
+        return new Layer(Arrays.copyOf(ids, size), texts, new int[size][], block,
+                Arrays.copyOf(blockRows, size), Arrays.copyOf(inverseNorms, size), new float[size][]);
+    }
+
+    private static Layer summaryLayer(
+            IndexLevel current,
+            IndexLevel above,
+            Layer below,
+            Map<Integer, Integer> childRows,
+            SimilarityCalculator similarity) {
+        List<ClusterSummary> summaries = current.summaries();
+        VectorBlock block = above != null ? above.vectors() : VectorBlock.encode(List.of(), 0, QuantizationType.NONE);
+        Map<Integer, Integer> embeddedRows = new HashMap<>();
+        if (above != null) {
+            for (int row = 0; row < block.rows(); row++) {
+                embeddedRows.put(above.embeddingIds().get(row), row);
+            }
+        }
+
+        int[] ids = new int[summaries.size()];
+        List<String> texts = new ArrayList<>(summaries.size());
+        int[][] children = new int[summaries.size()][];
+        int[] blockRows = new int[summaries.size()];
+        float[] inverseNorms = new float[summaries.size()];
+        float[][] centroids = new float[summaries.size()][];
+
+        for (int row = 0; row < summaries.size(); row++) {
+            ClusterSummary summary = summaries.get(row);
+            children[row] = summary.getTextIds().stream()
+                    .map(childRows::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            Integer embedded = embeddedRows.get(row);
+            float inverseNorm = embedded != null ? inverseNorm(block, embedded, similarity) : 0.0f;
+            if (inverseNorm != 0.0f) {
+                blockRows[row] = embedded;
+                inverseNorms[row] = inverseNorm;
+            } else {
+                blockRows[row] = -1;
+                centroids[row] = centroid(children[row], below, similarity);
+            }
+            ids[row] = row;
+            texts.add(summary.getSummary());
+        }
+        return new Layer(ids, texts, children, block, blockRows, inverseNorms, centroids);
+    }
+
+    private static float inverseNorm(VectorBlock block, int row, SimilarityCalculator similarity) {
+        float[] vector = block.toFloatArray(row);
+        double norm = Math.sqrt(similarity.calculateDotProduct(vector, vector));
+        return norm > 0.0 ? (float) (1.0 / norm) : 0.0f;
+    }
+
+    private static Map<Integer, Integer> identityRows(int size) {
+        Map<Integer, Integer> rows = new HashMap<>(size * 2);
+        for (int row = 0; row < size; row++) {
+            rows.put(row, row);
+        }
+        return rows;
+    }
+
+    private static float[] centroid(int[] rows, Layer layer, SimilarityCalculator similarity) {
+        if (rows.length == 0) {
+            return new float[0];
+        }
+        float[] sum = null;
+        for (int row : rows) {
+            float[] vector = layer.unitVector(row);
+            if (vector.length == 0) {
+                continue;
+            }
+            if (sum == null) {
+                sum = new float[vector.length];
+            }
+            for (int d = 0; d < sum.length; d++) {
+                sum[d] += vector[d];
+            }
+        }
+        return sum == null ? new float[0] : similarity.normalize(sum);
+    }
+
+    /**
+     * The nodes of one layer, addressed by row. A node's vector is either a row of the
+     * layer's vector block, scored in place and scaled by its inverse norm, or a centroid
+     * on the heap; a node with neither has no vector.
+     */
+    public static final class Layer {
+
+        private final int[] ids;
+        private final List<String> texts;
+        private final int[][] children;
+        private final VectorBlock block;
+        private final int[] blockRows;
+        private final float[] inverseNorms;
+        private final float[][] centroids;
+
+        private Layer(
+                int[] ids,
+                List<String> texts,
+                int[][] children,
+                VectorBlock block,
+                int[] blockRows,
+                float[] inverseNorms,
+                float[][] centroids) {
+            this.ids = ids;
+            this.texts = texts;
+            this.children = children;
+            this.block = block;
+            this.blockRows = blockRows;
+            this.inverseNorms = inverseNorms;
+            this.centroids = centroids;
+        }
+
+        public int[] ids() {
+            return ids;
+        }
+
+        public List<String> texts() {
+            return texts;
+        }
+
+        public int[][] children() {
+            return children;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public boolean hasVector(int row) {
+            return blockRows[row] >= 0 || centroids[row].length > 0;
+        }
+
+        public int dimensions(int row) {
+            return blockRows[row] >= 0 ? block.dimensions() : centroids[row].length;
+        }
+
+        /**
+         * Cosine similarity of a node to a unit query.
+         */
+        public double score(int row, float[] unitQuery) {
+            if (blockRows[row] >= 0) {
+                return block.dot(blockRows[row], unitQuery) * inverseNorms[row];
+            }
+            float[] centroid = centroids[row];
+            double sum = 0.0;
+            for (int d = 0; d < centroid.length; d++) {
+                sum += centroid[d] * unitQuery[d];
+            }
+            return sum;
+        }
+
+        float[] unitVector(int row) {
+            if (blockRows[row] < 0) {
+                return centroids[row];
+            }
+            float[] vector = block.toFloatArray(blockRows[row]);
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] *= inverseNorms[row];
+            }
+            return vector;
+        }
+    }
+
+    /**
+     * The parts of one level the layout reads: its embedding rows and its summaries.
+     */
+    private record IndexLevel(
+            List<Integer> embeddingIds,
+            List<String> embeddingTexts,
+            VectorBlock vectors,
+            List<ClusterSummary> summaries) {
+
+        static IndexLevel of(LevelMetadata metadata, VectorBlock vectors) {
+            return new IndexLevel(metadata.embeddingIds(), metadata.embeddingTexts(), vectors, metadata.summaries());
+        }
+
+        /**
+         * A level built in this process; its rows without a vector are left out.
+         */
+        static IndexLevel of(LevelResult level) {
+            List<TextEmbedding> embedded = level.getEmbeddings().stream()
+                    .filter(embedding -> embedding.getEmbedding() != null && embedding.getEmbedding().length > 0)
+                    .toList();
+            int dimensions = embedded.isEmpty() ? 0 : embedded.get(0).getEmbedding().length;
+            return new IndexLevel(
+                    embedded.stream().map(TextEmbedding::getId).toList(),
+                    embedded.stream().map(TextEmbedding::getText).toList(),
+                    VectorBlock.encode(embedded.stream().map(TextEmbedding::getEmbedding).toList(),
+                            dimensions, QuantizationType.NONE),
+                    level.getSummaries());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package it.raptor_service.service.retrieval;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.RetrievalResult;
+import it.raptor_service.model.RetrievedNode;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * RAPTOR tree-traversal retrieval: scores every node of the top layer, keeps the best
+ * {@code beam-width} and scores only their children in the layer below, down to the chunks.
+ * A query scores the top layer plus about {@code beam * fan-in} nodes per layer instead of
+ * every node in the tree.
+ */
+@Slf4j
+@Component
+public class TreeTraversalRetriever {
+
+    private final RaptorProperties.Retrieval settings;
+    private final SimilarityCalculator similarityCalculator;
+
+    public TreeTraversalRetriever(RaptorProperties properties, SimilarityCalculator similarityCalculator) {
+        this.settings = properties.getRetrieval();
+        this.similarityCalculator = similarityCalculator;
+    }
+
+    /**
+     * @param beamWidth nodes kept per layer for this query; {@code null} uses the configured widths
+     */
+    public RetrievalResult retrieve(TreeIndex index, float[] query, Integer beamWidth) {
+        long start = System.nanoTime();
+        float[] unitQuery = similarityCalculator.normalize(query);
+
+        List<RetrievedNode> nodes = new ArrayList<>();
+        int visited = 0;
+        int[] frontier = IntStream.range(0, index.layer(index.topLayer()).size()).toArray();
+
+        for (int layer = index.topLayer(); layer >= 0 && frontier.length > 0; layer--) {
+            TreeIndex.Layer nodesOfLayer = index.layer(layer);
+            double[] scores = score(nodesOfLayer, frontier, unitQuery);
+            visited += frontier.length;
+
+            int[] selected = best(frontier, scores, beamWidth(layer, beamWidth));
+            for (int i : selected) {
+                int row = frontier[i];
+                nodes.add(new RetrievedNode(layer, nodesOfLayer.ids()[row], nodesOfLayer.texts().get(row), scores[i]));
+            }
+
+            if (layer > 0) {
+                int[] scored = frontier;
+                frontier = Arrays.stream(selected)
+                        .flatMap(i -> Arrays.stream(nodesOfLayer.children()[scored[i]]))
+                        .distinct()
+                        .toArray();
+            }
+        }
+
+        long latencyMicros = (System.nanoTime() - start) / 1_000;
+        log.debug("Tree traversal scored {} of {} nodes in {}us", visited, index.totalNodes(), latencyMicros);
+        return new RetrievalResult(nodes, visited, index.totalNodes(), latencyMicros);
+    }
+
+    int beamWidth(int layer, Integer override) {
+        int width = override != null ? override : settings.getLevelBeamWidth().getOrDefault(layer, settings.getBeamWidth());
+        if (width < 1) {
+            throw new IllegalArgumentException("Beam width must be at least 1, got " + width);
+        }
+        return width;
+    }
+
+    private double[] score(TreeIndex.Layer layer, int[] rows, float[] unitQuery) {
+        double[] scores = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            if (!layer.hasVector(rows[i])) {
+                // A summary whose cluster had no usable vectors
+                scores[i] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            if (layer.dimensions(rows[i]) != unitQuery.length) {
+                throw new IllegalArgumentException("Query embedding has " + unitQuery.length
+                        + " dimensions, the tree was built with " + layer.dimensions(rows[i]));
+            }
+            scores[i] = layer.score(rows[i], unitQuery);
+        }
+        return scores;
+    }
+
+    /**
+     * Positions in {@code rows} of the {@code width} highest scores, best first.
+     */
+    private static int[] best(int[] rows, double[] scores, int width) {
+        return IntStream.range(0, rows.length)
+                .filter(i -> scores[i] != Double.NEGATIVE_INFINITY)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+                .limit(width)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
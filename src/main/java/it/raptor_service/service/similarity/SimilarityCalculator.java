@@ -1,10 +1,25 @@
 package it.raptor_service.service.similarity;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+@Slf4j
 @Component
 public class SimilarityCalculator {
 
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private final SimilarityKernels kernels;
+
+    public SimilarityCalculator() {
+        this(selectKernels());
+        log.info("Similarity kernels: {}", kernels.name());
+    }
+
+    SimilarityCalculator(SimilarityKernels kernels) {
+        this.kernels = kernels;
+    }
+
     public double calculateCosineSimilarity(float[] a, float[] b) {
         if (a == null || b == null) {
             throw new IllegalArgumentException("Embedding arrays cannot be null");
@@ -14,34 +29,102 @@ public class SimilarityCalculator {
             throw new IllegalArgumentException("Embedding arrays must have same length");
         }
 
-        double dotProduct = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
+        return kernels.cosine(a, b);
+    }
 
-        for (int i = 0; i < a.length; i++) {
-            dotProduct += a[i] * b[i];
-            normA += a[i] * a[i];
-            normB += b[i] * b[i];
+    public double calculateEuclideanDistance(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Arrays must have same length");
         }
 
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
+        return Math.sqrt(kernels.squaredDistance(a, b));
+    }
+
+    /**
+     * Dot product; equals cosine similarity when both vectors are {@link #normalize normalized}.
+     */
+    public double calculateDotProduct(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Arrays must have same length");
         }
 
-        return dotProduct / (Math.sqrt(normA) * Math.sqrt(normB));
+        return kernels.dot(a, b);
     }
 
-    public double calculateEuclideanDistance(float[] a, float[] b) {
+    /**
+     * Returns a unit-length copy of the vector (a zero vector stays zero).
+     */
+    public float[] normalize(float[] vector) {
+        float[] result = vector.clone();
+        double norm = Math.sqrt(kernels.squaredNorm(vector));
+
+        if (norm > 0.0) {
+            float scale = (float) (1.0 / norm);
+            for (int i = 0; i < result.length; i++) {
+                result[i] *= scale;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cosine similarity of one query against many candidates, written to {@code out[i]}.
+     * The query norm is computed once.
+     */
+    public void calculateCosineSimilarities(float[] query, float[][] candidates, float[] out) {
+        requireCapacity(out, candidates.length);
+
+        double queryNorm = Math.sqrt(kernels.squaredNorm(query));
+        for (int i = 0; i < candidates.length; i++) {
+            requireSameLength(query, candidates[i]);
+            double candidateNorm = Math.sqrt(kernels.squaredNorm(candidates[i]));
+            out[i] = cosineFromParts(kernels.dot(query, candidates[i]), queryNorm, candidateNorm);
+        }
+    }
+
+    /**
+     * One-vs-many for pre-normalized vectors: cosine reduces to a dot product.
+     */
+    public void calculateDotProducts(float[] query, float[][] normalizedCandidates, float[] out) {
+        requireCapacity(out, normalizedCandidates.length);
+
+        for (int i = 0; i < normalizedCandidates.length; i++) {
+            requireSameLength(query, normalizedCandidates[i]);
+            out[i] = (float) kernels.dot(query, normalizedCandidates[i]);
+        }
+    }
+
+    private static float cosineFromParts(double dot, double normA, double normB) {
+        if (normA == 0.0 || normB == 0.0) {
+            return 0.0f;
+        }
+        return (float) (dot / (normA * normB));
+    }
+
+    private static void requireSameLength(float[] a, float[] b) {
+        if (a == null || b == null) {
+            throw new IllegalArgumentException("Embedding arrays cannot be null");
+        }
         if (a.length != b.length) {
-            throw new IllegalArgumentException("Arrays must have same length");
+            throw new IllegalArgumentException("Embedding arrays must have same length");
         }
+    }
 
-        double sum = 0.0;
-        for (int i = 0; i < a.length; i++) {
-            double diff = a[i] - b[i];
-            sum += diff * diff;
+    private static void requireCapacity(float[] out, int required) {
+        if (out.length < required) {
+            throw new IllegalArgumentException(
+                    "Output array too small: expected at least " + required + ", got " + out.length);
         }
+    }
 
-        return Math.sqrt(sum);
+    private static SimilarityKernels selectKernels() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return new VectorApiSimilarityKernels();
+            } catch (LinkageError e) {
+                log.warn("Vector API unavailable, using scalar similarity kernels: {}", e.getMessage());
+            }
+        }
+        return new ScalarSimilarityKernels();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package it.raptor_service.service.similarity;
+
+/**
+ * Inner loops behind {@link SimilarityCalculator}. Callers validate lengths.
+ */
+interface SimilarityKernels {
+
+    double dot(float[] a, float[] b);
+
+    double squaredNorm(float[] a);
+
+    /**
+     * Cosine similarity in a single pass over both arrays; 0 when either norm is 0.
+     */
+    double cosine(float[] a, float[] b);
+
+    double squaredDistance(float[] a, float[] b);
+
+    String name();
+}
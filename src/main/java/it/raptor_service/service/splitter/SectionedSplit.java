@@ -0,0 +1,53 @@
+package it.raptor_service.service.splitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a text handed over section by section. The last chunk of each section may still
+ * continue in the next one, so it is held back and split again together with it; overlap
+ * is added once all sections are in, so it crosses section seams like any other boundary.
+ */
+public final class SectionedSplit {
+
+    private final TextSplitterService splitter;
+    private final SplitConfig config;
+    private final List<String> chunks = new ArrayList<>();
+    private String tail = "";
+
+    SectionedSplit(TextSplitterService splitter, SplitConfig config) {
+        this.splitter = splitter;
+        this.config = config;
+    }
+
+    /**
+     * Adds the next section; sections are consecutive pieces of the text, separators included.
+     */
+    public void add(String section) {
+        String text = tail + section;
+        if (text.isBlank()) {
+            tail = text;
+            return;
+        }
+        List<String> split = splitter.split(text, config);
+        if (split.size() == 1) {
+            tail = text;
+            return;
+        }
+        chunks.addAll(split.subList(0, split.size() - 1));
+        // Chunks are trimmed; the whitespace the text ended with separates the tail from what follows
+        tail = split.get(split.size() - 1) + text.substring(text.stripTrailing().length());
+    }
+
+    public List<String> finish() {
+        if (chunks.isEmpty()) {
+            // The whole text, split in one go
+            return tail.isBlank() ? List.of() : splitter.splitText(tail, config);
+        }
+        if (!tail.isBlank()) {
+            chunks.addAll(splitter.split(tail, config));
+        }
+        tail = "";
+        return config.isAddOverlap() ? splitter.addOverlapToChunks(chunks, config) : chunks;
+    }
+}
@@ -1,25 +1,43 @@
 package it.raptor_service.service.splitter;
 
+import it.raptor_service.config.RaptorProperties;
 import it.raptor_service.service.splitter.util.SentenceSplitter;
 import it.raptor_service.service.splitter.util.TokenEstimator;
-import lombok.AllArgsConstructor;
+import it.raptor_service.service.splitter.util.TokenEstimator.TextStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
+@Slf4j
 @Service
-@AllArgsConstructor
 public class TextSplitterService {
 
     private final TokenEstimator tokenEstimator;
     private final SentenceSplitter sentenceSplitter;
+    private final RaptorProperties.Processing processing;
+    private final ForkJoinPool forkJoinPool;
 
     private static final List<String> SEPARATORS = Arrays.asList(
             "\n\n", "\n", ". ", "! ", "? ", "; ", ", ", " ", ""
     );
 
+    public TextSplitterService(TokenEstimator tokenEstimator, SentenceSplitter sentenceSplitter, RaptorProperties properties) {
+        this.tokenEstimator = tokenEstimator;
+        this.sentenceSplitter = sentenceSplitter;
+        this.processing = properties.getProcessing();
+        int parallelism = processing.getSplitParallelism() > 0
+                ? processing.getSplitParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
     public List<String> splitText(String text, int chunkSize) {
         return splitText(text, new SplitConfig(chunkSize));
     }
@@ -31,42 +49,136 @@ public class TextSplitterService {
             return List.of(text.trim());
         }
 
-        List<String> chunks = config.isPreserveSentences()
+        List<String> chunks = split(text, config);
+        return config.isAddOverlap() ? addOverlapToChunks(chunks, config) : chunks;
+    }
+
+    /**
+     * Chunks of a text over the chunk size, before overlap is added.
+     */
+    List<String> split(String text, SplitConfig config) {
+        return config.isPreserveSentences()
                 ? splitPreservingSentences(text, config)
                 : splitRecursively(text, config.getChunkSize(), 0);
+    }
 
-        return config.isAddOverlap() ? addOverlapToChunks(chunks, config) : chunks;
+    /**
+     * Splits a text that arrives in pieces, such as a document that is still being parsed.
+     */
+    public SectionedSplit sectionedSplit(int chunkSize) {
+        return new SectionedSplit(this, new SplitConfig(chunkSize));
     }
 
+    /**
+     * Large texts are cut into sections at paragraph breaks that are also sentence breaks,
+     * and the sections are split into sentences and measured in parallel. Grouping then walks
+     * the measured sentences in order, so the chunks are the same as a sequential split.
+     */
     private List<String> splitPreservingSentences(String text, SplitConfig config) {
-        List<String> sentences = sentenceSplitter.splitIntoSentences(text);
+        int chunkSize = config.getChunkSize();
+        List<String> sections = text.length() >= processing.getParallelSplitMinChars()
+                ? cutAtParagraphs(text.trim(), processing.getSplitSectionChars())
+                : List.of(text);
+
+        List<Sentence> sentences = inParallel(sections.size(),
+                i -> measureSentences(sections.get(i), chunkSize)).stream()
+                .flatMap(List::stream)
+                .toList();
         if (sentences.isEmpty()) {
-            return splitRecursively(text, config.getChunkSize(), 0);
+            return splitRecursively(text, chunkSize, 0);
+        }
+        if (sections.size() > 1) {
+            log.debug("Split {} characters as {} parallel sections", text.length(), sections.size());
+        }
+        return groupSentencesIntoChunks(sentences, chunkSize);
+    }
+
+    private List<Sentence> measureSentences(String section, int chunkSize) {
+        List<String> texts = sentenceSplitter.splitIntoSentences(section);
+        List<Sentence> sentences = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            TextStats stats = tokenEstimator.stats(text);
+            int tokens = tokenEstimator.estimateTokenCount(stats);
+            List<String> pieces = tokens > chunkSize ? splitRecursively(text, chunkSize, 0) : null;
+            sentences.add(new Sentence(text, stats, pieces));
+        }
+        return sentences;
+    }
+
+    /**
+     * Sections of roughly {@code sectionChars} characters. A cut replaces a whitespace run that
+     * holds a blank line and follows {@code .}, {@code !} or {@code ?}: the sentence pattern
+     * splits there anyway, so no sentence changes.
+     */
+    private static List<String> cutAtParagraphs(String text, int sectionChars) {
+        List<String> sections = new ArrayList<>();
+        int start = 0;
+        while (text.length() - start > sectionChars) {
+            int[] cut = findSentenceParagraphBreak(text, start, start + sectionChars);
+            if (cut == null) {
+                break;
+            }
+            sections.add(text.substring(start, cut[0]));
+            start = cut[1];
+        }
+        sections.add(text.substring(start));
+        return sections;
+    }
+
+    private static int[] findSentenceParagraphBreak(String text, int sectionStart, int from) {
+        int blankLine = text.indexOf("\n\n", from);
+        while (blankLine >= 0) {
+            int runStart = blankLine;
+            while (runStart > sectionStart && isWhitespace(text.charAt(runStart - 1))) {
+                runStart--;
+            }
+            int runEnd = blankLine;
+            while (runEnd < text.length() && isWhitespace(text.charAt(runEnd))) {
+                runEnd++;
+            }
+            if (runStart > sectionStart && runEnd < text.length() && ".!?".indexOf(text.charAt(runStart - 1)) >= 0) {
+                return new int[]{runStart, runEnd};
+            }
+            blankLine = text.indexOf("\n\n", runEnd);
         }
-        return groupSentencesIntoChunks(sentences, config.getChunkSize());
+        return null;
+    }
+
+    // The characters matched by \s, which the sentence pattern splits on
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
     }
 
-    private List<String> groupSentencesIntoChunks(List<String> sentences, int chunkSize) {
+    private List<String> groupSentencesIntoChunks(List<Sentence> sentences, int chunkSize) {
         List<String> chunks = new ArrayList<>();
         StringBuilder currentChunk = new StringBuilder();
+        TextStats currentStats = null;
 
-        for (String sentence : sentences) {
-            int sentenceTokens = tokenEstimator.estimateTokenCount(sentence);
-            if (sentenceTokens > chunkSize) {
-                chunks.addAll(splitRecursively(sentence, chunkSize, 0));
+        for (Sentence sentence : sentences) {
+            if (sentence.oversizedPieces() != null) {
+                // The sentences before it come first
+                if (!currentChunk.isEmpty()) {
+                    chunks.add(currentChunk.toString());
+                    currentChunk = new StringBuilder();
+                }
+                chunks.addAll(sentence.oversizedPieces());
                 continue;
             }
             if (currentChunk.isEmpty()) {
-                currentChunk.append(sentence);
+                currentChunk.append(sentence.text());
+                currentStats = sentence.stats();
                 continue;
             }
 
-            String combined = currentChunk.toString() + " " + sentence;
+            // Sentences are trimmed, so the stats of "current + ' ' + sentence" add up exactly
+            TextStats combined = currentStats.join(sentence.stats());
             if (tokenEstimator.estimateTokenCount(combined) > chunkSize) {
                 chunks.add(currentChunk.toString());
-                currentChunk = new StringBuilder(sentence);
+                currentChunk = new StringBuilder(sentence.text());
+                currentStats = sentence.stats();
             } else {
-                currentChunk.append(" ").append(sentence);
+                currentChunk.append(" ").append(sentence.text());
+                currentStats = combined;
             }
         }
         if (!currentChunk.isEmpty()) {
@@ -124,19 +236,28 @@ public class TextSplitterService {
         return result;
     }
 
-    private List<String> addOverlapToChunks(List<String> chunks, SplitConfig config) {
+    List<String> addOverlapToChunks(List<String> chunks, SplitConfig config) {
         if (chunks.size() <= 1 || config.getOverlapSize() <= 0) return chunks;
 
-        List<String> overlappedChunks = new ArrayList<>();
-        overlappedChunks.add(chunks.get(0));
+        // Each chunk only depends on its predecessor, so chunks are overlapped independently
+        return inParallel(chunks.size(), i -> {
+            if (i == 0) {
+                return chunks.get(0);
+            }
+            String overlap = extractOverlap(chunks.get(i - 1), config.getOverlapSize());
+            return overlap.isEmpty() ? chunks.get(i) : (overlap + " " + chunks.get(i));
+        });
+    }
 
-        for (int i = 1; i < chunks.size(); i++) {
-            String prev = chunks.get(i - 1);
-            String curr = chunks.get(i);
-            String overlap = extractOverlap(prev, config.getOverlapSize());
-            overlappedChunks.add(overlap.isEmpty() ? curr : (overlap + " " + curr));
+    /**
+     * Results of {@code task} for {@code 0..count-1}, in index order; computed on the
+     * splitter's fork-join pool when there is more than one.
+     */
+    private <T> List<T> inParallel(int count, IntFunction<T> task) {
+        if (count <= 1 || forkJoinPool.getParallelism() == 1) {
+            return IntStream.range(0, count).mapToObj(task).toList();
         }
-        return overlappedChunks;
+        return forkJoinPool.submit(() -> IntStream.range(0, count).parallel().mapToObj(task).toList()).join();
     }
 
     private String extractOverlap(String text, int overlapTokens) {
@@ -194,4 +315,15 @@ public class TextSplitterService {
                 maxTokens
         );
     }
-}
\ No newline at end of file
+
+    @PreDestroy
+    public void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    /**
+     * A sentence with its token stats, and its recursive split when it is over the chunk size.
+     */
+    private record Sentence(String text, TextStats stats, List<String> oversizedPieces) {
+    }
+}
@@ -11,21 +11,95 @@ public class TokenEstimator {
      * Improved token count estimation
      */
     public int estimateTokenCount(String text) {
-        if (text == null || text.trim().isEmpty()) {
+        if (text == null) {
             return 0;
         }
+        return estimateTokenCount(stats(text));
+    }
+
+    /**
+     * Estimate from precomputed {@link TextStats}, e.g. of several texts {@link TextStats#join joined}.
+     */
+    public int estimateTokenCount(TextStats stats) {
+        if (stats.normalizedLength() == 0) {
+            return 0;
+        }
+
+        double baseCount = stats.normalizedLength() / CHARS_PER_TOKEN_ESTIMATE;
+        return Math.max(1, (int) Math.ceil(baseCount + stats.punctuation() * 0.3));
+    }
+
+    /**
+     * Length and punctuation count of the text with whitespace runs collapsed to one space
+     * and the ends trimmed; computed in one pass without building the normalized string.
+     */
+    public TextStats stats(String text) {
+        int emitted = 0;
+        int first = -1;
+        int last = -1;
+        long punctuation = 0;
+        long punctuationBeforeFirst = 0;
+        long punctuationThroughLast = 0;
+        boolean inWhitespaceRun = false;
 
-        String normalized = text.replaceAll("\\s+", " ").trim();
-        double baseCount = normalized.length() / CHARS_PER_TOKEN_ESTIMATE;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (isRegexWhitespace(ch)) {
+                if (inWhitespaceRun) {
+                    continue;
+                }
+                // A whitespace run becomes one space, which is never punctuation
+                inWhitespaceRun = true;
+                ch = ' ';
+            } else {
+                inWhitespaceRun = false;
+            }
 
-        long punctuationCount = normalized.chars()
-                .filter(ch -> !Character.isLetterOrDigit(ch) && !Character.isWhitespace(ch))
-                .count();
+            boolean significant = ch > ' ';
+            if (significant && first < 0) {
+                first = emitted;
+                punctuationBeforeFirst = punctuation;
+            }
+            if (!Character.isLetterOrDigit(ch) && !Character.isWhitespace(ch)) {
+                punctuation++;
+            }
+            if (significant) {
+                last = emitted;
+                punctuationThroughLast = punctuation;
+            }
+            emitted++;
+        }
 
-        return Math.max(1, (int) Math.ceil(baseCount + punctuationCount * 0.3));
+        return first < 0
+                ? new TextStats(0, 0)
+                : new TextStats(last - first + 1, punctuationThroughLast - punctuationBeforeFirst);
     }
 
     public int getApproxCharSize(int chunkSize) {
         return (int) (chunkSize * CHARS_PER_TOKEN_ESTIMATE);
     }
+
+    // The characters matched by \s in java.util.regex
+    private static boolean isRegexWhitespace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == 0x0B || ch == '\f' || ch == '\r';
+    }
+
+    /**
+     * Normalized length and punctuation count of a text.
+     */
+    public record TextStats(int normalizedLength, long punctuation) {
+
+        /**
+         * Stats of {@code this + " " + other} for texts without leading or trailing whitespace.
+         */
+        public TextStats join(TextStats other) {
+            if (normalizedLength == 0) {
+                return other;
+            }
+            if (other.normalizedLength == 0) {
+                return this;
+            }
+            return new TextStats(normalizedLength + 1 + other.normalizedLength, punctuation + other.punctuation);
+        }
+    }
 }
@@ -0,0 +1,203 @@
+package it.raptor_service.service.subtree;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Splits the level-1 chunks of a large job into shards whose subtrees are built independently.
+ * Shards list chunk indices in document order.
+ */
+@Slf4j
+@Component
+public class ShardPartitioner {
+
+    private static final int KMEANS_ITERATIONS = 10;
+    private static final int SAMPLE_PER_SHARD = 32;
+
+    private final RaptorProperties properties;
+    private final SimilarityCalculator similarityCalculator;
+
+    public ShardPartitioner(RaptorProperties properties, SimilarityCalculator similarityCalculator) {
+        this.properties = properties;
+        this.similarityCalculator = similarityCalculator;
+    }
+
+    /**
+     * Contiguous runs of at most {@code shardSize} chunks, as even as possible.
+     */
+    public List<int[]> byDocumentOrder(int size, int shardSize) {
+        int count = Math.ceilDiv(size, Math.max(1, shardSize));
+        List<int[]> shards = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int start = (int) ((long) shard * size / count);
+            int end = (int) ((long) (shard + 1) * size / count);
+            shards.add(IntStream.range(start, end).toArray());
+        }
+        return shards;
+    }
+
+    /**
+     * Topic-coherent shards of at most {@code shardSize} chunks: spherical k-means on a sample
+     * places one centroid per shard, then the chunks closest to a centroid are placed first and
+     * each goes to the most similar centroid that still has room.
+     */
+    public List<int[]> byTopic(List<TextEmbedding> embeddings, int shardSize) {
+        int size = embeddings.size();
+        int capacity = Math.max(1, shardSize);
+        int count = Math.ceilDiv(size, capacity);
+        if (count <= 1) {
+            return byDocumentOrder(size, capacity);
+        }
+
+        float[][] vectors = embeddings.stream()
+                .map(embedding -> similarityCalculator.normalize(embedding.getEmbedding()))
+                .toArray(float[][]::new);
+        float[][] centroids = fitCentroids(vectors, count, new Random(properties.getClustering().getSeed()));
+
+        int[] nearest = new int[size];
+        float[] nearestSimilarity = new float[size];
+        IntStream.range(0, size).parallel().forEach(i -> {
+            nearest[i] = mostSimilar(vectors[i], centroids, null, capacity);
+            nearestSimilarity[i] = (float) similarityCalculator.calculateDotProduct(vectors[i], centroids[nearest[i]]);
+        });
+
+        Integer[] order = IntStream.range(0, size).boxed().toArray(Integer[]::new);
+        Arrays.sort(order, Comparator.comparingDouble(i -> -nearestSimilarity[i]));
+
+        int[] filled = new int[count];
+        int[] assignment = new int[size];
+        int displaced = 0;
+        for (int i : order) {
+            int shard = nearest[i];
+            if (filled[shard] >= capacity) {
+                shard = mostSimilar(vectors[i], centroids, filled, capacity);
+                displaced++;
+            }
+            assignment[i] = shard;
+            filled[shard]++;
+        }
+
+        int[][] members = new int[count][];
+        for (int shard = 0; shard < count; shard++) {
+            members[shard] = new int[filled[shard]];
+        }
+        int[] next = new int[count];
+        for (int i = 0; i < size; i++) {
+            members[assignment[i]][next[assignment[i]]++] = i;
+        }
+        List<int[]> shards = Arrays.stream(members)
+                .filter(shard -> shard.length > 0)
+                .toList();
+
+        log.debug("Partitioned {} chunks into {} topic shards ({} placed past a full shard)",
+                size, shards.size(), displaced);
+        return shards;
+    }
+
+    private float[][] fitCentroids(float[][] vectors, int count, Random random) {
+        int[] sample = sample(vectors.length, Math.min(vectors.length, count * SAMPLE_PER_SHARD), random);
+        float[][] centroids = seedCentroids(vectors, sample, count, random);
+
+        int[] assignment = new int[sample.length];
+        for (int iteration = 0; iteration < KMEANS_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < sample.length; i++) {
+                int shard = mostSimilar(vectors[sample[i]], centroids, null, 0);
+                changed |= iteration == 0 || shard != assignment[i];
+                assignment[i] = shard;
+            }
+            if (!changed) {
+                break;
+            }
+
+            float[][] sums = new float[count][vectors[0].length];
+            int[] members = new int[count];
+            for (int i = 0; i < sample.length; i++) {
+                members[assignment[i]]++;
+                float[] vector = vectors[sample[i]];
+                float[] sum = sums[assignment[i]];
+                for (int d = 0; d < sum.length; d++) {
+                    sum[d] += vector[d];
+                }
+            }
+            for (int shard = 0; shard < count; shard++) {
+                // An empty centroid keeps its position
+                if (members[shard] > 0) {
+                    centroids[shard] = similarityCalculator.normalize(sums[shard]);
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * k-means++ seeding with cosine distance.
+     */
+    private float[][] seedCentroids(float[][] vectors, int[] sample, int count, Random random) {
+        float[][] centroids = new float[count][];
+        double[] distances = new double[sample.length];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        centroids[0] = vectors[sample[random.nextInt(sample.length)]];
+
+        for (int shard = 1; shard < count; shard++) {
+            double total = 0.0;
+            for (int i = 0; i < sample.length; i++) {
+                double distance = 1.0 - similarityCalculator.calculateDotProduct(vectors[sample[i]], centroids[shard - 1]);
+                distances[i] = Math.min(distances[i], Math.max(0.0, distance));
+                total += distances[i];
+            }
+
+            int chosen = random.nextInt(sample.length);
+            double target = random.nextDouble() * total;
+            for (int i = 0; i < sample.length && total > 0; i++) {
+                target -= distances[i];
+                if (target <= 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            centroids[shard] = vectors[sample[chosen]];
+        }
+        return centroids;
+    }
+
+    /**
+     * Most similar centroid, skipping full ones when {@code filled} is given.
+     */
+    private int mostSimilar(float[] vector, float[][] centroids, int[] filled, int capacity) {
+        int best = -1;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int shard = 0; shard < centroids.length; shard++) {
+            if (filled != null && filled[shard] >= capacity) {
+                continue;
+            }
+            double similarity = similarityCalculator.calculateDotProduct(vector, centroids[shard]);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = shard;
+            }
+        }
+        return best;
+    }
+
+    private static int[] sample(int size, int sampleSize, Random random) {
+        int[] indices = IntStream.range(0, size).toArray();
+        for (int i = 0; i < sampleSize; i++) {
+            int swap = i + random.nextInt(size - i);
+            int tmp = indices[i];
+            indices[i] = indices[swap];
+            indices[swap] = tmp;
+        }
+        return Arrays.copyOf(indices, sampleSize);
+    }
+}
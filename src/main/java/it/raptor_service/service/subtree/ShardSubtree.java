@@ -0,0 +1,20 @@
+package it.raptor_service.service.subtree;
+
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+
+import java.util.List;
+
+/**
+ * Levels built from one shard, starting at level 1. Ids inside the levels are local to the
+ * shard; {@code chunkIndices} maps level-1 ids back to the job's chunks.
+ */
+public record ShardSubtree(int[] chunkIndices, List<LevelResult> levels) {
+
+    /**
+     * Summaries of the shard's top level.
+     */
+    public List<ClusterSummary> roots() {
+        return levels.isEmpty() ? List.of() : levels.get(levels.size() - 1).getSummaries();
+    }
+}
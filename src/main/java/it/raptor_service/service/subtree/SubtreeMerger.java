@@ -0,0 +1,112 @@
+package it.raptor_service.service.subtree;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Combines shard subtrees into job-wide levels. Clusters and summaries are renumbered in shard
+ * order; level-1 ids become chunk indices, and ids at higher levels point at the merged
+ * summaries of the level below. A shard that stopped below the deepest one carries its roots
+ * up as single-member pass-through nodes, so every merged level holds every shard and the
+ * top level's summaries are the roots of all shards.
+ */
+public final class SubtreeMerger {
+
+    private SubtreeMerger() {
+    }
+
+    public static List<LevelResult> mergeLevels(List<ShardSubtree> shards) {
+        int depth = shards.stream().mapToInt(shard -> shard.levels().size()).max().orElse(0);
+        List<LevelResult> merged = new ArrayList<>(depth);
+        // Where each shard's summaries start in the merged level below
+        int[] summaryOffsets = new int[shards.size()];
+
+        for (int index = 0; index < depth; index++) {
+            int level = index + 1;
+            List<TextEmbedding> embeddings = new ArrayList<>();
+            List<Cluster> clusters = new ArrayList<>();
+            List<ClusterSummary> summaries = new ArrayList<>();
+            int[] nextOffsets = new int[shards.size()];
+
+            for (int s = 0; s < shards.size(); s++) {
+                ShardSubtree shard = shards.get(s);
+                int inputOffset = summaryOffsets[s];
+                if (shard.levels().size() <= index) {
+                    nextOffsets[s] = clusters.size();
+                    passThrough(shard.roots(), level, inputOffset, clusters, summaries);
+                    continue;
+                }
+                LevelResult result = shard.levels().get(index);
+                IntUnaryOperator inputId = level == 1
+                        ? id -> id >= 0 && id < shard.chunkIndices().length ? shard.chunkIndices()[id] : id
+                        : id -> inputOffset + id;
+                int clusterOffset = clusters.size();
+                nextOffsets[s] = clusterOffset;
+
+                for (TextEmbedding embedding : result.getEmbeddings()) {
+                    embeddings.add(new TextEmbedding(
+                            inputId.applyAsInt(embedding.getId()), embedding.getText(), embedding.getEmbedding()));
+                }
+                for (Cluster cluster : result.getClusters()) {
+                    clusters.add(new Cluster(clusterOffset + cluster.getId(), cluster.getTexts(),
+                            mapIds(cluster.getTextIds(), inputId)));
+                }
+                for (ClusterSummary summary : result.getSummaries()) {
+                    summaries.add(new ClusterSummary(clusterOffset + summary.getId(), level, summary.getSummary(),
+                            mapIds(summary.getTextIds(), inputId), summary.getPromptTokens()));
+                }
+            }
+
+            if (level == 1) {
+                embeddings.sort(Comparator.comparingInt(TextEmbedding::getId));
+            }
+            merged.add(new LevelResult(level, embeddings, clusters, summaries));
+            summaryOffsets = nextOffsets;
+        }
+        return merged;
+    }
+
+    /**
+     * Texts the shared levels start from: the summaries of the top merged level, in order, so
+     * the first shared level's ids point at them.
+     */
+    public static List<String> roots(List<LevelResult> merged) {
+        return merged.isEmpty() ? List.of() : merged.get(merged.size() - 1).getSummaries().stream()
+                .map(ClusterSummary::getSummary)
+                .toList();
+    }
+
+    /**
+     * Repeats a finished shard's roots one level up. They were not embedded at this level,
+     * so the nodes have no embedding rows; retrieval scores them through their child.
+     */
+    private static void passThrough(
+            List<ClusterSummary> roots,
+            int level,
+            int inputOffset,
+            List<Cluster> clusters,
+            List<ClusterSummary> summaries) {
+        for (int root = 0; root < roots.size(); root++) {
+            int id = clusters.size();
+            String text = roots.get(root).getSummary();
+            List<Integer> textIds = List.of(inputOffset + root);
+            clusters.add(new Cluster(id, List.of(text), textIds));
+            summaries.add(new ClusterSummary(id, level, text, textIds));
+        }
+    }
+
+    private static List<Integer> mapIds(List<Integer> ids, IntUnaryOperator mapping) {
+        List<Integer> mapped = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            mapped.add(mapping.applyAsInt(id));
+        }
+        return mapped;
+    }
+}
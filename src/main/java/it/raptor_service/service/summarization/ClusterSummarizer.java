@@ -0,0 +1,185 @@
+package it.raptor_service.service.summarization;
+
+import io.micrometer.observation.Observation;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.service.observation.RaptorObservations;
+import it.raptor_service.service.resilience.ModelCallExecutor;
+import it.raptor_service.service.resilience.ModelOperation;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Summarizes a cluster within the prompt token budget.
+ * <p>
+ * A cluster that fits is summarized with one prompt. A larger one is packed into
+ * budget-sized groups whose partial summaries are generated in parallel (map), then
+ * combined, packing again while the partials themselves do not fit (reduce). If a reduce
+ * round cannot fit two partials into one prompt it fails rather than drop any of them.
+ */
+@Slf4j
+@Component
+public class ClusterSummarizer {
+
+    static final String SEPARATOR = "\n--- --- \n --- --- \n";
+
+    private static final String SUMMARY_TEMPLATE = """
+        Here is a subset of documentation that needs to be summarized.
+
+        The documentation provides detailed information about a specific topic.
+
+        Give a detailed summary of the documentation provided, maintaining key concepts and important details.
+
+        Documentation:
+        {context}
+
+        Summary:
+        """;
+
+    private static final String COMBINE_TEMPLATE = """
+        Here are partial summaries of consecutive parts of the same documentation.
+
+        Combine them into a single detailed summary, maintaining key concepts and important details
+        and removing repetition between the parts.
+
+        Partial summaries:
+        {context}
+
+        Summary:
+        """;
+
+    private final ChatModel chatModel;
+    private final ContextPacker contextPacker;
+    private final RaptorProperties properties;
+    private final RaptorObservations observations;
+    private final ModelCallExecutor modelCalls;
+    private final SummaryModelRouter modelRouter;
+    private final ExecutorService executor;
+
+    public ClusterSummarizer(
+            ChatModel chatModel,
+            ContextPacker contextPacker,
+            RaptorProperties properties,
+            RaptorObservations observations,
+            ModelCallExecutor modelCalls,
+            SummaryModelRouter modelRouter) {
+        this.chatModel = chatModel;
+        this.contextPacker = contextPacker;
+        this.properties = properties;
+        this.observations = observations;
+        this.modelCalls = modelCalls;
+        this.modelRouter = modelRouter;
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, properties.getProcessing().getSummaryParallelism()));
+    }
+
+    public ClusterSummary summarize(Cluster cluster, int level) {
+        List<Integer> promptTokens = new ArrayList<>();
+        String summary = summarize(cluster.getTexts(), SUMMARY_TEMPLATE, level, promptTokens, 0, Integer.MAX_VALUE);
+
+        observations.tag("prompts", promptTokens.size());
+        observations.tag("prompt.tokens", promptTokens);
+        log.debug("Cluster {} at level {} summarized with {} prompt(s), tokens per prompt {}",
+                cluster.getId(), level, promptTokens.size(), promptTokens);
+
+        return new ClusterSummary(cluster.getId(), level, summary, cluster.getTextIds(), promptTokens);
+    }
+
+    /**
+     * @param previousPacks packs of the previous round; a round must use fewer to make progress
+     */
+    private String summarize(
+            List<String> texts,
+            String template,
+            int level,
+            List<Integer> promptTokens,
+            int round,
+            int previousPacks) {
+        int budget = properties.getProcessing().getSummaryPromptMaxTokens() - templateTokens(template);
+        List<ContextPack> packs = contextPacker.pack(texts, SEPARATOR, Math.max(1, budget));
+
+        if (packs.size() >= previousPacks) {
+            throw new IllegalStateException("Partial summaries do not shrink within the prompt budget: "
+                    + packs.size() + " packs after " + round + " reduce round(s)");
+        }
+        if (packs.size() == 1) {
+            String prompt = render(template, packs.get(0));
+            promptTokens.add(contextPacker.estimateTokens(prompt));
+            return call(prompt, round == 0 ? "single" : "reduce", level, null);
+        }
+
+        // Map: partial summaries in parallel, collected in pack order
+        Observation parent = observations.current();
+        List<Future<String>> partials = new ArrayList<>(packs.size());
+        for (ContextPack pack : packs) {
+            String prompt = render(template, pack);
+            promptTokens.add(contextPacker.estimateTokens(prompt));
+            partials.add(executor.submit(() -> call(prompt, "map", level, parent)));
+        }
+
+        List<String> partialSummaries = new ArrayList<>(partials.size());
+        for (Future<String> partial : partials) {
+            partialSummaries.add(await(partial));
+        }
+
+        log.debug("Map step produced {} partial summaries (round {})", partialSummaries.size(), round);
+        return summarize(partialSummaries, COMBINE_TEMPLATE, level, promptTokens, round + 1, packs.size());
+    }
+
+    private String call(String prompt, String phase, int level, Observation parent) {
+        int tokens = contextPacker.estimateTokens(prompt);
+        OllamaOptions options = modelRouter.optionsFor(level, tokens);
+        Prompt request = options != null
+                ? new Prompt(new UserMessage(prompt), options)
+                : new Prompt(new UserMessage(prompt));
+
+        return observations.childOf("raptor.summarize.prompt", parent != null ? parent : observations.current())
+                .lowCardinalityKeyValue("phase", phase)
+                .lowCardinalityKeyValue("model", options != null && options.getModel() != null ? options.getModel() : "default")
+                .highCardinalityKeyValue("prompt.tokens", String.valueOf(tokens))
+                .observe(() -> modelCalls.call(ModelOperation.CHAT, () -> chatModel.call(request)
+                        .getResult()
+                        .getOutput()
+                        .getText()));
+    }
+
+    private int templateTokens(String template) {
+        return contextPacker.estimateTokens(new PromptTemplate(template).render(Map.of("context", "")));
+    }
+
+    private static String render(String template, ContextPack pack) {
+        String context = String.join(SEPARATOR, pack.texts());
+        return new PromptTemplate(template).render(Map.of("context", context));
+    }
+
+    private static String await(Future<String> partial) {
+        try {
+            return partial.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for partial summaries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Partial summary failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,9 @@
+package it.raptor_service.service.summarization;
+
+import java.util.List;
+
+/**
+ * Texts that go into one prompt, with their estimated token count including separators.
+ */
+public record ContextPack(List<String> texts, int tokens) {
+}
@@ -0,0 +1,89 @@
+package it.raptor_service.service.summarization;
+
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs texts into prompt-sized groups. Packing is greedy and keeps the input order, so
+ * the same texts and budget always give the same packs (and the same prompts).
+ */
+@Component
+public class ContextPacker {
+
+    private final TokenEstimator tokenEstimator;
+
+    public ContextPacker(TokenEstimator tokenEstimator) {
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    public int estimateTokens(String text) {
+        return tokenEstimator.estimateTokenCount(text);
+    }
+
+    /**
+     * Splits {@code texts} into packs of at most {@code budget} tokens when joined with
+     * {@code separator}. A text that alone exceeds the budget is split into consecutive
+     * pieces that each fit, preferring whitespace boundaries; no text is dropped or cut short.
+     */
+    public List<ContextPack> pack(List<String> texts, String separator, int budget) {
+        if (budget < 1) {
+            throw new IllegalArgumentException("Token budget must be positive");
+        }
+
+        int separatorTokens = tokenEstimator.estimateTokenCount(separator);
+        List<ContextPack> packs = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+
+        for (String text : texts) {
+            for (String piece : fit(text, budget)) {
+                int tokens = tokenEstimator.estimateTokenCount(piece);
+                int added = current.isEmpty() ? tokens : tokens + separatorTokens;
+                if (!current.isEmpty() && currentTokens + added > budget) {
+                    packs.add(new ContextPack(current, currentTokens));
+                    current = new ArrayList<>();
+                    currentTokens = 0;
+                    added = tokens;
+                }
+                current.add(piece);
+                currentTokens += added;
+            }
+        }
+
+        if (!current.isEmpty()) {
+            packs.add(new ContextPack(current, currentTokens));
+        }
+        return packs;
+    }
+
+    /**
+     * The text itself if it fits, otherwise consecutive pieces that concatenate back to it.
+     */
+    private List<String> fit(String text, int budget) {
+        if (tokenEstimator.estimateTokenCount(text) <= budget) {
+            return List.of(text);
+        }
+
+        List<String> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + Math.max(1, tokenEstimator.getApproxCharSize(budget)));
+            // The estimate also charges punctuation, so shrink until it really fits
+            while (end > start + 1 && tokenEstimator.estimateTokenCount(text.substring(start, end)) > budget) {
+                end = start + (end - start) * 9 / 10;
+            }
+            if (end < text.length()) {
+                int space = text.lastIndexOf(' ', end - 1);
+                if (space > start + (end - start) / 2) {
+                    end = space + 1;
+                }
+            }
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+}
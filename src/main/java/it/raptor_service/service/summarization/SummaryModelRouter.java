@@ -0,0 +1,55 @@
+package it.raptor_service.service.summarization;
+
+import it.raptor_service.config.RaptorProperties;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses the chat model and generation settings for a summary prompt from the rule
+ * configured for its tree level ({@code raptor.routing.levels.<level>.*}).
+ */
+@Component
+public class SummaryModelRouter {
+
+    private final RaptorProperties properties;
+
+    public SummaryModelRouter(RaptorProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Options for a prompt of {@code promptTokens} at {@code level}, or {@code null} when the
+     * level has no rule and the configured chat defaults apply.
+     */
+    public OllamaOptions optionsFor(int level, int promptTokens) {
+        RaptorProperties.LevelModel rule = properties.getRouting().getLevels().get(level);
+        if (rule == null) {
+            return null;
+        }
+
+        OllamaOptions.Builder options = OllamaOptions.builder();
+        if (rule.getModel() != null && !rule.getModel().isBlank()) {
+            options.model(rule.getModel());
+        }
+        if (rule.getTemperature() != null) {
+            options.temperature(rule.getTemperature());
+        }
+        int budget = generationBudget(rule, promptTokens);
+        if (budget > 0) {
+            options.numPredict(budget);
+        }
+        return options.build();
+    }
+
+    /**
+     * {@code max-tokens}, or with {@code output-ratio} set, that share of the prompt clamped
+     * to {@code [min-tokens, max-tokens]}; 0 leaves the model default.
+     */
+    static int generationBudget(RaptorProperties.LevelModel rule, int promptTokens) {
+        if (rule.getMaxTokens() <= 0 || rule.getOutputRatio() <= 0) {
+            return Math.max(0, rule.getMaxTokens());
+        }
+        int scaled = (int) Math.ceil(promptTokens * rule.getOutputRatio());
+        return Math.min(rule.getMaxTokens(), Math.max(Math.min(rule.getMinTokens(), rule.getMaxTokens()), scaled));
+    }
+}
@@ -3,11 +3,24 @@ package it.raptor_service.service.validator;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @Component
 public class RaptorControllerValidator {
 
     private static final int MAX_FILE_SIZE_MB = 10;
     private static final int MAX_TEXT_LENGTH = 1000000;
+    // Formats the document extractor can read; the exact type is detected from the content
+    private static final List<String> SUPPORTED_TYPE_PREFIXES = List.of(
+            "text/",
+            "application/pdf",
+            "application/msword",
+            "application/vnd.openxmlformats-officedocument.",
+            "application/vnd.oasis.opendocument.",
+            "application/rtf",
+            "application/epub+zip",
+            "application/xhtml+xml"
+    );
 
     public String validateFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -19,20 +32,24 @@ public class RaptorControllerValidator {
         }
 
         String contentType = file.getContentType();
-        if (contentType == null || !contentType.startsWith("text/")) {
-            return "Error: Only text files are supported";
+        if (contentType == null || SUPPORTED_TYPE_PREFIXES.stream().noneMatch(contentType::startsWith)) {
+            return "Error: Unsupported file type";
         }
 
         return null;
     }
 
-    public String validateTextLength(String text) {
-        if (text != null && text.length() > MAX_TEXT_LENGTH) {
+    public String validateTextLength(long characters) {
+        if (characters > MAX_TEXT_LENGTH) {
             return "Error: File content too long. Maximum allowed: " + MAX_TEXT_LENGTH + " characters";
         }
 
         return null;
     }
+
+    public int getMaxTextLength() {
+        return MAX_TEXT_LENGTH;
+    }
 }
 
 
@@ -3,9 +3,19 @@ package it.raptor_service.web.rest;
 
 import it.raptor_service.model.ProcessResponse;
 import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.RetrievalResult;
 import it.raptor_service.service.RaptorService;
+import it.raptor_service.service.admission.AdmissionRejectedException;
+import it.raptor_service.service.admission.JobAdmission;
+import it.raptor_service.service.checkpoint.JobAlreadyRunningException;
+import it.raptor_service.service.extraction.DocumentTextExtractor;
+import it.raptor_service.service.extraction.ExtractedDocument;
+import it.raptor_service.service.repository.StoredTree;
+import it.raptor_service.service.repository.TreeRepository;
+import it.raptor_service.service.retrieval.RetrievalService;
 import it.raptor_service.service.validator.RaptorControllerValidator;
 import it.raptor_service.service.validator.ValidRaptorRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -14,13 +24,17 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/raptor")
@@ -33,17 +47,33 @@ public class RaptorController {
 
     private final RaptorService raptorService;
     private final RaptorControllerValidator raptorControllerValidator;
+    private final JobAdmission jobAdmission;
+    private final DocumentTextExtractor documentTextExtractor;
+    private final TreeRepository treeRepository;
+    private final RetrievalService retrievalService;
 
-    public RaptorController(RaptorService raptorService, RaptorControllerValidator raptorControllerValidator) {
+    public RaptorController(
+            RaptorService raptorService,
+            RaptorControllerValidator raptorControllerValidator,
+            JobAdmission jobAdmission,
+            DocumentTextExtractor documentTextExtractor,
+            TreeRepository treeRepository,
+            RetrievalService retrievalService) {
         this.raptorService = raptorService;
         this.raptorControllerValidator = raptorControllerValidator;
+        this.jobAdmission = jobAdmission;
+        this.documentTextExtractor = documentTextExtractor;
+        this.treeRepository = treeRepository;
+        this.retrievalService = retrievalService;
     }
 
     /**
      * Process text using RAPTOR algorithm
      */
     @PostMapping("/process")
-    public ResponseEntity<ProcessResponse> processText(@RequestBody @Valid ProcessRequest request) {
+    public ResponseEntity<ProcessResponse> processText(
+            @RequestBody @Valid ProcessRequest request,
+            HttpServletRequest servletRequest) {
         log.info("Processing text request with chunkSize={}, maxLevels={}", 
                 request.getChunkSize(), request.getMaxLevels());
     
@@ -51,9 +81,23 @@ public class RaptorController {
             int chunkSize = request.getChunkSize() != null ? request.getChunkSize() : 2000;
             int maxLevels = request.getMaxLevels() != null ? request.getMaxLevels() : 3;
 
-            RaptorResult result = raptorService.processText(request.getText(), chunkSize, maxLevels);
-            return ResponseEntity.ok(new ProcessResponse("Success", result));
+            String contentHash = treeRepository.contentHash(
+                    request.getText().getBytes(StandardCharsets.UTF_8), chunkSize, maxLevels);
+            Optional<RaptorResult> stored = storedTree(request.getDocumentId(), contentHash);
+            if (stored.isPresent()) {
+                return ResponseEntity.ok(new ProcessResponse("Success", stored.get()));
+            }
+
+            try (JobAdmission.Ticket ignored = jobAdmission.admit(servletRequest.getRemoteAddr(), request.getText(), chunkSize)) {
+                RaptorResult result = raptorService.processText(request.getText(), chunkSize, maxLevels, request.getJobId());
+                storeTree(request.getDocumentId(), contentHash, result);
+                return ResponseEntity.ok(new ProcessResponse("Success", result));
+            }
     
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (JobAlreadyRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ProcessResponse(e.getMessage(), null));
         } catch (Exception e) {
             log.error("Error processing text: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError()
@@ -62,13 +106,16 @@ public class RaptorController {
     }
     
     /**
-     * Process uploaded file using RAPTOR algorithm
+     * Process uploaded file (plain text, PDF, Office or other Tika-supported formats) using RAPTOR algorithm
      */
     @PostMapping("/process-file")
     public ResponseEntity<ProcessResponse> processFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "chunkSize", defaultValue = "2000") @Min(100) @Max(10000) int chunkSize,
-            @RequestParam(value = "maxLevels", defaultValue = "3") @Min(1) @Max(10) int maxLevels) {
+            @RequestParam(value = "maxLevels", defaultValue = "3") @Min(1) @Max(10) int maxLevels,
+            @RequestParam(value = "jobId", required = false) String jobId,
+            @RequestParam(value = "documentId", required = false) String documentId,
+            HttpServletRequest servletRequest) {
 
         log.info("Processing file: {} ({} bytes) with chunkSize={}, maxLevels={}", 
                 file.getOriginalFilename(), file.getSize(), chunkSize, maxLevels);
@@ -79,18 +126,40 @@ public class RaptorController {
                 return ResponseEntity.badRequest().body(new ProcessResponse(fileValidationError, null));
             }
 
-            String text = new String(file.getBytes(), StandardCharsets.UTF_8);
-            
-            String textValidationError = raptorControllerValidator.validateTextLength(text);
+            String contentHash = treeRepository.contentHash(file.getBytes(), chunkSize, maxLevels);
+            Optional<RaptorResult> stored = storedTree(documentId, contentHash);
+            if (stored.isPresent()) {
+                return ResponseEntity.ok(new ProcessResponse("Success", stored.get()));
+            }
+
+            // Extraction is the costly part of an upload, so an over-limit client is turned
+            // away before it; the slot is taken once the real chunk count is known
+            jobAdmission.checkRateLimit(servletRequest.getRemoteAddr());
+            ExtractedDocument document = documentTextExtractor.extract(
+                    file, chunkSize, raptorControllerValidator.getMaxTextLength());
+            log.info("Extracted {} chunks ({} characters) from {}",
+                    document.chunks().size(), document.characters(), document.mediaType());
+
+            String textValidationError = raptorControllerValidator.validateTextLength(document.characters());
             if (textValidationError != null) {
                 return ResponseEntity.badRequest().body(new ProcessResponse(textValidationError, null));
             }
+            if (document.chunks().isEmpty()) {
+                return ResponseEntity.badRequest().body(new ProcessResponse("Error: No text found in file", null));
+            }
 
-            RaptorResult result = raptorService.processText(text, chunkSize, maxLevels);
-            log.info("Successfully processed file with {} levels", result.getLevelResults().size());
+            try (JobAdmission.Ticket ignored = jobAdmission.admit(document.chunks().size())) {
+                RaptorResult result = raptorService.processChunks(document.chunks(), maxLevels, jobId);
+                log.info("Successfully processed file with {} levels", result.getLevelResults().size());
+                storeTree(documentId, contentHash, result);
 
-            return ResponseEntity.ok(new ProcessResponse("Success", result));
+                return ResponseEntity.ok(new ProcessResponse("Success", result));
+            }
 
+        } catch (AdmissionRejectedException e) {
+            return tooManyRequests(e);
+        } catch (JobAlreadyRunningException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ProcessResponse(e.getMessage(), null));
         } catch (IOException e) {
             log.error("Error reading file: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError()
@@ -102,6 +171,34 @@ public class RaptorController {
         }
     }
 
+    /**
+     * Get the latest stored tree of a document
+     */
+    @GetMapping("/trees/{documentId}")
+    public ResponseEntity<ProcessResponse> getTree(@PathVariable String documentId) {
+        return treeRepository.findByDocumentId(documentId)
+                .map(tree -> ResponseEntity.ok(new ProcessResponse("Success", tree.toResult())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ProcessResponse("No stored tree for document " + documentId, null)));
+    }
+
+    /**
+     * Query the latest stored tree of a document by tree traversal, optionally fused with BM25
+     */
+    @PostMapping("/trees/{documentId}/query")
+    public ResponseEntity<RetrievalResult> queryTree(
+            @PathVariable String documentId,
+            @RequestBody @Valid QueryRequest request) {
+        try {
+            return retrievalService.query(documentId, request.getQuery(), request.getBeamWidth(), request.getHybrid())
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected query on {}: {}", documentId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * Get health status
      */
@@ -114,6 +211,35 @@ public class RaptorController {
         ));
     }
 
+    /**
+     * The stored tree for identical content, also recorded under {@code documentId}.
+     */
+    private Optional<RaptorResult> storedTree(String documentId, String contentHash) {
+        Optional<StoredTree> tree = treeRepository.findByContentHash(contentHash);
+        if (tree.isEmpty()) {
+            return Optional.empty();
+        }
+        log.info("Returning stored tree {} instead of processing", contentHash);
+        RaptorResult result = tree.get().toResult();
+        storeTree(documentId, contentHash, result);
+        return Optional.of(result);
+    }
+
+    private void storeTree(String documentId, String contentHash, RaptorResult result) {
+        try {
+            treeRepository.save(documentId, contentHash, result);
+        } catch (UncheckedIOException e) {
+            // The tree was built; failing to keep it should not fail the request
+            log.warn("Could not store tree {}: {}", contentHash, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<ProcessResponse> tooManyRequests(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ProcessResponse(e.getMessage(), null));
+    }
+
     @ValidRaptorRequest
     @Data
     public static class ProcessRequest {
@@ -123,6 +249,25 @@ public class RaptorController {
         private Integer chunkSize;
 
         private Integer maxLevels;
+
+        /** Optional; re-submitting the same job id and text resumes from its checkpoint. */
+        private String jobId;
+
+        /** Optional; the tree is stored under this id and can be fetched again from /trees/{documentId}. */
+        private String documentId;
+    }
+
+    @Data
+    public static class QueryRequest {
+        @NotBlank(message = "Query cannot be empty")
+        private String query;
+
+        /** Optional; nodes kept per layer, overriding raptor.retrieval.beam-width. */
+        @Min(1)
+        private Integer beamWidth;
+
+        /** Optional; fuse traversal with BM25 results, overriding raptor.retrieval.hybrid. */
+        private Boolean hybrid;
     }
 
 }
\ No newline at end of file
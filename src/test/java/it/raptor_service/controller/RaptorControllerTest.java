@@ -3,6 +3,12 @@ package it.raptor_service.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.raptor_service.model.RaptorResult;
 import it.raptor_service.service.RaptorService;
+import it.raptor_service.service.admission.AdmissionRejectedException;
+import it.raptor_service.service.admission.JobAdmission;
+import it.raptor_service.service.extraction.DocumentTextExtractor;
+import it.raptor_service.service.extraction.ExtractedDocument;
+import it.raptor_service.service.repository.TreeRepository;
+import it.raptor_service.service.retrieval.RetrievalService;
 import it.raptor_service.service.validator.RaptorControllerValidator;
 import it.raptor_service.web.rest.RaptorController;
 import org.junit.jupiter.api.Test;
@@ -15,10 +21,15 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -36,6 +47,18 @@ class RaptorControllerTest {
     @MockBean
     private RaptorControllerValidator raptorControllerValidator;
 
+    @MockBean
+    private JobAdmission jobAdmission;
+
+    @MockBean
+    private DocumentTextExtractor documentTextExtractor;
+
+    @MockBean
+    private TreeRepository treeRepository;
+
+    @MockBean
+    private RetrievalService retrievalService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -51,7 +74,7 @@ class RaptorControllerTest {
     @Test
     void processText_withValidRequest_returnsOk() throws Exception {
         RaptorResult mockResult = new RaptorResult(Collections.emptyMap(), Collections.emptyList());
-        when(raptorService.processText(any(), anyInt(), anyInt())).thenReturn(mockResult);
+        when(raptorService.processText(any(), anyInt(), anyInt(), any())).thenReturn(mockResult);
 
         Map<String, Object> request = Map.of(
                 "text", "This is a test text.",
@@ -66,6 +89,21 @@ class RaptorControllerTest {
                 .andExpect(jsonPath("$.message").value("Success"));
     }
 
+    @Test
+    void processText_whenNotAdmitted_returnsTooManyRequests() throws Exception {
+        when(jobAdmission.admit(any(), any(), anyInt()))
+                .thenThrow(new AdmissionRejectedException("Too many jobs queued", 7));
+
+        Map<String, Object> request = Map.of("text", "This is a test text.");
+
+        mockMvc.perform(post("/api/raptor/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "7"))
+                .andExpect(jsonPath("$.message").value("Too many jobs queued"));
+    }
+
     @Test
     void processText_withEmptyText_returnsBadRequest() throws Exception {
         Map<String, Object> request = Map.of("text", "");
@@ -79,7 +117,9 @@ class RaptorControllerTest {
     @Test
     void processFile_withValidFile_returnsOk() throws Exception {
         RaptorResult mockResult = new RaptorResult(Collections.emptyMap(), Collections.emptyList());
-        when(raptorService.processText(any(), anyInt(), anyInt())).thenReturn(mockResult);
+        when(documentTextExtractor.extract(any(), anyInt(), anyLong())).thenReturn(new ExtractedDocument(
+                "text/plain", List.of("This is the file content."), 25, 0, false));
+        when(raptorService.processChunks(any(), anyInt(), any())).thenReturn(mockResult);
 
         MockMultipartFile file = new MockMultipartFile(
                 "file",
@@ -96,6 +136,25 @@ class RaptorControllerTest {
                 .andExpect(jsonPath("$.message").value("Success"));
     }
 
+    @Test
+    void processFile_whenRateLimited_returnsTooManyRequestsWithoutExtracting() throws Exception {
+        doThrow(new AdmissionRejectedException("Rate limit exceeded", 30))
+                .when(jobAdmission).checkRateLimit(any());
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.txt",
+                "text/plain",
+                "This is the file content.".getBytes()
+        );
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/api/raptor/process-file")
+                        .file(file))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"));
+        verify(documentTextExtractor, never()).extract(any(), anyInt(), anyLong());
+    }
+
     @Test
     void processFile_withEmptyFile_returnsBadRequest() throws Exception {
         MockMultipartFile file = new MockMultipartFile(
@@ -141,12 +200,12 @@ class RaptorControllerTest {
                 "image content".getBytes()
         );
 
-        when(raptorControllerValidator.validateFile(any())).thenReturn("Error: Only text files are supported");
+        when(raptorControllerValidator.validateFile(any())).thenReturn("Error: Unsupported file type");
 
         mockMvc.perform(MockMvcRequestBuilders.multipart("/api/raptor/process-file")
                         .file(file))
                 .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.message").value("Error: Only text files are supported"));
+                .andExpect(jsonPath("$.message").value("Error: Unsupported file type"));
     }
 
     @Test
@@ -164,7 +223,9 @@ class RaptorControllerTest {
                 longText.toString().getBytes()
         );
 
-        when(raptorControllerValidator.validateTextLength(any())).thenReturn("Error: File content too long. Maximum allowed: 1000000 characters");
+        when(documentTextExtractor.extract(any(), anyInt(), anyLong())).thenReturn(new ExtractedDocument(
+                "text/plain", List.of(), 1000001, 0, true));
+        when(raptorControllerValidator.validateTextLength(anyLong())).thenReturn("Error: File content too long. Maximum allowed: 1000000 characters");
 
         mockMvc.perform(MockMvcRequestBuilders.multipart("/api/raptor/process-file")
                         .file(file))
@@ -0,0 +1,128 @@
+package it.raptor_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.cache.EmbeddingCache;
+import it.raptor_service.service.checkpoint.CheckpointStore;
+import it.raptor_service.service.clustering.ClusteringService;
+import it.raptor_service.service.dedup.ChunkDeduplicator;
+import it.raptor_service.service.observation.RaptorObservations;
+import it.raptor_service.service.offheap.DirectBufferPool;
+import it.raptor_service.service.resilience.ModelCallExecutor;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import it.raptor_service.service.splitter.TextSplitterService;
+import it.raptor_service.service.splitter.util.SentenceSplitter;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import it.raptor_service.service.subtree.ShardPartitioner;
+import it.raptor_service.service.summarization.ClusterSummarizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RaptorServiceTest {
+
+    private final RaptorProperties properties = new RaptorProperties();
+    private final ClusteringService clusteringService = mock(ClusteringService.class);
+    private final ClusterSummarizer clusterSummarizer = mock(ClusterSummarizer.class);
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+
+    @Test
+    void processChunks_carriesShallowerShardRootsIntoTheSharedLevels() {
+        properties.getSubtrees().setEnabled(true);
+        properties.getSubtrees().setMinChunks(2);
+        properties.getSubtrees().setShardChunks(3);
+        properties.getSubtrees().setShardLevels(2);
+        properties.getSubtrees().setParallelism(1);
+        properties.getDeduplication().setEnabled(false);
+
+        // Shard [a, b] is done after level 1, shard [c, d, e] needs a level 2
+        RaptorResult result = service().processChunks(List.of("a", "b", "c", "d", "e"), 3, null);
+
+        assertEquals(List.of("(a + b)", "((c + d) + (e))"), summaries(result.getLevelResults().get(2)));
+        assertEquals(List.of("((a + b) + ((c + d) + (e)))"), summaries(result.getLevelResults().get(3)));
+        assertEquals(Set.of(0, 1, 2, 3, 4), reachedChunks(result, 3, 0));
+    }
+
+    private RaptorService service() {
+        when(embeddingModel.call(any(EmbeddingRequest.class))).thenAnswer(invocation -> {
+            EmbeddingRequest request = invocation.getArgument(0);
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(new float[]{text.length(), 1}, embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        });
+        // Consecutive texts pair up
+        when(clusteringService.performClustering(anyList(), anyInt())).thenAnswer(invocation -> {
+            List<TextEmbedding> embeddings = invocation.getArgument(0);
+            List<Cluster> clusters = new ArrayList<>();
+            for (int start = 0; start < embeddings.size(); start += 2) {
+                List<TextEmbedding> members = embeddings.subList(start, Math.min(start + 2, embeddings.size()));
+                clusters.add(new Cluster(clusters.size(),
+                        members.stream().map(TextEmbedding::getText).toList(),
+                        members.stream().map(TextEmbedding::getId).toList()));
+            }
+            return clusters;
+        });
+        when(clusterSummarizer.summarize(any(Cluster.class), anyInt())).thenAnswer(invocation -> {
+            Cluster cluster = invocation.getArgument(0);
+            int level = invocation.getArgument(1);
+            return new ClusterSummary(cluster.getId(), level,
+                    "(" + String.join(" + ", cluster.getTexts()) + ")", cluster.getTextIds());
+        });
+
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        return new RaptorService(clusterSummarizer, embeddingModel, clusteringService,
+                new TextSplitterService(new TokenEstimator(), new SentenceSplitter(), properties),
+                properties,
+                new RaptorObservations(properties, beans.getBeanProvider(ObservationRegistry.class)),
+                new EmbeddingCache(properties, beans.getBeanProvider(MeterRegistry.class)),
+                new DirectBufferPool(properties),
+                new ModelCallExecutor(properties, beans.getBeanProvider(MeterRegistry.class)),
+                new CheckpointStore(properties, new ObjectMapper()),
+                new ChunkDeduplicator(properties, new TokenEstimator()),
+                new ShardPartitioner(properties, new SimilarityCalculator()));
+    }
+
+    private static List<String> summaries(LevelResult level) {
+        return level.getSummaries().stream().map(ClusterSummary::getSummary).toList();
+    }
+
+    /**
+     * Chunks under a summary: {@code textIds} at level 1 are chunk indices, above they are
+     * summaries of the level below.
+     */
+    private static Set<Integer> reachedChunks(RaptorResult result, int level, int summaryId) {
+        List<Integer> textIds = result.getLevelResults().get(level).getSummaries().get(summaryId).getTextIds();
+        if (level == 1) {
+            return new TreeSet<>(textIds);
+        }
+        Set<Integer> chunks = new TreeSet<>();
+        for (int id : textIds) {
+            chunks.addAll(reachedChunks(result, level - 1, id));
+        }
+        return chunks;
+    }
+}
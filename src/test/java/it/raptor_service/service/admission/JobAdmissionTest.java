@@ -0,0 +1,142 @@
+package it.raptor_service.service.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobAdmissionTest {
+
+    private static final String SMALL = "short text";
+    private static final String LARGE = "x".repeat(100_000);
+
+    @Test
+    void interactiveJobsOvertakeQueuedBatchJobs() throws Exception {
+        RaptorProperties properties = properties(1, 1, 8);
+        JobAdmission admission = admission(properties);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        JobAdmission.Ticket running = admission.admit("a", LARGE, 1000);
+        Thread batch = waitFor(admission, "batch", LARGE, order);
+        awaitQueued(admission, 1);
+        Thread interactive = waitFor(admission, "interactive", SMALL, order);
+        awaitQueued(admission, 2);
+
+        running.close();
+        batch.join(5000);
+        interactive.join(5000);
+
+        assertEquals(List.of("interactive", "batch"), order);
+        assertEquals(0, admission.runningJobs());
+    }
+
+    @Test
+    void interactiveSlotStaysFreeWhileBatchJobRuns() {
+        JobAdmission admission = admission(properties(2, 1, 8));
+
+        try (JobAdmission.Ticket batch = admission.admit("a", LARGE, 1000);
+             JobAdmission.Ticket interactive = admission.admit("b", SMALL, 1000)) {
+            assertEquals(JobLane.BATCH, batch.lane());
+            assertEquals(JobLane.INTERACTIVE, interactive.lane());
+            assertEquals(2, admission.runningJobs());
+        }
+    }
+
+    @Test
+    void fullQueueIsRejectedWithRetryHint() {
+        RaptorProperties properties = properties(1, 1, 0);
+        JobAdmission admission = admission(properties);
+
+        try (JobAdmission.Ticket ignored = admission.admit("a", SMALL, 1000)) {
+            AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class,
+                    () -> admission.admit("b", SMALL, 1000));
+            assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        }
+    }
+
+    @Test
+    void rateLimitIsPerClient() {
+        RaptorProperties properties = properties(4, 2, 8);
+        properties.getSecurity().setEnableRateLimiting(true);
+        properties.getSecurity().setMaxRequestsPerMinute(2);
+        Clock clock = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+        JobAdmission admission = new JobAdmission(properties, new ClientRateLimiter(properties, clock),
+                new TokenEstimator(), (MeterRegistry) null);
+
+        admission.admit("a", SMALL, 1000).close();
+        admission.admit("a", SMALL, 1000).close();
+        AdmissionRejectedException rejected = assertThrows(AdmissionRejectedException.class,
+                () -> admission.admit("a", SMALL, 1000));
+        assertEquals(30, rejected.getRetryAfterSeconds());
+
+        admission.admit("b", SMALL, 1000).close();
+    }
+
+    @Test
+    void rateLimitCheckedBeforeExtractionIsNotChargedAgainOnAdmission() {
+        RaptorProperties properties = properties(4, 2, 8);
+        properties.getSecurity().setEnableRateLimiting(true);
+        properties.getSecurity().setMaxRequestsPerMinute(1);
+        Clock clock = Clock.fixed(Instant.EPOCH, ZoneOffset.UTC);
+        JobAdmission admission = new JobAdmission(properties, new ClientRateLimiter(properties, clock),
+                new TokenEstimator(), (MeterRegistry) null);
+
+        admission.checkRateLimit("a");
+        try (JobAdmission.Ticket ticket = admission.admit(500)) {
+            assertEquals(JobLane.BATCH, ticket.lane());
+        }
+        assertThrows(AdmissionRejectedException.class, () -> admission.checkRateLimit("a"));
+    }
+
+    private static Thread waitFor(JobAdmission admission, String name, String text, List<String> order) {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            started.countDown();
+            try (JobAdmission.Ticket ignored = admission.admit(name, text, 1000)) {
+                order.add(name);
+            }
+        });
+        thread.start();
+        try {
+            started.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return thread;
+    }
+
+    private static void awaitQueued(JobAdmission admission, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (admission.queuedJobs() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, admission.queuedJobs());
+    }
+
+    private static JobAdmission admission(RaptorProperties properties) {
+        return new JobAdmission(properties, new ClientRateLimiter(properties), new TokenEstimator(),
+                (MeterRegistry) null);
+    }
+
+    private static RaptorProperties properties(int maxConcurrent, int maxBatch, int maxQueued) {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getAdmission().setMaxConcurrentJobs(maxConcurrent);
+        properties.getAdmission().setMaxConcurrentBatchJobs(maxBatch);
+        properties.getAdmission().setMaxQueuedJobs(maxQueued);
+        properties.getAdmission().setInteractiveMaxChunks(8);
+        properties.getAdmission().setQueueTimeoutMs(10_000);
+        return properties;
+    }
+}
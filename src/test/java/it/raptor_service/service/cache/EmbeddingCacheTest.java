@@ -0,0 +1,30 @@
+package it.raptor_service.service.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.quantization.QuantizationType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EmbeddingCacheTest {
+
+    @Test
+    void hitReturnsTheExactVectorWhateverTheStorageQuantization() {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getProcessing().setEmbeddingQuantization(QuantizationType.INT8);
+        properties.getMonitoring().setEnableMetrics(false);
+        EmbeddingCache cache = new EmbeddingCache(properties,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        float[] vector = {0.123456f, -0.987654f, 0.000321f};
+
+        assertNull(cache.get("chunk"));
+        cache.put("chunk", vector);
+        vector[0] = 1.0f;
+
+        // Clustering sees the same vector on a repeat run as on the first
+        assertArrayEquals(new float[]{0.123456f, -0.987654f, 0.000321f}, cache.get("chunk"));
+    }
+}
@@ -0,0 +1,115 @@
+package it.raptor_service.service.checkpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobCheckpointTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedCheckpointRestoresLevelsAndSummaries() throws Exception {
+        Path file = directory.resolve("job.jsonl");
+        Cluster cluster = new Cluster(0, List.of("alpha", "beta"), List.of(0, 1));
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            checkpoint.recordSummary(1, cluster, new ClusterSummary(0, 1, "alpha and beta", List.of(0, 1), List.of(12)));
+            checkpoint.recordLevel(level(1));
+        }
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            LevelResult restored = checkpoint.level(1).orElseThrow();
+            assertEquals(2, restored.getEmbeddings().size());
+            assertArrayEquals(new float[]{0.25f, -1.5f, 3.0f}, restored.getEmbeddings().get(1).getEmbedding());
+            assertEquals("beta", restored.getEmbeddings().get(1).getText());
+            assertEquals("alpha and beta", restored.getSummaries().get(0).getSummary());
+
+            // Same texts under another id still match
+            Cluster renumbered = new Cluster(7, List.of("alpha", "beta"), List.of(3, 4));
+            ClusterSummary summary = checkpoint.summary(1, renumbered).orElseThrow();
+            assertEquals(7, summary.getId());
+            assertEquals(List.of(3, 4), summary.getTextIds());
+            assertFalse(checkpoint.summary(2, renumbered).isPresent());
+        }
+    }
+
+    @Test
+    void tornTailIsDiscardedAndAppendingContinues() throws Exception {
+        Path file = directory.resolve("torn.jsonl");
+        Cluster first = new Cluster(0, List.of("one"), List.of(0));
+        Cluster second = new Cluster(1, List.of("two"), List.of(1));
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            checkpoint.recordSummary(1, first, new ClusterSummary(0, 1, "first", List.of(0)));
+        }
+        // A crash in the middle of the next write
+        Files.writeString(file, "{\"type\":\"SUMMARY\",\"level\":1,\"clus", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            assertEquals(1, checkpoint.restoredSummaries());
+            checkpoint.recordSummary(1, second, new ClusterSummary(1, 1, "second", List.of(1)));
+        }
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            assertEquals("first", checkpoint.summary(1, first).orElseThrow().getSummary());
+            assertEquals("second", checkpoint.summary(1, second).orElseThrow().getSummary());
+        }
+    }
+
+    @Test
+    void completedCheckpointIsDeletedOnClose() throws Exception {
+        Path file = directory.resolve("done.jsonl");
+
+        try (JobCheckpoint checkpoint = JobCheckpoint.open(file, objectMapper, true)) {
+            checkpoint.recordLevel(level(1));
+            assertTrue(Files.exists(file));
+            checkpoint.complete();
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void runningJobRejectsASecondOpenUntilClosed() throws Exception {
+        Path file = directory.resolve("running.jsonl");
+
+        try (JobCheckpoint running = JobCheckpoint.open(file, objectMapper, true)) {
+            running.recordLevel(level(1));
+            assertThrows(JobAlreadyRunningException.class, () -> JobCheckpoint.open(file, objectMapper, true));
+        }
+
+        try (JobCheckpoint resumed = JobCheckpoint.open(file, objectMapper, true)) {
+            assertEquals(1, resumed.restoredLevels());
+        }
+    }
+
+    private static LevelResult level(int level) {
+        List<TextEmbedding> embeddings = List.of(
+                new TextEmbedding(0, "alpha", new float[]{1.0f, 0.0f, 0.5f}),
+                new TextEmbedding(1, "beta", new float[]{0.25f, -1.5f, 3.0f}));
+        List<Cluster> clusters = List.of(new Cluster(0, List.of("alpha", "beta"), List.of(0, 1)));
+        List<ClusterSummary> summaries = List.of(new ClusterSummary(0, level, "alpha and beta", List.of(0, 1)));
+        return new LevelResult(level, embeddings, clusters, summaries);
+    }
+}
@@ -0,0 +1,88 @@
+package it.raptor_service.service.clustering;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.clustering.graph.GraphClusteringEngine;
+import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.service.postprocessing.ClusterPostProcessor;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import it.raptor_service.service.validator.embedding.EmbeddingValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ClusteringServiceTest {
+
+    private final RecordingEngine gmm = new RecordingEngine("gmm");
+    private final RecordingEngine graph = new RecordingEngine(GraphClusteringEngine.NAME);
+
+    @Test
+    void levelEnginesOverrideTheDefaultEngine() {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getClustering().setEngine("gmm");
+        properties.getClustering().getLevelEngines().put(1, GraphClusteringEngine.NAME);
+        ClusteringService service = service(properties);
+
+        // A different level size per level tells the calls apart
+        service.performClustering(embeddings(4), 1);
+        service.performClustering(embeddings(5), 2);
+        service.performClustering(embeddings(6), 3);
+
+        assertEquals(List.of(4), graph.clusteredSizes);
+        assertEquals(List.of(5, 6), gmm.clusteredSizes);
+    }
+
+    @Test
+    void unknownEngineIsRejected() {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getClustering().getLevelEngines().put(2, "spectral");
+        ClusteringService service = service(properties);
+
+        assertThrows(IllegalArgumentException.class, () -> service.performClustering(embeddings(6), 2));
+    }
+
+    private ClusteringService service(RaptorProperties properties) {
+        properties.getClustering().setMinClusterSize(1);
+        SimilarityCalculator similarityCalculator = new SimilarityCalculator();
+        return new ClusteringService(properties, new EmbeddingValidator(), similarityCalculator, new ClusterFactory(),
+                new ClusterPostProcessor(properties, similarityCalculator, new TokenEstimator()),
+                List.of(gmm, graph));
+    }
+
+    private static List<TextEmbedding> embeddings(int count) {
+        List<TextEmbedding> embeddings = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            embeddings.add(new TextEmbedding(id, "text " + id, new float[]{1f, 0.1f * id}));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Puts every embedding in one cluster and records how many it was given.
+     */
+    private static final class RecordingEngine implements ClusteringEngine {
+        private final String name;
+        private final List<Integer> clusteredSizes = new ArrayList<>();
+
+        private RecordingEngine(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public List<Cluster> cluster(List<TextEmbedding> embeddings) {
+            clusteredSizes.add(embeddings.size());
+            return List.of(new ClusterFactory().createSingleCluster(embeddings));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package it.raptor_service.service.clustering;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.GlobalCluster;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.conversion.EmbeddingMatrix;
+import it.raptor_service.service.conversion.WekaConverter;
+import it.raptor_service.service.factory.ClusterFactory;
+import it.raptor_service.service.observation.RaptorObservations;
+import it.raptor_service.service.optimization.ClusterOptimizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobalClusteringServiceTest {
+
+    private static final int BLOBS = 3;
+    private static final int DIMENSIONS = 4;
+
+    @Test
+    void levelAboveMiniBatchThreshold_choosesKOnASampleAndAssignsEveryRow() throws Exception {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getMonitoring().setEnableMetrics(false);
+        properties.getClustering().setMiniBatchThreshold(50);
+        properties.getClustering().setMiniBatchSampleSize(60);
+        properties.getClustering().setMiniBatchSize(32);
+        RecordingOptimizer optimizer = new RecordingOptimizer(properties);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        GlobalClusteringService service = new GlobalClusteringService(properties, optimizer, new ClusterFactory(),
+                new RaptorObservations(properties, beans.getBeanProvider(ObservationRegistry.class)));
+
+        // Row i belongs to blob i % 3, so members of one blob are spread over the level
+        List<TextEmbedding> embeddings = blobs(150);
+        EmbeddingMatrix matrix = new WekaConverter(properties, beans.getBeanProvider(MeterRegistry.class))
+                .convertToMatrix(embeddings);
+
+        List<GlobalCluster> clusters = service.performGlobalClustering(embeddings, matrix);
+
+        // k was chosen on the sample, not on the whole level
+        assertEquals(List.of(60), optimizer.sampleSizes);
+        assertEquals(BLOBS, clusters.size());
+
+        Set<Integer> ids = new HashSet<>();
+        Set<Integer> rows = new TreeSet<>();
+        for (GlobalCluster cluster : clusters) {
+            assertTrue(ids.add(cluster.getId()), "duplicate cluster id " + cluster.getId());
+            assertTrue(cluster.getId() >= 0 && cluster.getId() <= BLOBS, "cluster id " + cluster.getId());
+
+            List<Integer> memberRows = cluster.getEmbeddings().stream().map(TextEmbedding::getId).toList();
+            assertArrayEquals(memberRows.stream().mapToInt(Integer::intValue).toArray(), cluster.getRowIndices());
+            assertEquals(1, memberRows.stream().map(row -> row % BLOBS).collect(Collectors.toSet()).size(),
+                    "cluster " + cluster.getId() + " mixes blobs: " + memberRows);
+            rows.addAll(memberRows);
+        }
+        assertEquals(IntStream.range(0, embeddings.size()).boxed().collect(Collectors.toSet()), rows);
+    }
+
+    private static List<TextEmbedding> blobs(int size) {
+        Random random = new Random(7);
+        List<TextEmbedding> embeddings = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            float[] vector = new float[DIMENSIONS];
+            vector[row % BLOBS] = 10f;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] += (float) (random.nextGaussian() * 0.3);
+            }
+            embeddings.add(new TextEmbedding(row, "text " + row, vector));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Records how many rows the cluster count is chosen on and picks the blob count, so the
+     * test exercises the mini-batch fit and assignment rather than the BIC search.
+     */
+    private static final class RecordingOptimizer extends ClusterOptimizer {
+        private final List<Integer> sampleSizes = new ArrayList<>();
+
+        private RecordingOptimizer(RaptorProperties properties) {
+            super(properties);
+        }
+
+        @Override
+        public int findOptimalClusterCount(Instances data, int maxClusters) {
+            sampleSizes.add(data.numInstances());
+            return BLOBS;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package it.raptor_service.service.clustering;
+
+import org.junit.jupiter.api.Test;
+import weka.clusterers.EM;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MiniBatchGaussianMixtureTest {
+
+    private static final int CLUSTERS = 4;
+    private static final int DIMENSIONS = 16;
+    private static final int SEED = 224;
+
+    @Test
+    void fit_onSeparatedBlobs_recoversClusters() {
+        Fixture fixture = blobs(4000, 3.0, 1);
+
+        int[] labels = fitMiniBatch(fixture.rows());
+
+        assertTrue(purity(labels, fixture.truth()) > 0.98);
+    }
+
+    @Test
+    void fit_onOverlappingBlobs_isComparableToFullEm() throws Exception {
+        Fixture fixture = blobs(2000, 1.2, 2);
+
+        double miniBatchPurity = purity(fitMiniBatch(fixture.rows()), fixture.truth());
+        double fullEmPurity = purity(fitFullEm(fixture.rows()), fixture.truth());
+
+        assertTrue(miniBatchPurity >= fullEmPurity - 0.05,
+                "mini-batch purity " + miniBatchPurity + " vs full EM " + fullEmPurity);
+    }
+
+    @Test
+    void fit_withSameSeed_isDeterministic() {
+        Fixture fixture = blobs(1000, 2.0, 3);
+
+        assertArrayEquals(fitMiniBatch(fixture.rows()), fitMiniBatch(fixture.rows()));
+    }
+
+    @Test
+    void distributionForRow_sumsToOne() {
+        Fixture fixture = blobs(500, 2.0, 4);
+        MiniBatchGaussianMixture mixture = new MiniBatchGaussianMixture(CLUSTERS, 64, 3, SEED);
+        mixture.fit(fixture.rows().length, i -> fixture.rows()[i]);
+
+        double sum = 0.0;
+        for (double probability : mixture.distributionForRow(fixture.rows()[0])) {
+            sum += probability;
+        }
+        assertEquals(1.0, sum, 1e-9);
+    }
+
+    private static int[] fitMiniBatch(double[][] rows) {
+        MiniBatchGaussianMixture mixture = new MiniBatchGaussianMixture(CLUSTERS, 128, 5, SEED);
+        mixture.fit(rows.length, i -> rows[i]);
+
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            labels[i] = argMax(mixture.distributionForRow(rows[i]));
+        }
+        return labels;
+    }
+
+    private static int[] fitFullEm(double[][] rows) throws Exception {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int d = 0; d < DIMENSIONS; d++) {
+            attributes.add(new Attribute("dim_" + d));
+        }
+        Instances data = new Instances("fixture", attributes, rows.length);
+        for (double[] row : rows) {
+            data.add(new DenseInstance(1.0, row));
+        }
+
+        EM em = new EM();
+        em.setNumClusters(CLUSTERS);
+        em.setSeed(SEED);
+        em.setMaxIterations(100);
+        em.buildClusterer(data);
+
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            labels[i] = em.clusterInstance(data.instance(i));
+        }
+        return labels;
+    }
+
+    private static Fixture blobs(int size, double spread, long seed) {
+        Random random = new Random(seed);
+        double[][] centers = new double[CLUSTERS][DIMENSIONS];
+        for (double[] center : centers) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                center[d] = random.nextGaussian() * spread;
+            }
+        }
+
+        double[][] rows = new double[size][DIMENSIONS];
+        int[] truth = new int[size];
+        for (int i = 0; i < size; i++) {
+            truth[i] = random.nextInt(CLUSTERS);
+            for (int d = 0; d < DIMENSIONS; d++) {
+                rows[i][d] = centers[truth[i]][d] + random.nextGaussian();
+            }
+        }
+        return new Fixture(rows, truth);
+    }
+
+    private static double purity(int[] labels, int[] truth) {
+        int[][] counts = new int[CLUSTERS][CLUSTERS];
+        for (int i = 0; i < labels.length; i++) {
+            counts[labels[i]][truth[i]]++;
+        }
+
+        int matched = 0;
+        for (int[] cluster : counts) {
+            int best = 0;
+            for (int count : cluster) {
+                best = Math.max(best, count);
+            }
+            matched += best;
+        }
+        return (double) matched / labels.length;
+    }
+
+    private static int argMax(double[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private record Fixture(double[][] rows, int[] truth) {
+    }
+}
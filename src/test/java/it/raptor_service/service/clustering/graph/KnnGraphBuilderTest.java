@@ -0,0 +1,128 @@
+package it.raptor_service.service.clustering.graph;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KnnGraphBuilderTest {
+
+    private static final int POINTS = 1500;
+    private static final int DIMENSIONS = 32;
+    private static final int NEIGHBORS = 10;
+
+    private final SimilarityCalculator similarityCalculator = new SimilarityCalculator();
+
+    @Test
+    void exactSearch_containsEveryBruteForceNeighbor() {
+        List<TextEmbedding> embeddings = topicFixture(400);
+
+        KnnGraph graph = builder(Integer.MAX_VALUE).build(embeddings);
+
+        assertEquals(1.0, recall(graph, bruteForceNeighbors(embeddings)));
+    }
+
+    @Test
+    void hashedSearch_recallsMostBruteForceNeighbors() {
+        List<TextEmbedding> embeddings = topicFixture(POINTS);
+
+        KnnGraph graph = builder(100).build(embeddings);
+
+        double recall = recall(graph, bruteForceNeighbors(embeddings));
+        assertTrue(recall >= 0.95, "hashed kNN recall " + recall);
+    }
+
+    @Test
+    void graphIsSymmetric() {
+        KnnGraph graph = builder(100).build(topicFixture(300));
+
+        for (int i = 0; i < graph.nodeCount(); i++) {
+            for (int e = graph.rowStart(i); e < graph.rowEnd(i); e++) {
+                int j = graph.target(e);
+                assertTrue(hasEdge(graph, j, i), "edge " + i + "->" + j + " has no reverse");
+            }
+        }
+    }
+
+    private KnnGraphBuilder builder(int exactSearchMaxPoints) {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getClustering().setGraphNeighbors(NEIGHBORS);
+        properties.getClustering().setGraphExactSearchMaxPoints(exactSearchMaxPoints);
+        return new KnnGraphBuilder(properties, similarityCalculator);
+    }
+
+    /**
+     * Fraction of each point's brute-force top-k that the graph links it to.
+     */
+    private static double recall(KnnGraph graph, int[][] expected) {
+        int found = 0;
+        int total = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int j : expected[i]) {
+                total++;
+                if (hasEdge(graph, i, j)) {
+                    found++;
+                }
+            }
+        }
+        return (double) found / total;
+    }
+
+    private static boolean hasEdge(KnnGraph graph, int from, int to) {
+        for (int e = graph.rowStart(from); e < graph.rowEnd(from); e++) {
+            if (graph.target(e) == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[][] bruteForceNeighbors(List<TextEmbedding> embeddings) {
+        float[][] vectors = embeddings.stream()
+                .map(embedding -> similarityCalculator.normalize(embedding.getEmbedding()))
+                .toArray(float[][]::new);
+        int[][] neighbors = new int[vectors.length][];
+        for (int i = 0; i < vectors.length; i++) {
+            int row = i;
+            neighbors[i] = IntStream.range(0, vectors.length)
+                    .filter(j -> j != row)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(
+                            (Integer j) -> similarityCalculator.calculateDotProduct(vectors[row], vectors[j])).reversed())
+                    .limit(NEIGHBORS)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        return neighbors;
+    }
+
+    private static List<TextEmbedding> topicFixture(int points) {
+        Random random = new Random(34);
+        float[][] topics = new float[20][DIMENSIONS];
+        for (float[] topic : topics) {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                topic[d] = (float) random.nextGaussian();
+            }
+        }
+
+        List<TextEmbedding> embeddings = new ArrayList<>(points);
+        for (int i = 0; i < points; i++) {
+            float[] topic = topics[random.nextInt(topics.length)];
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = topic[d] + (float) (random.nextGaussian() * 0.3);
+            }
+            embeddings.add(new TextEmbedding(i, "text " + i, vector));
+        }
+        return embeddings;
+    }
+}
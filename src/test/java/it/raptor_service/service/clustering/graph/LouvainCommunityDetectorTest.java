@@ -0,0 +1,71 @@
+package it.raptor_service.service.clustering.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LouvainCommunityDetectorTest {
+
+    private static final int GROUPS = 4;
+    private static final int GROUP_SIZE = 12;
+
+    @Test
+    void recoversPlantedPartition() {
+        // Dense links inside each group of 12, one weak link per node to another group
+        Random random = new Random(34);
+        int nodes = GROUPS * GROUP_SIZE;
+        int[][] neighbors = new int[nodes][];
+        float[][] similarities = new float[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            int self = node;
+            int group = node / GROUP_SIZE;
+            int[] inside = IntStream.range(group * GROUP_SIZE, (group + 1) * GROUP_SIZE)
+                    .filter(other -> other != self)
+                    .toArray();
+            shuffle(inside, random);
+
+            int otherGroup = (group + 1 + random.nextInt(GROUPS - 1)) % GROUPS;
+            neighbors[node] = new int[6];
+            similarities[node] = new float[6];
+            for (int e = 0; e < 5; e++) {
+                neighbors[node][e] = inside[e];
+                similarities[node][e] = 0.9f;
+            }
+            neighbors[node][5] = otherGroup * GROUP_SIZE + random.nextInt(GROUP_SIZE);
+            similarities[node][5] = 0.2f;
+        }
+
+        int[] communities = new LouvainCommunityDetector(1.0).detect(KnnGraph.symmetrize(neighbors, similarities));
+
+        int[] expected = IntStream.range(0, nodes).map(node -> node / GROUP_SIZE).toArray();
+        assertArrayEquals(expected, communities);
+    }
+
+    @Test
+    void isolatedNodesStayApart() {
+        int[][] neighbors = {{}, {}, {}};
+        float[][] similarities = {{}, {}, {}};
+
+        int[] communities = new LouvainCommunityDetector(1.0).detect(KnnGraph.symmetrize(neighbors, similarities));
+
+        assertArrayEquals(new int[]{0, 1, 2}, communities);
+    }
+
+    @Test
+    void rejectsNonPositiveResolution() {
+        assertThrows(IllegalArgumentException.class, () -> new LouvainCommunityDetector(0.0));
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package it.raptor_service.service.dedup;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkDeduplicatorTest {
+
+    private final ChunkDeduplicator deduplicator = new ChunkDeduplicator(new RaptorProperties(), new TokenEstimator());
+
+    @Test
+    void collapsesExactAndNearDuplicatesKeepingFirstOccurrence() {
+        String license = randomText(1, 200);
+        String nearLicense = license.replaceFirst("\\S+", "Modified");
+        String header = "ACME Corp Confidential   Page Header";
+        List<String> chunks = List.of(
+                header,
+                license,
+                randomText(2, 150),
+                "acme corp confidential page header",
+                nearLicense,
+                randomText(3, 150));
+
+        DeduplicatedChunks result = deduplicator.deduplicate(chunks);
+
+        assertEquals(List.of(header, license, chunks.get(2), chunks.get(5)), result.representatives());
+        assertArrayEquals(new int[]{0, 3}, result.members()[0]);
+        assertArrayEquals(new int[]{1, 4}, result.members()[1]);
+        assertEquals(1, result.exactDuplicates());
+        assertEquals(1, result.nearDuplicates());
+        assertTrue(result.tokensSaved() > 0);
+    }
+
+    @Test
+    void distinctChunksAreUntouched() {
+        List<String> chunks = IntStream.range(0, 200)
+                .mapToObj(i -> randomText(100 + i, 80))
+                .toList();
+
+        DeduplicatedChunks result = deduplicator.deduplicate(chunks);
+
+        assertEquals(chunks, result.representatives());
+        assertEquals(0, result.removed());
+    }
+
+    @Test
+    void everyOriginalChunkMapsToExactlyOneRepresentative() {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            chunks.add(randomText(i % 40, 60));
+        }
+
+        DeduplicatedChunks result = deduplicator.deduplicate(chunks);
+
+        assertEquals(40, result.representatives().size());
+        List<Integer> covered = new ArrayList<>();
+        for (int[] group : result.members()) {
+            for (int index : group) {
+                covered.add(index);
+            }
+        }
+        covered.sort(null);
+        assertEquals(IntStream.range(0, 300).boxed().toList(), covered);
+    }
+
+    private static String randomText(long seed, int words) {
+        Random random = new Random(seed);
+        return IntStream.range(0, words)
+                .mapToObj(i -> "w" + random.nextInt(5000))
+                .collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,65 @@
+package it.raptor_service.service.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WordPieceTokenizerTest {
+
+    private static final List<String> VOCABULARY = List.of(
+            "[PAD]", "[UNK]", "[CLS]", "[SEP]", "the", "tree", "summar", "##ize", "##s", ",", ".", "cafe");
+
+    @Test
+    void encode_splitsWordsIntoLongestPieces() {
+        WordPieceTokenizer tokenizer = new WordPieceTokenizer(vocabulary(), true);
+
+        int[] ids = tokenizer.encode("The tree summarizes, the Café.", 64);
+
+        // [CLS] the tree summar ##ize ##s , the cafe . [SEP]
+        assertArrayEquals(new int[]{2, 4, 5, 6, 7, 8, 9, 4, 11, 10, 3}, ids);
+    }
+
+    @Test
+    void encode_unknownWordsAndTruncation() {
+        WordPieceTokenizer tokenizer = new WordPieceTokenizer(vocabulary(), true);
+
+        assertArrayEquals(new int[]{2, 1, 5, 3}, tokenizer.encode("forest tree", 64));
+        assertArrayEquals(new int[]{2, 4, 5, 3}, tokenizer.encode("the tree the tree", 4));
+    }
+
+    @Test
+    void basicTokens_keepsCaseWhenNotLowerCasing() {
+        WordPieceTokenizer tokenizer = new WordPieceTokenizer(vocabulary(), false);
+
+        assertEquals(List.of("The", "tree", "-", "Café"), tokenizer.basicTokens("The\ttree-Café"));
+    }
+
+    @Test
+    void vocabularyWithoutSpecialTokens_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new WordPieceTokenizer(Map.of("the", 0), true));
+    }
+
+    @Test
+    void meanPool_ignoresPaddedTokens() {
+        float[][] tokens = {{1f, 2f}, {3f, 4f}, {100f, 100f}};
+
+        float[] pooled = OnnxEmbeddingModel.meanPool(tokens, new long[]{1, 1, 0});
+
+        assertEquals(2.0, pooled[0], 1e-6);
+        assertEquals(3.0, pooled[1], 1e-6);
+    }
+
+    private static Map<String, Integer> vocabulary() {
+        Map<String, Integer> vocabulary = new HashMap<>();
+        for (int id = 0; id < VOCABULARY.size(); id++) {
+            vocabulary.put(VOCABULARY.get(id), id);
+        }
+        return vocabulary;
+    }
+}
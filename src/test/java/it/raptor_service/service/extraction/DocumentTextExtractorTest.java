@@ -0,0 +1,133 @@
+package it.raptor_service.service.extraction;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.TextSplitterService;
+import it.raptor_service.service.splitter.util.SentenceSplitter;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentTextExtractorTest {
+
+    private final RaptorProperties properties = new RaptorProperties();
+    private TextSplitterService splitter;
+    private DocumentTextExtractor extractor;
+
+    @AfterEach
+    void shutdown() {
+        if (extractor != null) {
+            extractor.shutdown();
+            splitter.shutdown();
+        }
+    }
+
+    @Test
+    void plainTextIsSplitSectionBySectionInOrder() throws IOException {
+        properties.getProcessing().setExtractionSectionChars(2000);
+        extractor = newExtractor();
+        String text = IntStream.range(0, 60)
+                .mapToObj(i -> "Paragraph " + i + " says something about topic " + i + ". " + "filler words ".repeat(20))
+                .collect(Collectors.joining("\n\n"));
+
+        ExtractedDocument document = extractor.extract(
+                new MockMultipartFile("file", "notes.txt", "text/plain", text.getBytes(StandardCharsets.UTF_8)),
+                200, 1_000_000);
+
+        assertEquals("text/plain", document.mediaType());
+        assertFalse(document.truncated());
+        assertTrue(document.chunks().size() > 1);
+        // Chunks and their overlap run across section seams as if the text were split at once
+        assertEquals(splitter.splitText(text, 200), document.chunks());
+    }
+
+    @Test
+    void pdfPageRangesAreExtractedInPageOrder() throws IOException {
+        properties.getProcessing().setPdfPagesPerRange(3);
+        properties.getProcessing().setExtractionParallelism(4);
+        extractor = newExtractor();
+
+        ExtractedDocument document = extractor.extract(
+                new MockMultipartFile("file", "report.pdf", "application/pdf", pdf(10)),
+                500, 1_000_000);
+
+        assertEquals("application/pdf", document.mediaType());
+        assertEquals(10, document.pages());
+        String joined = String.join(" ", document.chunks());
+        int previous = -1;
+        for (int page = 1; page <= 10; page++) {
+            int position = joined.indexOf("Page marker " + page + " ");
+            assertTrue(position > previous, "page " + page + " out of order");
+            previous = position;
+        }
+    }
+
+    @Test
+    void pdfChunksDoNotDependOnPageRanges() throws IOException {
+        properties.getProcessing().setExtractionParallelism(4);
+        extractor = newExtractor();
+        MockMultipartFile file = new MockMultipartFile("file", "report.pdf", "application/pdf", pdf(10));
+
+        properties.getProcessing().setPdfPagesPerRange(100);
+        List<String> whole = extractor.extract(file, 20, 1_000_000).chunks();
+        properties.getProcessing().setPdfPagesPerRange(3);
+        List<String> ranged = extractor.extract(file, 20, 1_000_000).chunks();
+
+        assertTrue(whole.size() > 4);
+        assertEquals(whole, ranged);
+    }
+
+    @Test
+    void extractionStopsAtTheCharacterLimit() throws IOException {
+        extractor = newExtractor();
+        String text = "word ".repeat(10_000);
+
+        ExtractedDocument document = extractor.extract(
+                new MockMultipartFile("file", "long.txt", "text/plain", text.getBytes(StandardCharsets.UTF_8)),
+                200, 1000);
+
+        assertTrue(document.truncated());
+        assertTrue(document.characters() > 1000);
+        assertTrue(document.chunks().isEmpty());
+    }
+
+    private DocumentTextExtractor newExtractor() {
+        splitter = new TextSplitterService(new TokenEstimator(), new SentenceSplitter(), properties);
+        return new DocumentTextExtractor(splitter, properties);
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int page = 1; page <= pages; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(50, 700);
+                    content.showText("Page marker " + page + " with some body text.");
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
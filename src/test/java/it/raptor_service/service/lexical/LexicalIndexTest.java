@@ -0,0 +1,72 @@
+package it.raptor_service.service.lexical;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LexicalIndexTest {
+
+    @Test
+    void keepsCompoundIdentifiersWholeAndSplit() {
+        assertEquals(List.of("see", "err-1042", "err", "1042", "in", "java.util.list", "java", "util", "list"),
+                LexicalTokenizer.tokenize("See ERR-1042 in java.util.List."));
+    }
+
+    @Test
+    void ranksTheNodeWithTheExactIdentifierFirst() {
+        LexicalSegment chunks = LexicalSegment.build(new int[]{0, 0, 0}, new int[]{0, 1, 2}, List.of(
+                "The payment service retries failed requests.",
+                "Error ERR-1042 means the payment token expired.",
+                "Codes such as ERR-2001 are listed in the appendix."));
+        LexicalSegment summaries = LexicalSegment.build(new int[]{1}, new int[]{0}, List.of(
+                "Payment errors and retries."));
+        LexicalIndex index = new LexicalIndex(List.of(chunks, summaries), 1.2, 0.75);
+
+        LexicalIndex.SearchResult result = index.search("what is ERR-1042", 2);
+
+        assertEquals(4, index.documents());
+        assertEquals(new LexicalIndex.LexicalHit(0, 1, result.hits().get(0).score()), result.hits().get(0));
+        assertEquals(2, result.hits().size());
+        // "err" also matches the chunk about error codes
+        assertEquals(2, result.matchedNodes());
+    }
+
+    @Test
+    void segmentSurvivesSerialization() {
+        LexicalSegment segment = LexicalSegment.build(new int[]{0, 0, 2}, new int[]{4, 7, 0}, List.of(
+                "alpha beta beta", "beta gamma", "alpha"));
+
+        LexicalSegment copy = LexicalSegment.fromBytes(segment.toBytes());
+
+        assertEquals(3, copy.documents());
+        assertEquals(6, copy.totalLength());
+        assertEquals(2, copy.layer(2));
+        assertEquals(7, copy.id(1));
+        assertEquals(2, copy.documentFrequency("beta"));
+        List<String> postings = new ArrayList<>();
+        copy.forEachPosting("beta", (doc, tf) -> postings.add(doc + ":" + tf));
+        assertEquals(List.of("0:2", "1:1"), postings);
+    }
+
+    @Test
+    void postingsTakeAboutTwoBytesPerOccurrence() {
+        int documents = 2_000;
+        int[] layers = new int[documents];
+        int[] ids = new int[documents];
+        List<String> texts = new ArrayList<>();
+        for (int doc = 0; doc < documents; doc++) {
+            ids[doc] = doc;
+            texts.add("common term" + (doc % 50) + " shared words");
+        }
+
+        LexicalSegment segment = LexicalSegment.build(layers, ids, texts);
+
+        // 4 distinct terms per document, each posting a one-byte gap and a one-byte frequency
+        assertEquals(documents * 4 * 2, segment.postingsBytes());
+        assertTrue(segment.toBytes().length < documents * 4 * 2 + documents * 4 + 1_000);
+    }
+}
@@ -0,0 +1,121 @@
+package it.raptor_service.service.loadbalancing;
+
+import it.raptor_service.support.StubModelServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelEndpointBalancerTest {
+
+    private final List<StubModelServer> servers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            servers.add(StubModelServer.start().delay(50));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        servers.forEach(StubModelServer::close);
+    }
+
+    @Test
+    void spreadsRequestsWithinPerEndpointCaps() throws Exception {
+        ModelEndpointBalancer balancer = balancer(2, 10_000);
+        RestClient client = client(balancer);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> replies = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                replies.add(executor.submit(() -> chat(client)));
+            }
+            for (Future<String> reply : replies) {
+                assertTrue(reply.get().contains("stub summary"));
+            }
+        }
+
+        int total = 0;
+        for (StubModelServer server : servers) {
+            assertTrue(server.requestCount() > 0, "an endpoint sat idle");
+            assertTrue(server.maxConcurrentRequests() <= 2, "cap exceeded: " + server.maxConcurrentRequests());
+            total += server.requestCount();
+        }
+        assertEquals(30, total);
+        balancer.getEndpoints().forEach(endpoint -> assertEquals(0, endpoint.getInFlight()));
+    }
+
+    @Test
+    void picksLeastOutstandingEndpointAndWaitsAtCapacity() throws Exception {
+        ModelEndpointBalancer balancer = balancer(1, 100);
+
+        Set<ModelEndpoint> held = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            held.add(balancer.acquire());
+        }
+        assertEquals(3, held.size());
+        assertThrows(TimeoutException.class, balancer::acquire);
+
+        ModelEndpoint freed = held.iterator().next();
+        balancer.release(freed, true);
+        assertEquals(freed, balancer.acquire());
+    }
+
+    @Test
+    void routesAroundEndpointThatFailsHealthCheck() {
+        ModelEndpointBalancer balancer = balancer(2, 10_000);
+        StubModelServer down = servers.get(2);
+        down.close();
+
+        balancer.checkHealth();
+        assertFalse(balancer.getEndpoints().get(2).isHealthy());
+
+        RestClient client = client(balancer);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(chat(client).contains("stub summary"));
+        }
+        assertEquals(10, servers.get(0).requestCount() + servers.get(1).requestCount());
+    }
+
+    private ModelEndpointBalancer balancer(int maxConcurrent, long acquireTimeoutMs) {
+        List<URI> urls = servers.stream().map(server -> URI.create(server.baseUrl())).toList();
+        return new ModelEndpointBalancer(urls, maxConcurrent, acquireTimeoutMs, 3);
+    }
+
+    private RestClient client(ModelEndpointBalancer balancer) {
+        // Requests are addressed to the first server, as Spring AI addresses spring.ai.ollama.base-url
+        URI primary = URI.create(servers.get(0).baseUrl());
+        return RestClient.builder()
+                .baseUrl(primary.toString())
+                .requestInterceptor(new LoadBalancingInterceptor(primary, balancer))
+                .build();
+    }
+
+    private static String chat(RestClient client) {
+        return client.post()
+                .uri("/api/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"model\":\"stub\",\"messages\":[],\"stream\":false}")
+                .retrieve()
+                .body(String.class);
+    }
+}
@@ -0,0 +1,77 @@
+package it.raptor_service.service.postprocessing;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterPostProcessorTest {
+
+    @Test
+    void targetFanIn_mergesNearestClustersUntilReached() {
+        ClusterPostProcessor postProcessor = postProcessor(0);
+        // Twelve texts in two directions, clustered as six pairs
+        List<TextEmbedding> embeddings = embeddings(12, "a short text.");
+        List<Cluster> pairs = pairs(embeddings);
+
+        List<Cluster> merged = postProcessor.postProcessClusters(pairs, embeddings, 6);
+
+        assertEquals(2, merged.size());
+        for (Cluster cluster : merged) {
+            assertEquals(6, cluster.getTextIds().size());
+            int direction = cluster.getTextIds().get(0) % 2;
+            assertTrue(cluster.getTextIds().stream().allMatch(id -> id % 2 == direction), "merged across directions");
+        }
+    }
+
+    @Test
+    void targetFanIn_keepsClustersThatWouldExceedTheTokenBudget() {
+        // About 15 tokens per text: two pairs fit the budget, a third would not
+        ClusterPostProcessor postProcessor = postProcessor(60);
+        List<TextEmbedding> embeddings = embeddings(12, "a text that is long enough to count for about ten tokens.");
+
+        List<Cluster> merged = postProcessor.postProcessClusters(pairs(embeddings), embeddings, 6);
+
+        assertEquals(3, merged.size());
+        assertTrue(merged.stream().allMatch(cluster -> cluster.getTextIds().size() == 4));
+    }
+
+    private static ClusterPostProcessor postProcessor(int maxClusterTokens) {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getClustering().setMinClusterSize(1);
+        properties.getClustering().setMaxClusterTokens(maxClusterTokens);
+        return new ClusterPostProcessor(properties, new SimilarityCalculator(), new TokenEstimator());
+    }
+
+    private static List<TextEmbedding> embeddings(int count, String text) {
+        List<TextEmbedding> embeddings = new ArrayList<>();
+        for (int id = 0; id < count; id++) {
+            float[] vector = id % 2 == 0 ? new float[]{1f, 0.01f * id, 0f} : new float[]{0f, 0.01f * id, 1f};
+            embeddings.add(new TextEmbedding(id, text, vector));
+        }
+        return embeddings;
+    }
+
+    // Pairs of texts from the same direction: (0, 2), (1, 3), (4, 6), ...
+    private static List<Cluster> pairs(List<TextEmbedding> embeddings) {
+        List<Cluster> clusters = new ArrayList<>();
+        for (int start = 0; start < embeddings.size(); start += 4) {
+            for (int offset = 0; offset < 2; offset++) {
+                int first = start + offset;
+                int second = first + 2;
+                clusters.add(new Cluster(clusters.size(),
+                        new ArrayList<>(List.of(embeddings.get(first).getText(), embeddings.get(second).getText())),
+                        new ArrayList<>(List.of(first, second))));
+            }
+        }
+        return clusters;
+    }
+}
@@ -0,0 +1,140 @@
+package it.raptor_service.service.quantization;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Memory and recall@10 of quantized storage against float32, on synthetic
+ * normalized embeddings with topic structure. The thresholds are the figures recorded
+ * in docs/architecture.md; update both together.
+ */
+class VectorQuantizerBenchmarkTest {
+
+    private static final int VECTORS = 2000;
+    private static final int DIMENSIONS = 1024;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+
+    private final VectorQuantizer quantizer = new VectorQuantizer();
+
+    @Test
+    void fp16_keepsRecallAndHalvesMemory() {
+        Result result = benchmark(QuantizationType.FP16);
+
+        assertTrue(result.recall() >= 1.0, "fp16 recall@10 " + result.recall());
+        assertTrue(result.memoryRatio() <= 0.504, "fp16 memory ratio " + result.memoryRatio());
+    }
+
+    @Test
+    void int8_keepsRecallAndQuartersMemory() {
+        Result result = benchmark(QuantizationType.INT8);
+
+        assertTrue(result.recall() >= 0.978, "int8 recall@10 " + result.recall());
+        assertTrue(result.memoryRatio() <= 0.256, "int8 memory ratio " + result.memoryRatio());
+    }
+
+    @Test
+    void int8_dotBetweenQuantizedVectors_matchesFloatDot() {
+        Random random = new Random(7);
+        float[] a = normalized(randomVector(random));
+        float[] b = normalized(randomVector(random));
+
+        double exact = new Float32Vector(a).dot(b);
+        double quantized = quantizer.dot(quantizer.quantize(a, QuantizationType.INT8),
+                quantizer.quantize(b, QuantizationType.INT8));
+
+        assertEquals(exact, quantized, 0.01);
+    }
+
+    private Result benchmark(QuantizationType type) {
+        Random random = new Random(224);
+        float[][] corpus = syntheticCorpus(random);
+        QuantizedVector[] stored = Arrays.stream(corpus)
+                .map(vector -> quantizer.quantize(vector, type))
+                .toArray(QuantizedVector[]::new);
+
+        long floatBytes = 0;
+        long storedBytes = 0;
+        for (int i = 0; i < VECTORS; i++) {
+            floatBytes += new Float32Vector(corpus[i]).sizeInBytes();
+            storedBytes += stored[i].sizeInBytes();
+        }
+
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = corpus[random.nextInt(VECTORS)].clone();
+            for (int d = 0; d < DIMENSIONS; d++) {
+                query[d] += (float) (random.nextGaussian() * 0.01);
+            }
+
+            float[] finalQuery = query;
+            int[] exact = topK(i -> new Float32Vector(corpus[i]).dot(finalQuery));
+            int[] approximate = topK(i -> quantizer.dot(stored[i], finalQuery));
+            hits += overlap(exact, approximate);
+        }
+
+        return new Result((double) hits / (QUERIES * TOP_K), (double) storedBytes / floatBytes);
+    }
+
+    private static float[][] syntheticCorpus(Random random) {
+        float[][] topics = new float[20][];
+        for (int t = 0; t < topics.length; t++) {
+            topics[t] = randomVector(random);
+        }
+
+        float[][] corpus = new float[VECTORS][];
+        for (int i = 0; i < VECTORS; i++) {
+            float[] topic = topics[random.nextInt(topics.length)];
+            float[] vector = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                vector[d] = topic[d] + (float) (random.nextGaussian() * 0.5);
+            }
+            corpus[i] = normalized(vector);
+        }
+        return corpus;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static float[] normalized(float[] vector) {
+        double norm = 0.0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] *= scale;
+        }
+        return vector;
+    }
+
+    private static int[] topK(IntToDoubleFunction score) {
+        return IntStream.range(0, VECTORS)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> score.applyAsDouble(i)).reversed())
+                .limit(TOP_K)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static int overlap(int[] a, int[] b) {
+        return (int) Arrays.stream(a).filter(x -> Arrays.stream(b).anyMatch(y -> y == x)).count();
+    }
+
+    private record Result(double recall, double memoryRatio) {
+    }
+}
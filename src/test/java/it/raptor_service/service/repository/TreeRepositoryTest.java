@@ -0,0 +1,215 @@
+package it.raptor_service.service.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RaptorResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.quantization.QuantizationType;
+import it.raptor_service.service.quantization.VectorBlock;
+import it.raptor_service.service.retrieval.TreeIndex;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TreeRepositoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storedTreeIsFoundAfterReopening() {
+        TreeRepository repository = repository();
+        String hash = repository.contentHash("alpha beta".getBytes(), 2000, 3);
+        repository.save("doc-a", hash, tree("alpha", "beta"));
+        repository.close();
+
+        TreeRepository reopened = repository();
+        StoredTree stored = reopened.findByDocumentId("doc-a").orElseThrow();
+        assertEquals(hash, stored.getContentHash());
+        assertEquals(List.of(1, 2), stored.levels());
+
+        RaptorResult result = stored.toResult();
+        LevelResult level = result.getLevelResults().get(1);
+        assertEquals("beta", level.getEmbeddings().get(1).getText());
+        assertArrayEquals(new float[]{0.0f, 1.0f, 0.5f}, level.getEmbeddings().get(1).getEmbedding());
+        assertEquals("alpha and beta", level.getSummaries().get(0).getSummary());
+        assertEquals(List.of("alpha", "beta", "alpha and beta"), result.getAllTexts());
+
+        VectorBlock vectors = stored.vectors(1);
+        assertEquals(QuantizationType.FP16, vectors.type());
+        assertEquals(2, vectors.rows());
+        assertEquals(0.5f, vectors.toFloatArray(1)[2]);
+
+        // Level 1 indexes the two chunks and its summary, level 2 has no summaries
+        assertEquals(3, stored.lexicalSegment(1).documents());
+        assertEquals(2, stored.lexicalSegment(1).documentFrequency("alpha"));
+        assertEquals(0, stored.lexicalSegment(2).documents());
+
+        assertEquals(hash, reopened.findByContentHash(hash).orElseThrow().getContentHash());
+        assertFalse(reopened.findByDocumentId("doc-b").isPresent());
+        reopened.close();
+    }
+
+    @Test
+    void identicalContentUnderAnotherDocumentIdIsNotWrittenAgain() throws Exception {
+        TreeRepository repository = repository();
+        String hash = repository.contentHash("alpha beta".getBytes(), 2000, 3);
+        repository.save("doc-a", hash, tree("alpha", "beta"));
+        long size = Files.size(directory.resolve(TreeSegmentFile.SEGMENT_FILE));
+
+        repository.save("doc-b", hash, tree("alpha", "beta"));
+
+        assertEquals(size, Files.size(directory.resolve(TreeSegmentFile.SEGMENT_FILE)));
+        assertEquals(hash, repository.findByDocumentId("doc-b").orElseThrow().getContentHash());
+        repository.close();
+    }
+
+    @Test
+    void unindexedTailIsDiscardedAndAppendingContinues() throws Exception {
+        TreeRepository repository = repository();
+        String first = repository.contentHash("one".getBytes(), 2000, 3);
+        String second = repository.contentHash("two".getBytes(), 2000, 3);
+        repository.save("one", first, tree("one", "uno"));
+        repository.close();
+        // A crash after writing part of the next tree but before its index entry
+        Files.write(directory.resolve(TreeSegmentFile.SEGMENT_FILE), new byte[]{1, 2, 3, 4},
+                StandardOpenOption.APPEND);
+
+        TreeRepository reopened = repository();
+        reopened.save("two", second, tree("two", "due"));
+        reopened.close();
+
+        TreeRepository last = repository();
+        assertEquals("uno", last.findByDocumentId("one").orElseThrow().level(1).getEmbeddings().get(1).getText());
+        assertEquals("due", last.findByDocumentId("two").orElseThrow().level(1).getEmbeddings().get(1).getText());
+        last.close();
+    }
+
+    @Test
+    void contentHashDependsOnTreeParameters() {
+        byte[] content = "alpha beta".getBytes();
+        TreeRepository repository = repository();
+
+        assertNotEquals(repository.contentHash(content, 2000, 3), repository.contentHash(content, 1000, 3));
+        assertNotEquals(repository.contentHash(content, 2000, 3), repository.contentHash(content, 2000, 2));
+        repository.close();
+    }
+
+    @Test
+    void contentHashDependsOnModelsAndTreeSettings() {
+        byte[] content = "alpha beta".getBytes();
+        String hash = hash(new RaptorProperties(), "mistral", "mistral", content);
+
+        assertEquals(hash, hash(new RaptorProperties(), "mistral", "mistral", content));
+        assertNotEquals(hash, hash(new RaptorProperties(), "mistral", "nomic-embed-text", content));
+        assertNotEquals(hash, hash(new RaptorProperties(), "llama3.2", "mistral", content));
+
+        RaptorProperties onnx = new RaptorProperties();
+        onnx.getEmbedding().setProvider("onnx");
+        assertNotEquals(hash, hash(onnx, "mistral", "mistral", content));
+
+        RaptorProperties routed = new RaptorProperties();
+        RaptorProperties.LevelModel model = new RaptorProperties.LevelModel();
+        model.setModel("llama3.2:3b");
+        routed.getRouting().getLevels().put(1, model);
+        assertNotEquals(hash, hash(routed, "mistral", "mistral", content));
+
+        RaptorProperties graph = new RaptorProperties();
+        graph.getClustering().setEngine("graph");
+        assertNotEquals(hash, hash(graph, "mistral", "mistral", content));
+
+        RaptorProperties noDedup = new RaptorProperties();
+        noDedup.getDeduplication().setEnabled(false);
+        assertNotEquals(hash, hash(noDedup, "mistral", "mistral", content));
+    }
+
+    @Test
+    void degradedTreeIsNotStored() {
+        TreeRepository repository = repository();
+        String hash = repository.contentHash("alpha beta".getBytes(), 2000, 3);
+        RaptorResult degraded = tree("alpha", "beta");
+        degraded.getLevelResults().get(1).getEmbeddings().get(1).setEmbedding(new float[0]);
+
+        repository.save("doc-a", hash, degraded);
+
+        assertFalse(repository.findByContentHash(hash).isPresent());
+        assertFalse(repository.findByDocumentId("doc-a").isPresent());
+        repository.close();
+    }
+
+    @Test
+    void storedTreeIsSearchedInItsQuantizedFormat() {
+        RaptorProperties properties = properties();
+        properties.getProcessing().setEmbeddingQuantization(QuantizationType.INT8);
+        TreeRepository repository = new TreeRepository(properties, objectMapper, null, "mistral", "mistral");
+        RaptorResult built = tree("alpha", "beta");
+        repository.save("doc-a", repository.contentHash("alpha beta".getBytes(), 2000, 3), built);
+
+        StoredTree stored = repository.findByDocumentId("doc-a").orElseThrow();
+        assertEquals(QuantizationType.INT8, stored.vectors(1).type());
+
+        SimilarityCalculator similarity = new SimilarityCalculator();
+        TreeIndex index = TreeIndex.of(stored, similarity);
+        TreeIndex exact = TreeIndex.of(built.getLevelResults(), similarity);
+        float[] query = similarity.normalize(new float[]{0.2f, 0.9f, 0.4f});
+        assertEquals(1, index.topLayer());
+        for (int layer = 0; layer <= index.topLayer(); layer++) {
+            for (int row = 0; row < index.layer(layer).size(); row++) {
+                assertEquals(exact.layer(layer).score(row, query), index.layer(layer).score(row, query), 0.01);
+            }
+        }
+        repository.close();
+    }
+
+    private String hash(RaptorProperties properties, String chatModel, String embeddingModel, byte[] content) {
+        return new TreeRepository(properties, objectMapper, null, chatModel, embeddingModel)
+                .contentHash(content, 2000, 3);
+    }
+
+    private TreeRepository repository() {
+        return new TreeRepository(properties(), objectMapper, null, "mistral", "mistral");
+    }
+
+    private RaptorProperties properties() {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getRepository().setEnabled(true);
+        properties.getRepository().setDirectory(directory.toString());
+        properties.getMonitoring().setEnableMetrics(false);
+        return properties;
+    }
+
+    private static RaptorResult tree(String first, String second) {
+        String summary = first + " and " + second;
+        LevelResult level1 = new LevelResult(1,
+                List.of(new TextEmbedding(0, first, new float[]{1.0f, 0.0f, 0.0f}),
+                        new TextEmbedding(1, second, new float[]{0.0f, 1.0f, 0.5f})),
+                List.of(new Cluster(0, List.of(first, second), List.of(0, 1))),
+                List.of(new ClusterSummary(0, 1, summary, List.of(0, 1))));
+        LevelResult level2 = new LevelResult(2,
+                List.of(new TextEmbedding(0, summary, new float[]{0.5f, 0.5f, 0.0f})),
+                List.of(new Cluster(0, List.of(summary), List.of(0))),
+                List.of());
+
+        Map<Integer, LevelResult> levels = new HashMap<>();
+        levels.put(1, level1);
+        levels.put(2, level2);
+        return new RaptorResult(levels, List.of(first, second, summary));
+    }
+}
@@ -0,0 +1,159 @@
+package it.raptor_service.service.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.support.StubModelServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelCallExecutorTest {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RaptorProperties properties;
+    private StubModelServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new RaptorProperties();
+        RaptorProperties.Resilience resilience = properties.getResilience();
+        resilience.setMaxAttempts(3);
+        resilience.setInitialBackoffMs(10);
+        resilience.setMaxBackoffMs(50);
+        resilience.setChatDeadlineMs(2000);
+        resilience.setEmbeddingDeadlineMs(2000);
+        server = StubModelServer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void retriesTransientFailures() {
+        server.failNext(2, 503);
+        ModelCallExecutor executor = newExecutor();
+
+        String body = executor.call(ModelOperation.CHAT, this::chat);
+
+        assertTrue(body.contains("stub summary"));
+        assertEquals(3, server.requestCount());
+        assertEquals(2.0, attempts("chat", "failure"));
+        assertEquals(1.0, attempts("chat", "success"));
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        server.failNext(10, 500);
+        ModelCallExecutor executor = newExecutor();
+
+        assertThrows(ModelCallException.class, () -> executor.call(ModelOperation.EMBEDDING, this::embed));
+        assertEquals(3, server.requestCount());
+    }
+
+    @Test
+    void enforcesPerCallDeadline() {
+        properties.getResilience().setMaxAttempts(1);
+        properties.getResilience().setChatDeadlineMs(100);
+        server.delay(1000);
+        ModelCallExecutor executor = newExecutor();
+
+        long started = System.nanoTime();
+        ModelCallException failure = assertThrows(ModelCallException.class,
+                () -> executor.call(ModelOperation.CHAT, this::chat));
+
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertTrue(System.nanoTime() - started < 900_000_000L, "deadline not enforced");
+        assertEquals(1.0, attempts("chat", "timeout"));
+    }
+
+    @Test
+    void opensCircuitAfterConsecutiveFailures() {
+        properties.getResilience().setMaxAttempts(1);
+        properties.getResilience().setCircuitFailureThreshold(3);
+        properties.getResilience().setCircuitOpenMs(60_000);
+        ModelCallExecutor executor = newExecutor();
+        AtomicInteger invocations = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ModelCallException.class, () -> executor.call(ModelOperation.EMBEDDING, () -> {
+                invocations.incrementAndGet();
+                throw new IOException("connection refused");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, executor.circuitState(ModelOperation.EMBEDDING));
+
+        assertThrows(ModelCallException.class, () -> executor.call(ModelOperation.EMBEDDING, () -> {
+            invocations.incrementAndGet();
+            return "unreachable";
+        }));
+        assertEquals(3, invocations.get());
+        assertEquals(1.0, attempts("embedding", "rejected"));
+        // Chat calls have their own breaker
+        assertEquals(CircuitBreaker.State.CLOSED, executor.circuitState(ModelOperation.CHAT));
+    }
+
+    @Test
+    void hedgedRequestCutsTailLatency() {
+        properties.getResilience().setHedgeEnabled(true);
+        properties.getResilience().setHedgeDelayMs(100);
+        server.slowNext(1, 1500);
+        ModelCallExecutor executor = newExecutor();
+
+        long started = System.nanoTime();
+        String body = executor.call(ModelOperation.CHAT, this::chat);
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(body.contains("stub summary"));
+        assertTrue(elapsedMillis < 1000, "hedge did not win: " + elapsedMillis + " ms");
+        assertEquals(2, server.requestCount());
+        assertEquals(1.0, meterRegistry.counter("raptor.model.hedges", "operation", "chat", "outcome", "won").count());
+    }
+
+    private ModelCallExecutor newExecutor() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        return new ModelCallExecutor(properties, beans.getBeanProvider(MeterRegistry.class));
+    }
+
+    private double attempts(String operation, String outcome) {
+        return meterRegistry.counter("raptor.model.attempts", "operation", operation, "outcome", outcome).count();
+    }
+
+    private String chat() throws IOException, InterruptedException {
+        return post("/api/chat", "{\"model\":\"stub\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}],\"stream\":false}");
+    }
+
+    private String embed() throws IOException, InterruptedException {
+        return post("/api/embed", "{\"model\":\"stub\",\"input\":[\"a\",\"b\"]}");
+    }
+
+    private String post(String path, String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(server.baseUrl() + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,43 @@
+package it.raptor_service.service.retrieval;
+
+import it.raptor_service.model.RetrievedNode;
+import it.raptor_service.service.lexical.LexicalIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HybridRetrieverTest {
+
+    @Test
+    void fusesBothRankingsByReciprocalRank() {
+        List<RetrievedNode> vectorNodes = List.of(
+                new RetrievedNode(1, 0, "summary", 0.9),
+                new RetrievedNode(0, 3, "chunk three", 0.8),
+                new RetrievedNode(0, 5, "chunk five", 0.7));
+        List<LexicalIndex.LexicalHit> lexicalHits = List.of(
+                new LexicalIndex.LexicalHit(0, 5, 12.0),
+                new LexicalIndex.LexicalHit(0, 9, 8.0));
+
+        List<RetrievedNode> fused = HybridRetriever.fuse(vectorNodes, lexicalHits, 60, 3,
+                (layer, id) -> "chunk " + id);
+
+        // Chunk 5 is third by vector and first lexically: 1/63 + 1/61 beats 1/61 alone
+        assertEquals(List.of("chunk five", "summary", "chunk three"),
+                fused.stream().map(RetrievedNode::getText).toList());
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get(0).getScore(), 1e-12);
+    }
+
+    @Test
+    void nodesFoundOnlyLexicallyGetTheirText() {
+        List<RetrievedNode> fused = HybridRetriever.fuse(List.of(),
+                List.of(new LexicalIndex.LexicalHit(2, 1, 3.0)), 60, 10, (layer, id) -> layer + "/" + id);
+
+        assertEquals(1, fused.size());
+        assertEquals("2/1", fused.get(0).getText());
+        assertThrows(IllegalArgumentException.class,
+                () -> HybridRetriever.fuse(List.of(), List.of(), 60, 0, (layer, id) -> ""));
+    }
+}
@@ -0,0 +1,122 @@
+package it.raptor_service.service.retrieval;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.RetrievalResult;
+import it.raptor_service.model.RetrievedNode;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TreeTraversalRetrieverTest {
+
+    private final SimilarityCalculator similarityCalculator = new SimilarityCalculator();
+
+    @Test
+    void descendsIntoTheBestBranchOnly() {
+        TreeIndex index = TreeIndex.of(twoTopicTree(true), similarityCalculator);
+
+        RetrievalResult result = retriever(1).retrieve(index, new float[]{1.0f, 0.0f}, null);
+
+        List<RetrievedNode> nodes = result.getNodes();
+        assertEquals(List.of(2, 1, 0), nodes.stream().map(RetrievedNode::getLayer).toList());
+        assertEquals("all", nodes.get(0).getText());
+        assertEquals("north", nodes.get(1).getText());
+        assertEquals(0, nodes.get(2).getId());
+        // Top summary, both level-1 summaries, then only the two chunks under "north"
+        assertEquals(5, result.getVisitedNodes());
+        assertEquals(7, result.getTotalNodes());
+    }
+
+    @Test
+    void beamWidthIsConfiguredPerLayerAndOverriddenPerQuery() {
+        TreeIndex index = TreeIndex.of(twoTopicTree(true), similarityCalculator);
+        RaptorProperties properties = properties(1);
+        properties.getRetrieval().getLevelBeamWidth().put(0, 2);
+        TreeTraversalRetriever retriever = new TreeTraversalRetriever(properties, similarityCalculator);
+
+        RetrievalResult configured = retriever.retrieve(index, new float[]{0.0f, 1.0f}, null);
+        assertEquals(List.of("all", "south", "sea", "coast"),
+                configured.getNodes().stream().map(RetrievedNode::getText).toList());
+
+        RetrievalResult wide = retriever.retrieve(index, new float[]{0.0f, 1.0f}, 2);
+        assertEquals(7, wide.getVisitedNodes());
+        assertThrows(IllegalArgumentException.class, () -> retriever.retrieve(index, new float[]{0.0f, 1.0f}, 0));
+    }
+
+    @Test
+    void convergedTopLevelStartsAtTheSummariesBelowIt() {
+        TreeIndex index = TreeIndex.of(twoTopicTree(false), similarityCalculator);
+
+        RetrievalResult result = retriever(1).retrieve(index, new float[]{0.0f, 1.0f}, null);
+
+        assertEquals(1, index.topLayer());
+        assertEquals("south", result.getNodes().get(0).getText());
+        assertEquals("sea", result.getNodes().get(1).getText());
+    }
+
+    @Test
+    void duplicateChunksWithoutVectorsAreSkipped() {
+        Map<Integer, LevelResult> levels = twoTopicTree(true);
+        // Chunk 4 was folded into chunk 0 and only appears in the summary's textIds
+        levels.get(1).getSummaries().set(0, new ClusterSummary(0, 1, "north", List.of(0, 1, 4)));
+
+        TreeIndex index = TreeIndex.of(levels, similarityCalculator);
+
+        assertEquals(2, index.layer(1).children()[0].length);
+    }
+
+    @Test
+    void queryWithOtherDimensionsIsRejected() {
+        TreeIndex index = TreeIndex.of(twoTopicTree(true), similarityCalculator);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> retriever(1).retrieve(index, new float[]{1.0f, 0.0f, 0.0f}, null));
+    }
+
+    private TreeTraversalRetriever retriever(int beamWidth) {
+        return new TreeTraversalRetriever(properties(beamWidth), similarityCalculator);
+    }
+
+    private static RaptorProperties properties(int beamWidth) {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getRetrieval().setBeamWidth(beamWidth);
+        return properties;
+    }
+
+    /**
+     * Four chunks in two topics, one summary per topic and, when {@code summarizedTop}, a root
+     * summary over both; otherwise level 2 converged and kept no summaries.
+     */
+    private static Map<Integer, LevelResult> twoTopicTree(boolean summarizedTop) {
+        LevelResult level1 = new LevelResult(1,
+                List.of(new TextEmbedding(0, "snow", new float[]{1.0f, 0.0f}),
+                        new TextEmbedding(1, "ice", new float[]{0.9f, 0.2f}),
+                        new TextEmbedding(2, "sea", new float[]{0.0f, 1.0f}),
+                        new TextEmbedding(3, "coast", new float[]{0.3f, 0.9f})),
+                List.of(new Cluster(0, List.of("snow", "ice"), List.of(0, 1)),
+                        new Cluster(1, List.of("sea", "coast"), List.of(2, 3))),
+                new ArrayList<>(List.of(new ClusterSummary(0, 1, "north", List.of(0, 1)),
+                        new ClusterSummary(1, 1, "south", List.of(2, 3)))));
+        LevelResult level2 = new LevelResult(2,
+                List.of(new TextEmbedding(0, "north", new float[]{1.0f, 0.1f}),
+                        new TextEmbedding(1, "south", new float[]{0.1f, 1.0f})),
+                List.of(new Cluster(0, List.of("north", "south"), List.of(0, 1))),
+                summarizedTop ? List.of(new ClusterSummary(0, 2, "all", List.of(0, 1))) : List.of());
+
+        Map<Integer, LevelResult> levels = new HashMap<>();
+        levels.put(1, level1);
+        levels.put(2, level2);
+        return levels;
+    }
+}
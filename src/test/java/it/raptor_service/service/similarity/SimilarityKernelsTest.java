@@ -0,0 +1,95 @@
+package it.raptor_service.service.similarity;
+
+import jdk.incubator.vector.FloatVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The Vector API kernels must agree with the scalar loops, including the tail left over when
+ * the dimension is not a multiple of the lane count.
+ */
+class SimilarityKernelsTest {
+
+    private static final double TOLERANCE = 1e-4;
+
+    private final SimilarityKernels scalar = new ScalarSimilarityKernels();
+    private final SimilarityKernels vector = new VectorApiSimilarityKernels();
+    private final Random random = new Random(31);
+
+    @Test
+    void kernelsMatchScalarForEveryTailLength() {
+        int lanes = FloatVector.SPECIES_PREFERRED.length();
+        int[] dimensions = {1, lanes - 1, lanes, lanes + 1, 3 * lanes + 5, 384, 769};
+
+        for (int dimension : dimensions) {
+            if (dimension < 1) {
+                continue;
+            }
+            float[] a = randomVector(dimension);
+            float[] b = randomVector(dimension);
+            String context = "dimension " + dimension;
+
+            assertClose(scalar.dot(a, b), vector.dot(a, b), context);
+            assertClose(scalar.squaredNorm(a), vector.squaredNorm(a), context);
+            assertClose(scalar.cosine(a, b), vector.cosine(a, b), context);
+            assertClose(scalar.squaredDistance(a, b), vector.squaredDistance(a, b), context);
+        }
+    }
+
+    @Test
+    void zeroVectorHasZeroCosine() {
+        float[] zero = new float[17];
+
+        assertEquals(0.0, vector.cosine(zero, randomVector(17)));
+        assertEquals(0.0, scalar.cosine(zero, randomVector(17)));
+    }
+
+    @Test
+    void batchApisMatchScalar() {
+        SimilarityCalculator simd = new SimilarityCalculator(vector);
+        SimilarityCalculator plain = new SimilarityCalculator(scalar);
+        int dimension = 101;
+        float[] query = randomVector(dimension);
+        float[][] candidates = new float[9][];
+        float[][] normalized = new float[9][];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = randomVector(dimension);
+            normalized[i] = plain.normalize(candidates[i]);
+        }
+        float[] unitQuery = plain.normalize(query);
+
+        float[] expected = new float[candidates.length];
+        float[] actual = new float[candidates.length];
+        plain.calculateCosineSimilarities(query, candidates, expected);
+        simd.calculateCosineSimilarities(query, candidates, actual);
+        assertArrayClose(expected, actual, "one-vs-many cosine");
+
+        plain.calculateDotProducts(unitQuery, normalized, expected);
+        simd.calculateDotProducts(unitQuery, normalized, actual);
+        assertArrayClose(expected, actual, "one-vs-many dot");
+
+        assertArrayClose(plain.normalize(query), simd.normalize(query), "normalize");
+    }
+
+    private float[] randomVector(int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = random.nextFloat() * 2.0f - 1.0f;
+        }
+        return vector;
+    }
+
+    private static void assertClose(double expected, double actual, String context) {
+        assertEquals(expected, actual, TOLERANCE * Math.max(1.0, Math.abs(expected)), context);
+    }
+
+    private static void assertArrayClose(float[] expected, float[] actual, String context) {
+        assertEquals(expected.length, actual.length, context);
+        for (int i = 0; i < expected.length; i++) {
+            assertClose(expected[i], actual[i], context + " [" + i + "]");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package it.raptor_service.service.splitter;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.service.splitter.util.SentenceSplitter;
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sectioned parallel splitting and section-by-section splitting against splitting the
+ * whole text sequentially.
+ */
+class TextSplitterServiceTest {
+
+    private final List<TextSplitterService> splitters = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        splitters.forEach(TextSplitterService::shutdown);
+    }
+
+    @Test
+    void parallelSplit_matchesSequentialSplit() {
+        String text = document(new Random(224), 400_000, true);
+        TextSplitterService sequential = splitter(Integer.MAX_VALUE, 1);
+        TextSplitterService parallel = splitter(0, 4);
+
+        for (int chunkSize : new int[]{50, 500, 2000}) {
+            List<String> expected = sequential.splitText(text, chunkSize);
+            List<String> actual = parallel.splitText(text, chunkSize);
+
+            assertTrue(expected.size() > 1);
+            assertEquals(expected, actual, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void parallelSplit_withoutSentenceParagraphBreaks_staysOneSection() {
+        String text = "a line without a full stop\n\n".repeat(5_000) + "end.";
+
+        assertEquals(splitter(Integer.MAX_VALUE, 1).splitText(text, 100), splitter(0, 4).splitText(text, 100));
+    }
+
+    @Test
+    void sectionedSplit_matchesWholeTextSplit() {
+        // Sentences over the chunk size are split by separators and characters, which a seam inside them shifts
+        String text = document(new Random(41), 200_000, false);
+        Random cuts = new Random(3);
+        TextSplitterService splitter = splitter(Integer.MAX_VALUE, 1);
+
+        for (int chunkSize : new int[]{500, 2000}) {
+            SectionedSplit split = splitter.sectionedSplit(chunkSize);
+            // Sections end anywhere, including inside words and sentences
+            for (int start = 0; start < text.length(); ) {
+                int end = Math.min(text.length(), start + 1 + cuts.nextInt(6000));
+                split.add(text.substring(start, end));
+                start = end;
+            }
+
+            assertEquals(splitter.splitText(text, chunkSize), split.finish(), "chunk size " + chunkSize);
+        }
+    }
+
+    private TextSplitterService splitter(int parallelSplitMinChars, int parallelism) {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getProcessing().setParallelSplitMinChars(parallelSplitMinChars);
+        properties.getProcessing().setSplitSectionChars(8192);
+        properties.getProcessing().setSplitParallelism(parallelism);
+
+        TextSplitterService splitter = new TextSplitterService(new TokenEstimator(), new SentenceSplitter(), properties);
+        splitters.add(splitter);
+        return splitter;
+    }
+
+    /**
+     * Paragraphs of sentences with mixed punctuation and whitespace, including blank lines
+     * inside sentences and, with {@code longSentences}, the occasional sentence longer than any chunk.
+     */
+    private static String document(Random random, int length, boolean longSentences) {
+        String[] words = {"tree", "cluster", "summary", "level", "node", "embedding", "token", "chunk", "RAPTOR", "2024"};
+        String[] ends = {".", "!", "?", ",", ";"};
+        String[] gaps = {" ", "  ", "\n", "\n\n", " \n\n ", "\t", "\r\n\r\n"};
+        StringBuilder text = new StringBuilder(length + 100);
+
+        while (text.length() < length) {
+            int sentenceWords = longSentences && random.nextInt(50) == 0 ? 3000 : 3 + random.nextInt(25);
+            for (int w = 0; w < sentenceWords; w++) {
+                text.append(words[random.nextInt(words.length)]);
+                text.append(random.nextInt(20) == 0 ? gaps[random.nextInt(gaps.length)] : " ");
+            }
+            text.append(ends[random.nextInt(ends.length)]);
+            text.append(gaps[random.nextInt(gaps.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package it.raptor_service.service.subtree;
+
+import it.raptor_service.config.RaptorProperties;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardPartitionerTest {
+
+    private final ShardPartitioner partitioner = new ShardPartitioner(new RaptorProperties(), new SimilarityCalculator());
+
+    @Test
+    void byDocumentOrder_coversEveryChunkInEvenRuns() {
+        List<int[]> shards = partitioner.byDocumentOrder(10, 4);
+
+        assertEquals(3, shards.size());
+        assertArrayEquals(new int[]{0, 1, 2}, shards.get(0));
+        assertArrayEquals(new int[]{3, 4, 5}, shards.get(1));
+        assertArrayEquals(new int[]{6, 7, 8, 9}, shards.get(2));
+    }
+
+    @Test
+    void byTopic_keepsTopicsTogetherWithinCapacity() {
+        // Three topics of 40 chunks, interleaved in document order
+        Random random = new Random(3);
+        float[][] topics = {direction(random), direction(random), direction(random)};
+        List<TextEmbedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            float[] vector = topics[i % 3].clone();
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] += (float) (random.nextGaussian() * 0.05);
+            }
+            embeddings.add(new TextEmbedding(i, "chunk " + i, vector));
+        }
+
+        List<int[]> shards = partitioner.byTopic(embeddings, 40);
+
+        assertEquals(3, shards.size());
+        assertEquals(List.of(IntStream.range(0, 120).boxed().toList()), List.of(shards.stream()
+                .flatMapToInt(Arrays::stream).sorted().boxed().toList()));
+        for (int[] shard : shards) {
+            assertEquals(40, shard.length);
+            assertTrue(Arrays.stream(shard).allMatch(i -> i % 3 == shard[0] % 3), "mixed topics in a shard");
+            assertTrue(IntStream.range(1, shard.length).allMatch(i -> shard[i - 1] < shard[i]), "not in document order");
+        }
+    }
+
+    private static float[] direction(Random random) {
+        float[] vector = new float[32];
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,120 @@
+package it.raptor_service.service.subtree;
+
+import it.raptor_service.model.Cluster;
+import it.raptor_service.model.ClusterSummary;
+import it.raptor_service.model.LevelResult;
+import it.raptor_service.model.TextEmbedding;
+import it.raptor_service.service.retrieval.TreeIndex;
+import it.raptor_service.service.similarity.SimilarityCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubtreeMergerTest {
+
+    @Test
+    void mergeLevels_mapsLevelOneToChunksAndUpperLevelsToMergedSummaries() {
+        // Shard A holds chunks 0, 2, 4 and reaches level 2; shard B holds chunks 1, 3 and stops at level 1
+        ShardSubtree a = new ShardSubtree(new int[]{0, 2, 4}, List.of(
+                level(1, List.of("c0", "c2", "c4"), List.of(List.of(0, 1), List.of(2)), List.of("a0", "a1")),
+                level(2, List.of("a0", "a1"), List.of(List.of(0, 1)), List.of("a-root"))));
+        ShardSubtree b = new ShardSubtree(new int[]{1, 3}, List.of(
+                level(1, List.of("c1", "c3"), List.of(List.of(0, 1)), List.of("b-root"))));
+
+        List<LevelResult> merged = SubtreeMerger.mergeLevels(List.of(a, b));
+
+        assertEquals(2, merged.size());
+        LevelResult first = merged.get(0);
+        assertEquals(List.of(0, 1, 2, 3, 4), first.getEmbeddings().stream().map(TextEmbedding::getId).toList());
+        assertEquals(List.of("c0", "c1", "c2", "c3", "c4"), first.getEmbeddings().stream().map(TextEmbedding::getText).toList());
+        assertEquals(List.of(List.of(0, 2), List.of(4), List.of(1, 3)),
+                first.getSummaries().stream().map(ClusterSummary::getTextIds).toList());
+        assertEquals(List.of(0, 1, 2), first.getClusters().stream().map(Cluster::getId).toList());
+
+        // Shard B's root is carried up, pointing at itself in level 1
+        LevelResult second = merged.get(1);
+        assertEquals(List.of(List.of(0, 1), List.of(2)),
+                second.getSummaries().stream().map(ClusterSummary::getTextIds).toList());
+        assertEquals(List.of(2, 2), second.getSummaries().stream().map(ClusterSummary::getLevel).toList());
+        assertEquals("b-root", first.getSummaries().get(2).getSummary());
+        assertEquals(List.of(0, 1), second.getEmbeddings().stream().map(TextEmbedding::getId).toList());
+
+        assertEquals(List.of("a-root", "b-root"), SubtreeMerger.roots(merged));
+    }
+
+    @Test
+    void mergeLevels_offsetsUpperLevelIdsByEarlierShards() {
+        ShardSubtree a = new ShardSubtree(new int[]{0, 1}, List.of(
+                level(1, List.of("c0", "c1"), List.of(List.of(0), List.of(1)), List.of("a0", "a1")),
+                level(2, List.of("a0", "a1"), List.of(List.of(0, 1)), List.of("a-root"))));
+        ShardSubtree b = new ShardSubtree(new int[]{2, 3, 4}, List.of(
+                level(1, List.of("c2", "c3", "c4"), List.of(List.of(0), List.of(1, 2)), List.of("b0", "b1")),
+                level(2, List.of("b0", "b1"), List.of(List.of(1), List.of(0)), List.of("b-root-1", "b-root-2"))));
+
+        LevelResult second = SubtreeMerger.mergeLevels(List.of(a, b)).get(1);
+
+        assertEquals(List.of(0, 1, 2), second.getSummaries().stream().map(ClusterSummary::getId).toList());
+        assertEquals(List.of(List.of(0, 1), List.of(3), List.of(2)),
+                second.getSummaries().stream().map(ClusterSummary::getTextIds).toList());
+        assertEquals(List.of(0, 1, 2, 3), second.getEmbeddings().stream().map(TextEmbedding::getId).toList());
+    }
+
+    @Test
+    void sharedLevelsOverUnequalDepthShards_reachEveryChunk() {
+        // A and C reach level 2, B stops at level 1
+        ShardSubtree a = new ShardSubtree(new int[]{0, 1, 2, 3}, List.of(
+                level(1, List.of("c0", "c1", "c2", "c3"), List.of(List.of(0, 1), List.of(2, 3)), List.of("a0", "a1")),
+                level(2, List.of("a0", "a1"), List.of(List.of(0, 1)), List.of("a-root"))));
+        ShardSubtree b = new ShardSubtree(new int[]{4, 5}, List.of(
+                level(1, List.of("c4", "c5"), List.of(List.of(0, 1)), List.of("b-root"))));
+        ShardSubtree c = new ShardSubtree(new int[]{6, 7, 8}, List.of(
+                level(1, List.of("c6", "c7", "c8"), List.of(List.of(0), List.of(1, 2)), List.of("c0s", "c1s")),
+                level(2, List.of("c0s", "c1s"), List.of(List.of(1, 0)), List.of("c-root"))));
+
+        List<LevelResult> merged = SubtreeMerger.mergeLevels(List.of(a, b, c));
+        List<String> roots = SubtreeMerger.roots(merged);
+        assertEquals(List.of("a-root", "b-root", "c-root"), roots);
+
+        // The shared recursion embeds the roots by position and clusters them into level 3
+        Map<Integer, LevelResult> levels = new HashMap<>();
+        merged.forEach(level -> levels.put(level.getLevel(), level));
+        levels.put(3, level(3, roots, List.of(List.of(0, 1, 2)), List.of("top")));
+
+        TreeIndex index = TreeIndex.of(levels, new SimilarityCalculator());
+        assertEquals(3, index.topLayer());
+        Set<Integer> reached = new TreeSet<>();
+        collectChunks(index, 3, 0, reached);
+        assertEquals(Set.of(0, 1, 2, 3, 4, 5, 6, 7, 8), reached);
+    }
+
+    private static void collectChunks(TreeIndex index, int layer, int row, Set<Integer> chunks) {
+        if (layer == 0) {
+            chunks.add(index.layer(0).ids()[row]);
+            return;
+        }
+        for (int child : index.layer(layer).children()[row]) {
+            collectChunks(index, layer - 1, child, chunks);
+        }
+    }
+
+    private static LevelResult level(int level, List<String> texts, List<List<Integer>> clusters, List<String> summaries) {
+        List<TextEmbedding> embeddings = texts.stream()
+                .map(text -> new TextEmbedding(texts.indexOf(text), text, new float[]{1f}))
+                .toList();
+        List<Cluster> levelClusters = new ArrayList<>();
+        List<ClusterSummary> levelSummaries = new ArrayList<>();
+        for (int id = 0; id < clusters.size(); id++) {
+            List<String> members = clusters.get(id).stream().map(texts::get).toList();
+            levelClusters.add(new Cluster(id, members, clusters.get(id)));
+            levelSummaries.add(new ClusterSummary(id, level, summaries.get(id), clusters.get(id)));
+        }
+        return new LevelResult(level, embeddings, levelClusters, levelSummaries);
+    }
+}
@@ -0,0 +1,71 @@
+package it.raptor_service.service.summarization;
+
+import it.raptor_service.service.splitter.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContextPackerTest {
+
+    private final ContextPacker packer = new ContextPacker(new TokenEstimator());
+
+    @Test
+    void packsStayWithinBudgetAndKeepOrder() {
+        List<String> texts = IntStream.range(0, 40)
+                .mapToObj(i -> "Paragraph " + i + " " + "lorem ipsum dolor sit amet ".repeat(5 + i % 7))
+                .toList();
+
+        List<ContextPack> packs = packer.pack(texts, ClusterSummarizer.SEPARATOR, 200);
+
+        List<String> flattened = new ArrayList<>();
+        for (ContextPack pack : packs) {
+            assertTrue(pack.tokens() <= 200, "pack over budget: " + pack.tokens());
+            flattened.addAll(pack.texts());
+        }
+        assertEquals(texts, flattened);
+        assertTrue(packs.size() > 1);
+    }
+
+    @Test
+    void packingIsDeterministic() {
+        List<String> texts = IntStream.range(0, 25)
+                .mapToObj(i -> "Section " + i + ": " + "alpha, beta; gamma. ".repeat(3 + i % 5))
+                .toList();
+
+        assertEquals(
+                packer.pack(texts, ClusterSummarizer.SEPARATOR, 150),
+                packer.pack(texts, ClusterSummarizer.SEPARATOR, 150));
+    }
+
+    @Test
+    void oversizedTextIsSplitIntoPiecesThatFit() {
+        String huge = "word ".repeat(5000);
+
+        List<ContextPack> packs = packer.pack(List.of(huge), ClusterSummarizer.SEPARATOR, 100);
+
+        assertTrue(packs.size() > 1);
+        StringBuilder rebuilt = new StringBuilder();
+        for (ContextPack pack : packs) {
+            assertTrue(pack.tokens() <= 100, "pack over budget: " + pack.tokens());
+            pack.texts().forEach(rebuilt::append);
+        }
+        assertEquals(huge, rebuilt.toString());
+    }
+
+    @Test
+    void piecesOfAnOversizedTextEndAtWhitespace() {
+        String huge = "lorem ipsum dolor sit amet ".repeat(400);
+
+        List<ContextPack> packs = packer.pack(List.of(huge), ClusterSummarizer.SEPARATOR, 80);
+
+        for (int i = 0; i < packs.size() - 1; i++) {
+            List<String> texts = packs.get(i).texts();
+            assertTrue(texts.get(texts.size() - 1).endsWith(" "), "piece ends mid-word");
+        }
+    }
+}
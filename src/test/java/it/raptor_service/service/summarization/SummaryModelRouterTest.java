@@ -0,0 +1,52 @@
+package it.raptor_service.service.summarization;
+
+import it.raptor_service.config.RaptorProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SummaryModelRouterTest {
+
+    @Test
+    void levelWithoutRule_usesChatDefaults() {
+        assertNull(new SummaryModelRouter(new RaptorProperties()).optionsFor(1, 1000));
+    }
+
+    @Test
+    void levelRule_setsModelTemperatureAndScaledBudget() {
+        RaptorProperties properties = new RaptorProperties();
+        properties.getRouting().getLevels().put(1, rule("llama3.2:3b", 0.3, 512, 128, 0.25));
+        SummaryModelRouter router = new SummaryModelRouter(properties);
+
+        OllamaOptions options = router.optionsFor(1, 1000);
+
+        assertEquals("llama3.2:3b", options.getModel());
+        assertEquals(0.3, (double) options.getTemperature());
+        assertEquals(250, (int) options.getNumPredict());
+        assertNull(router.optionsFor(2, 1000));
+    }
+
+    @Test
+    void generationBudget_isClampedToTheRuleBounds() {
+        RaptorProperties.LevelModel scaled = rule(null, null, 512, 128, 0.25);
+        RaptorProperties.LevelModel fixed = rule(null, null, 512, 128, 0.0);
+
+        assertEquals(128, SummaryModelRouter.generationBudget(scaled, 100));
+        assertEquals(300, SummaryModelRouter.generationBudget(scaled, 1200));
+        assertEquals(512, SummaryModelRouter.generationBudget(scaled, 6000));
+        assertEquals(512, SummaryModelRouter.generationBudget(fixed, 100));
+    }
+
+    private static RaptorProperties.LevelModel rule(
+            String model, Double temperature, int maxTokens, int minTokens, double outputRatio) {
+        RaptorProperties.LevelModel rule = new RaptorProperties.LevelModel();
+        rule.setModel(model);
+        rule.setTemperature(temperature);
+        rule.setMaxTokens(maxTokens);
+        rule.setMinTokens(minTokens);
+        rule.setOutputRatio(outputRatio);
+        return rule;
+    }
+}
@@ -0,0 +1,177 @@
+package it.raptor_service.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * In-process stand-in for an Ollama server on an ephemeral localhost port.
+ * <p>
+ * Serves {@code /api/chat}, {@code /api/embed} and {@code /api/tags} with canned
+ * Ollama-shaped JSON. Failures and latency can be injected per request so tests can
+ * exercise retries, deadlines and hedging without a real model.
+ */
+public final class StubModelServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger slowRequestsLeft = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int failureStatus = 503;
+    private volatile long slowDelayMillis;
+    private volatile long delayMillis;
+    private volatile int dimensions = 8;
+    private volatile String reply = "stub summary";
+
+    private StubModelServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static StubModelServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        StubModelServer stub = new StubModelServer(server);
+        server.createContext("/api/chat", stub::chat);
+        server.createContext("/api/embed", stub::embed);
+        server.createContext("/api/tags", exchange -> stub.respond(exchange, 200, "{\"models\":[]}"));
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /** The next {@code count} model requests answer with {@code status}. */
+    public StubModelServer failNext(int count, int status) {
+        failureStatus = status;
+        failuresLeft.set(count);
+        return this;
+    }
+
+    /** The next {@code count} model requests wait {@code millis} before answering. */
+    public StubModelServer slowNext(int count, long millis) {
+        slowDelayMillis = millis;
+        slowRequestsLeft.set(count);
+        return this;
+    }
+
+    /** Every model request waits {@code millis} before answering. */
+    public StubModelServer delay(long millis) {
+        delayMillis = millis;
+        return this;
+    }
+
+    public StubModelServer reply(String text) {
+        reply = text;
+        return this;
+    }
+
+    public StubModelServer dimensions(int dimensions) {
+        this.dimensions = dimensions;
+        return this;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    public int maxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        handleModelRequest(exchange, body -> String.format(Locale.ROOT,
+                "{\"model\":\"stub\",\"created_at\":\"2024-01-01T00:00:00Z\","
+                        + "\"message\":{\"role\":\"assistant\",\"content\":\"%s\"},\"done\":true}",
+                reply.replace("\"", "\\\"")));
+    }
+
+    private void embed(HttpExchange exchange) throws IOException {
+        handleModelRequest(exchange, body -> {
+            // One deterministic vector per input string in the request
+            int inputs = Math.max(1, countInputs(body));
+            StringBuilder json = new StringBuilder("{\"model\":\"stub\",\"embeddings\":[");
+            for (int i = 0; i < inputs; i++) {
+                json.append(i == 0 ? "[" : ",[");
+                for (int d = 0; d < dimensions; d++) {
+                    json.append(d == 0 ? "" : ",").append(String.format(Locale.ROOT, "%.4f", Math.sin(i + d + 1.0)));
+                }
+                json.append(']');
+            }
+            return json.append("]}").toString();
+        });
+    }
+
+    private void handleModelRequest(HttpExchange exchange, Function<String, String> body)
+            throws IOException {
+        requests.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            pause(delayMillis + (slowRequestsLeft.getAndDecrement() > 0 ? slowDelayMillis : 0));
+
+            if (failuresLeft.getAndDecrement() > 0) {
+                respond(exchange, failureStatus, "{\"error\":\"injected failure\"}");
+            } else {
+                respond(exchange, 200, body.apply(request));
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static int countInputs(String body) {
+        int start = body.indexOf("\"input\"");
+        if (start < 0) {
+            return 1;
+        }
+        int open = body.indexOf('[', start);
+        int close = body.indexOf(']', open);
+        if (open < 0 || close < 0) {
+            return 1;
+        }
+        // Inputs are JSON strings: two quotes each
+        return (int) body.substring(open, close).chars().filter(ch -> ch == '"').count() / 2;
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            server.stop(0);
+        }
+    }
+}